@@ -0,0 +1,24 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.AppApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+
+/**
+ * Контекст приложения для бенчмарков: те же компоненты, что у {@link AppApplication},
+ * без тестовых конфигураций с testcontainers, которые лежат рядом в classpath.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackageClasses = AppApplication.class)
+@ComponentScan(basePackageClasses = AppApplication.class,
+        excludeFilters = {
+                @ComponentScan.Filter(type = FilterType.ANNOTATION, classes = TestConfiguration.class),
+                @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = AppApplication.class)
+        })
+public class BenchmarkApplication {
+}
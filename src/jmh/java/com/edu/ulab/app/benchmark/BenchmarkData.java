@@ -0,0 +1,43 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Тестовые запросы для бенчмарков.
+ */
+final class BenchmarkData {
+    // title пользователя уникален, поэтому каждый запрос получает свой номер
+    private static final AtomicLong requestCounter = new AtomicLong();
+
+    private BenchmarkData() {
+    }
+
+    static UserBookRequest userBookRequest(int bookCount) {
+        long number = requestCounter.incrementAndGet();
+
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("Benchmark User " + number);
+        userRequest.setTitle("title-" + number);
+        userRequest.setAge(30);
+
+        List<BookRequest> bookRequests = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            BookRequest bookRequest = new BookRequest();
+            bookRequest.setTitle("Book " + i);
+            bookRequest.setAuthor("Author " + i);
+            bookRequest.setPageCount(100 + i);
+            bookRequests.add(bookRequest);
+        }
+
+        UserBookRequest userBookRequest = new UserBookRequest();
+        userBookRequest.setUserRequest(userRequest);
+        userBookRequest.setBookRequests(bookRequests);
+        return userBookRequest;
+    }
+}
@@ -0,0 +1,21 @@
+package com.edu.ulab.app.benchmark;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Функции PostgreSQL, которых нет во встроенной H2, регистрируются в benchmark-schema.sql.
+ */
+public final class H2Functions {
+    private H2Functions() {
+    }
+
+    public static Long[] arrayRemove(Long[] array, Long value) {
+        if (array == null) {
+            return null;
+        }
+        return Arrays.stream(array)
+                .filter(element -> !Objects.equals(element, value))
+                .toArray(Long[]::new);
+    }
+}
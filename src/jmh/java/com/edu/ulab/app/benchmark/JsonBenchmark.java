@@ -0,0 +1,77 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Сериализация Jackson {@link UserBookRequest} и {@link UserBookResponse}
+ * с настройками {@link ObjectMapper}, как в приложении. Ответ только пишется:
+ * у {@link UserBookResponse} нет конструктора для десериализации.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    @Param({"1", "10", "100"})
+    private int bookCount;
+
+    private ObjectWriter requestWriter;
+    private ObjectReader requestReader;
+    private ObjectWriter responseWriter;
+
+    private UserBookRequest request;
+    private byte[] requestJson;
+    private UserBookResponse response;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        requestWriter = objectMapper.writerFor(UserBookRequest.class);
+        requestReader = objectMapper.readerFor(UserBookRequest.class);
+        responseWriter = objectMapper.writerFor(UserBookResponse.class);
+
+        request = BenchmarkData.userBookRequest(bookCount);
+        requestJson = requestWriter.writeValueAsBytes(request);
+        response = UserBookResponse.builder()
+                .userId(1L)
+                .booksIdList(LongStream.rangeClosed(1, bookCount).boxed().toList())
+                .build();
+    }
+
+    @Benchmark
+    public byte[] writeRequest() throws IOException {
+        return requestWriter.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public UserBookRequest readRequest() throws IOException {
+        return requestReader.readValue(requestJson);
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,90 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразования MapStruct {@link UserMapper} и {@link BookMapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    private final UserMapper userMapper = Mappers.getMapper(UserMapper.class);
+    private final BookMapper bookMapper = Mappers.getMapper(BookMapper.class);
+
+    private UserRequest userRequest;
+    private UserDto userDto;
+    private Person person;
+    private BookRequest bookRequest;
+    private BookDto bookDto;
+    private Book book;
+
+    @Setup
+    public void setUp() {
+        UserBookRequest request = BenchmarkData.userBookRequest(1);
+        userRequest = request.getUserRequest();
+        userDto = userMapper.userRequestToUserDto(userRequest);
+        userDto.setId(1L);
+        person = userMapper.userDtoToPerson(userDto);
+
+        bookRequest = request.getBookRequests().get(0);
+        bookDto = bookMapper.bookRequestToBookDto(bookRequest);
+        bookDto.setId(2L);
+        bookDto.setUserId(1L);
+        book = bookMapper.bookDtoToBook(bookDto);
+    }
+
+    @Benchmark
+    public UserDto userRequestToUserDto() {
+        return userMapper.userRequestToUserDto(userRequest);
+    }
+
+    @Benchmark
+    public Person userDtoToPerson() {
+        return userMapper.userDtoToPerson(userDto);
+    }
+
+    @Benchmark
+    public UserDto personToUserDto() {
+        return userMapper.personToUserDto(person);
+    }
+
+    @Benchmark
+    public BookDto bookRequestToBookDto() {
+        return bookMapper.bookRequestToBookDto(bookRequest);
+    }
+
+    @Benchmark
+    public Book bookDtoToBook() {
+        return bookMapper.bookDtoToBook(bookDto);
+    }
+
+    @Benchmark
+    public BookDto bookToBookDto() {
+        return bookMapper.bookToBookDto(book);
+    }
+}
@@ -0,0 +1,121 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.facade.AsyncUserDataFacade;
+import com.edu.ulab.app.facade.ReactiveUserDataFacade;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserBooksBatchResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение v1 ({@link AsyncUserDataFacade}, JPA на пуле dbExecutor) и
+ * v2 ({@link ReactiveUserDataFacade}, R2DBC) при большом числе одновременных запросов.
+ * <p>
+ * Обе реализации работают с одной базой PostgreSQL в контейнере, схема создаётся
+ * Liquibase, кэш не участвует. Встроенная H2 здесь не подходит: драйвер r2dbc-h2
+ * выполняет запросы синхронно в вызывающем потоке, и при нехватке соединений
+ * пул обслуживает ожидающих прямо в потоке, освободившем соединение.
+ * v1 использует jpa-сервисы: как и R2DBC, они берут идентификаторы
+ * из последовательности {@code sequence}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class ReactiveVsBlockingBenchmark {
+    private static final int USER_COUNT = 1000;
+    private static final int MULTI_GET_SIZE = 20;
+    private static final int BOOK_COUNT = 5;
+
+    private PostgreSQLContainer<?> postgres;
+    private ConfigurableApplicationContext context;
+    private AsyncUserDataFacade asyncUserDataFacade;
+    private ReactiveUserDataFacade reactiveUserDataFacade;
+    private long[] userIds;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:13-alpine"));
+        postgres.start();
+        String address = postgres.getHost() + ":" + postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT)
+                + "/" + postgres.getDatabaseName();
+
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .profiles("benchmark")
+                .run("--app.storage.backend=jpa",
+                        "--spring.liquibase.enabled=true",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQL81Dialect",
+                        "--spring.datasource.url=jdbc:postgresql://" + address,
+                        "--spring.datasource.username=" + postgres.getUsername(),
+                        "--spring.datasource.password=" + postgres.getPassword(),
+                        "--spring.r2dbc.url=r2dbc:postgresql://" + address,
+                        "--spring.r2dbc.username=" + postgres.getUsername(),
+                        "--spring.r2dbc.password=" + postgres.getPassword());
+        asyncUserDataFacade = context.getBean(AsyncUserDataFacade.class);
+        reactiveUserDataFacade = context.getBean(ReactiveUserDataFacade.class);
+        userIds = new long[USER_COUNT];
+        for (int i = 0; i < USER_COUNT; i++) {
+            userIds[i] = asyncUserDataFacade.createUserWithBooks(BenchmarkData.userBookRequest(BOOK_COUNT))
+                    .join()
+                    .getUserId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        context.close();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public UserBooksBatchResponse v1GetMany() {
+        return asyncUserDataFacade.getUsersWithBooks(randomUserIds()).join();
+    }
+
+    @Benchmark
+    public UserBooksBatchResponse v2GetMany() {
+        return reactiveUserDataFacade.getUsersWithBooks(randomUserIds()).block();
+    }
+
+    @Benchmark
+    public UserBookResponse v1Create() {
+        return asyncUserDataFacade.createUserWithBooks(BenchmarkData.userBookRequest(BOOK_COUNT)).join();
+    }
+
+    @Benchmark
+    public UserBookResponse v2Create() {
+        return reactiveUserDataFacade.createUserWithBooks(BenchmarkData.userBookRequest(BOOK_COUNT)).block();
+    }
+
+    private List<Long> randomUserIds() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Long> ids = new ArrayList<>(MULTI_GET_SIZE);
+        for (int i = 0; i < MULTI_GET_SIZE; i++) {
+            ids.add(userIds[random.nextInt(userIds.length)]);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,122 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.facade.OptimisticRetry;
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.repository.UserRepository;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Конкурентное обновление одного пользователя из нескольких потоков.
+ * <p>
+ * {@code pessimistic} сначала блокирует строку пользователя через
+ * {@link UserRepository#findByIdForUpdate}, и обновления идут строго по очереди.
+ * {@code optimistic} обновляет по версии и при конфликте повторяет транзакцию
+ * через {@link OptimisticRetry}. Число потоков меняется ключом {@code -t}.
+ * <p>
+ * Повторы и исчерпанные попытки выводятся вспомогательными счётчиками {@link Conflicts}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class UpdateContentionBenchmark {
+    @Param({"jdbc", "jpa"})
+    private String backend;
+
+    @Param({"1", "10"})
+    private int bookCount;
+
+    private ConfigurableApplicationContext context;
+    private UserDataFacade userDataFacade;
+    private UserRepository userRepository;
+    private TransactionTemplate transactionTemplate;
+    private Counter retriedCounter;
+    private final AtomicLong retriedSeen = new AtomicLong();
+    private long userId;
+
+    /**
+     * Конфликты за итерацию по всем потокам. Счётчик повторов {@link OptimisticRetry} общий,
+     * поэтому поток забирает себе его прирост с последнего чтения любым потоком.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Conflicts {
+        public long retried;
+        public long exhausted;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retried = 0;
+            exhausted = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .profiles("benchmark")
+                .run("--app.storage.backend=" + backend);
+        userDataFacade = context.getBean(UserDataFacade.class);
+        userRepository = context.getBean(UserRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        retriedCounter = context.getBean(MeterRegistry.class).get(OptimisticRetry.CONFLICTS_COUNTER_NAME)
+                .tag("outcome", "retried")
+                .counter();
+        retriedSeen.set((long) retriedCounter.count());
+        userId = userDataFacade.createUserWithBooks(BenchmarkData.userBookRequest(bookCount)).getUserId();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserBookResponse pessimistic() {
+        // транзакция фасада присоединяется к внешней, блокировка держится до её конца
+        return transactionTemplate.execute(status -> {
+            userRepository.findByIdForUpdate(userId);
+            return userDataFacade.updateUserWithBooks(BenchmarkData.userBookRequest(bookCount), userId);
+        });
+    }
+
+    @Benchmark
+    public UserBookResponse optimistic(Conflicts conflicts) {
+        try {
+            return userDataFacade.updateUserWithBooks(BenchmarkData.userBookRequest(bookCount), userId);
+        } catch (OptimisticLockingFailureException e) {
+            conflicts.exhausted++;
+            return null;
+        } finally {
+            long retried = (long) retriedCounter.count();
+            conflicts.retried += Math.max(0, retried - retriedSeen.getAndAccumulate(retried, Math::max));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.cache.UserBookCache;
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции {@link UserDataFacade} поверх jdbc- и jpa-сервисов на встроенной H2.
+ * <p>
+ * {@code bookCount} — число книг у пользователя, по нему видно, как время
+ * создания и обновления растёт с размером запроса.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDataFacadeBenchmark {
+    @Param({"jdbc", "jpa"})
+    private String backend;
+
+    @Param({"1", "10", "100", "500"})
+    private int bookCount;
+
+    private ConfigurableApplicationContext context;
+    private UserDataFacade userDataFacade;
+    private UserBookCache userBookCache;
+    private long userId;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        // аргумент командной строки, а не properties(): свойства по умолчанию
+        // перекрываются значением app.storage.backend из application.yaml
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .profiles("benchmark")
+                .run("--app.storage.backend=" + backend);
+        userDataFacade = context.getBean(UserDataFacade.class);
+        userBookCache = context.getBean(UserBookCache.class);
+        userId = userDataFacade.createUserWithBooks(BenchmarkData.userBookRequest(bookCount)).getUserId();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserBookResponse create() {
+        return userDataFacade.createUserWithBooks(BenchmarkData.userBookRequest(bookCount));
+    }
+
+    @Benchmark
+    public UserBookResponse getCached() {
+        return userDataFacade.getUserWithBooks(userId);
+    }
+
+    @Benchmark
+    public UserBookResponse getUncached() {
+        userBookCache.invalidate(userId);
+        return userDataFacade.getUserWithBooks(userId);
+    }
+
+    // Набор книг каждый раз новый: старые удаляются, новые вставляются
+    @Benchmark
+    public UserBookResponse update() {
+        UserBookRequest request = BenchmarkData.userBookRequest(bookCount);
+        return userDataFacade.updateUserWithBooks(request, userId);
+    }
+
+    @Benchmark
+    public void createAndDelete() {
+        UserBookResponse created = userDataFacade.createUserWithBooks(BenchmarkData.userBookRequest(bookCount));
+        userDataFacade.deleteUserWithBooks(created.getUserId());
+    }
+}
@@ -0,0 +1,52 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.validation.BookValidator;
+import com.edu.ulab.app.validation.UserValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверки {@link UserValidator} и {@link BookValidator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+    private UserDto userDto;
+    private BookDto bookDto;
+
+    @Setup
+    public void setUp() {
+        userDto = new UserDto(1L, "Benchmark User", "title", 30);
+
+        bookDto = new BookDto();
+        bookDto.setTitle("Book");
+        bookDto.setAuthor("Author");
+        bookDto.setPageCount(100);
+    }
+
+    @Benchmark
+    public boolean isValidUser() {
+        return UserValidator.isValidUser(userDto);
+    }
+
+    @Benchmark
+    public boolean isValidBook() {
+        return BookValidator.isValidBook(bookDto);
+    }
+}
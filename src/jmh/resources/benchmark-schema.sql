@@ -0,0 +1,29 @@
+-- Та же структура, что создают changeset'ы Liquibase, в синтаксисе H2.
+-- Все сервисы получают идентификаторы из последовательности sequence, identity остаётся для совместимости
+create table if not exists ulab_edu.person
+(
+    id        bigint generated by default as identity primary key,
+    full_name varchar(50) not null,
+    title     varchar(50) not null,
+    age       integer     not null,
+    version   bigint      not null default 0
+);
+
+create unique index if not exists idx_ulab_edu_person_title on ulab_edu.person (title);
+create index if not exists idx_ulab_edu_person_age_id on ulab_edu.person (age, id);
+
+create table if not exists ulab_edu.book
+(
+    id         bigint generated by default as identity primary key,
+    person_id  bigint      not null,
+    title      varchar(50) not null,
+    author     varchar(50) not null,
+    page_count integer     not null,
+    version    bigint      not null default 0
+);
+
+create index if not exists idx_ulab_edu_book_person_id_id on ulab_edu.book (person_id, id);
+
+create sequence if not exists ulab_edu.sequence;
+
+create alias if not exists array_remove for 'com.edu.ulab.app.benchmark.H2Functions.arrayRemove';
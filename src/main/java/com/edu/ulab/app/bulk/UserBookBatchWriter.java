@@ -0,0 +1,120 @@
+package com.edu.ulab.app.bulk;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.repository.codec.BookRowCodec;
+import com.edu.ulab.app.repository.codec.UserRowCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Запись пачки пользователей и книг с заранее выданными идентификаторами.
+ * Для PostgreSQL используется {@code COPY ... FROM STDIN}, для остальных баз — батч INSERT.
+ */
+@Slf4j
+@Component
+public class UserBookBatchWriter {
+    private static final UserRowCodec USER_CODEC = UserRowCodec.INSTANCE;
+    private static final BookRowCodec BOOK_CODEC = BookRowCodec.INSTANCE;
+    // Порядок значений в CSV совпадает с порядком столбцов кодека
+    private static final String COPY_PERSON_SQL = "COPY PERSON (" + USER_CODEC.columnList() + ") FROM STDIN WITH (FORMAT csv)";
+    private static final String COPY_BOOK_SQL = "COPY BOOK (" + BOOK_CODEC.columnList() + ") FROM STDIN WITH (FORMAT csv)";
+    private static final String INSERT_PERSON_SQL = USER_CODEC.insertSql(1);
+    private static final String INSERT_BOOK_SQL = BOOK_CODEC.insertSql(1);
+    private static final String EXISTING_USER_IDS_SQL = "SELECT ID FROM PERSON WHERE ID = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserBookBatchWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    public void write(List<UserDto> users, List<BookDto> books) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                copy(connection.unwrap(PGConnection.class).getCopyAPI(), users, books);
+            } else {
+                insert(users, books);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @return идентификаторы из {@code userIds}, пользователи с которыми уже записаны
+     */
+    public Set<Long> findExistingUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.query(EXISTING_USER_IDS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", userIds.toArray())),
+                (rs, rowNum) -> rs.getLong(1)));
+    }
+
+    private void copy(CopyManager copyManager, List<UserDto> users, List<BookDto> books) throws SQLException {
+        StringBuilder personRows = new StringBuilder(users.size() * 64);
+        for (UserDto user : users) {
+            personRows.append(user.getId()).append(',');
+            appendCsv(personRows, user.getFullName()).append(',');
+            appendCsv(personRows, user.getTitle()).append(',');
+            // последний столбец - VERSION, новые строки начинают с версии 0
+            personRows.append(user.getAge()).append(",0\n");
+        }
+
+        StringBuilder bookRows = new StringBuilder(books.size() * 64);
+        for (BookDto book : books) {
+            bookRows.append(book.getId()).append(',')
+                    .append(book.getUserId()).append(',');
+            appendCsv(bookRows, book.getTitle()).append(',');
+            appendCsv(bookRows, book.getAuthor()).append(',');
+            bookRows.append(book.getPageCount()).append(",0\n");
+        }
+
+        try {
+            copyManager.copyIn(COPY_PERSON_SQL, new StringReader(personRows.toString()));
+            if (!books.isEmpty()) {
+                copyManager.copyIn(COPY_BOOK_SQL, new StringReader(bookRows.toString()));
+            }
+        } catch (IOException e) {
+            throw new SQLException("COPY failed", e);
+        }
+    }
+
+    private void insert(List<UserDto> users, List<BookDto> books) {
+        jdbcTemplate.batchUpdate(INSERT_PERSON_SQL, users, users.size(), (ps, user) -> USER_CODEC.bind(ps, 1, user));
+        jdbcTemplate.batchUpdate(INSERT_BOOK_SQL, books, Math.max(books.size(), 1),
+                (ps, book) -> BOOK_CODEC.bind(ps, 1, book));
+    }
+
+    // Пустая строка и NULL в CSV-формате COPY различаются только кавычками
+    private static StringBuilder appendCsv(StringBuilder builder, String value) {
+        if (value == null) {
+            return builder;
+        }
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                builder.append('"');
+            }
+            builder.append(c);
+        }
+        return builder.append('"');
+    }
+}
@@ -0,0 +1,171 @@
+package com.edu.ulab.app.bulk;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.validation.BookValidator;
+import com.edu.ulab.app.validation.UserValidator;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.ImportBatchResponse;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Потоковый импорт пользователей с книгами из NDJSON.
+ * <p>
+ * Записи читаются по одной и копятся в пачку фиксированного размера; следующая запись
+ * читается из входного потока только после записи пачки в базу, поэтому память
+ * ограничена размером пачки независимо от объёма импорта. Результат каждой пачки
+ * сразу пишется в выходной поток отдельной строкой NDJSON.
+ * <p>
+ * Каждая пачка пишется в своей транзакции. Если запись не удалось прочитать или сохранить,
+ * импорт останавливается, а последней строкой пишется ошибка с номером первой
+ * несохранённой записи: ответ к этому моменту уже отправляется со статусом 200.
+ */
+@Slf4j
+@Component
+public class UserBookImporter {
+    private final ObjectMapper objectMapper;
+    private final UserMapper userMapper;
+    private final BookMapper bookMapper;
+    private final PooledIdAllocator idAllocator;
+    private final UserBookBatchWriter batchWriter;
+
+    @Value("${app.import.batch-size:1000}")
+    private int batchSize;
+
+    public UserBookImporter(ObjectMapper objectMapper,
+                            UserMapper userMapper,
+                            BookMapper bookMapper,
+                            PooledIdAllocator idAllocator,
+                            UserBookBatchWriter batchWriter) {
+        this.objectMapper = objectMapper;
+        this.userMapper = userMapper;
+        this.bookMapper = bookMapper;
+        this.idAllocator = idAllocator;
+        this.batchWriter = batchWriter;
+    }
+
+    public void importUsersWithBooks(InputStream input, OutputStream output) throws IOException {
+        long startedAt = System.nanoTime();
+        long recordCount = 0;
+        int batchNumber = 0;
+        List<UserBookRequest> batch = new ArrayList<>(batchSize);
+
+        try (MappingIterator<UserBookRequest> records = objectMapper.readerFor(UserBookRequest.class).readValues(input);
+             SequenceWriter writer = objectMapper.writerFor(ImportBatchResponse.class)
+                     .withRootValueSeparator("\n")
+                     .writeValues(output)) {
+            try {
+                while (records.hasNextValue()) {
+                    batch.add(records.nextValue());
+                    if (batch.size() == batchSize) {
+                        writer.write(writeBatch(batchNumber + 1, recordCount, batch, startedAt));
+                        batchNumber++;
+                        recordCount += batch.size();
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    writer.write(writeBatch(batchNumber + 1, recordCount, batch, startedAt));
+                    batchNumber++;
+                    recordCount += batch.size();
+                }
+            } catch (JsonProcessingException | RuntimeException e) {
+                log.warn("Import stopped after {} users at batch {}", recordCount, batchNumber + 1, e);
+                writer.write(ImportBatchResponse.builder()
+                        .batch(batchNumber + 1)
+                        .firstRecord(recordCount)
+                        .totalRecords(recordCount)
+                        .errorMessage(e.getMessage())
+                        .build());
+                return;
+            }
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        log.info("Imported {} users in {} batches, {} ms", recordCount, batchNumber, elapsedMillis);
+    }
+
+    private ImportBatchResponse writeBatch(int batchNumber, long firstRecord, List<UserBookRequest> batch, long startedAt) {
+        List<UserDto> users = new ArrayList<>(batch.size());
+        List<List<BookDto>> booksByUser = new ArrayList<>(batch.size());
+        int bookCount = 0;
+
+        for (int i = 0; i < batch.size(); i++) {
+            UserBookRequest request = batch.get(i);
+            UserDto user = request.getUserRequest() == null ? null : userMapper.userRequestToUserDto(request.getUserRequest());
+            if (user == null || !UserValidator.isValidUser(user)) {
+                throw new NotValidException("Not valid user in record " + (firstRecord + i));
+            }
+            List<BookDto> books = request.getBookRequests() == null ? List.of() : request.getBookRequests()
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .map(this::toValidBook)
+                    .toList();
+            users.add(user);
+            booksByUser.add(books);
+            bookCount += books.size();
+        }
+
+        long[] ids = idAllocator.nextIds(users.size() + bookCount);
+        int nextId = 0;
+        List<BookDto> books = new ArrayList<>(bookCount);
+        List<UserBookResponse> responses = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            UserDto user = users.get(i);
+            user.setId(ids[nextId++]);
+            List<Long> bookIds = new ArrayList<>(booksByUser.get(i).size());
+            for (BookDto book : booksByUser.get(i)) {
+                book.setId(ids[nextId++]);
+                book.setUserId(user.getId());
+                books.add(book);
+                bookIds.add(book.getId());
+            }
+            responses.add(UserBookResponse.builder()
+                    .userId(user.getId())
+                    .booksIdList(bookIds)
+                    .build());
+        }
+
+        batchWriter.write(users, books);
+
+        long totalRecords = firstRecord + batch.size();
+        long elapsedNanos = Math.max(System.nanoTime() - startedAt, 1);
+        return ImportBatchResponse.builder()
+                .batch(batchNumber)
+                .firstRecord(firstRecord)
+                .userCount(users.size())
+                .bookCount(bookCount)
+                .totalRecords(totalRecords)
+                .recordsPerSecond(totalRecords * TimeUnit.SECONDS.toNanos(1) / elapsedNanos)
+                .users(responses)
+                .build();
+    }
+
+    private BookDto toValidBook(BookRequest bookRequest) {
+        BookDto book = bookMapper.bookRequestToBookDto(bookRequest);
+        if (!BookValidator.isValidBook(book)) {
+            throw new NotValidException("Not valid data: " + book);
+        }
+        return book;
+    }
+}
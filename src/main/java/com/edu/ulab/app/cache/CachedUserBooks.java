@@ -0,0 +1,30 @@
+package com.edu.ulab.app.cache;
+
+import com.edu.ulab.app.web.response.UserBookResponse;
+
+import java.util.Arrays;
+
+/**
+ * Компактная запись кэша: идентификаторы книг хранятся примитивным массивом.
+ */
+public record CachedUserBooks(long userId, Long version, long[] bookIds) {
+
+    public static CachedUserBooks of(UserBookResponse response) {
+        return new CachedUserBooks(response.getUserId(), response.getVersion(), response.getBooksIdList()
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray());
+    }
+
+    public UserBookResponse toResponse() {
+        return UserBookResponse.builder()
+                .userId(userId)
+                .booksIdList(Arrays.stream(bookIds).boxed().toList())
+                .version(version)
+                .build();
+    }
+
+    public int weight() {
+        return 1 + bookIds.length;
+    }
+}
@@ -0,0 +1,72 @@
+package com.edu.ulab.app.cache;
+
+import com.edu.ulab.app.config.IdempotencyProperties;
+import com.edu.ulab.app.exception.IdempotencyKeyReusedException;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Ответы на запросы создания по значению заголовка {@code rqid}.
+ * <p>
+ * Первый запрос выполняется, повтор с тем же {@code rqid} получает его ответ, а пока
+ * первый ещё выполняется — ждёт его завершения. Повтор {@code rqid} с другим телом запроса
+ * отклоняется {@link IdempotencyKeyReusedException}. Неуспешное выполнение не запоминается,
+ * чтобы повтор после ошибки выполнился заново. Метрики публикуются под именем
+ * кэша {@value #CACHE_NAME}.
+ */
+@Slf4j
+@Component
+public class IdempotentResponseCache {
+    public static final String CACHE_NAME = "idempotentResponses";
+
+    private final Cache<String, Execution> cache;
+
+    public IdempotentResponseCache(IdempotencyProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public CompletableFuture<UserBookResponse> execute(String requestId, String requestHash,
+                                                       Supplier<CompletableFuture<UserBookResponse>> action) {
+        Execution execution = new Execution(requestHash, new CompletableFuture<>());
+        Execution previous = cache.get(requestId, key -> execution);
+        if (previous != execution) {
+            if (!previous.requestHash().equals(requestHash)) {
+                return CompletableFuture.failedFuture(new IdempotencyKeyReusedException(requestId));
+            }
+            log.info("Request {} is repeated, returning the first response", requestId);
+            return previous.response();
+        }
+
+        try {
+            action.get().whenComplete((response, e) -> {
+                if (e != null) {
+                    cache.asMap().remove(requestId, execution);
+                    execution.response().completeExceptionally(e);
+                } else {
+                    execution.response().complete(response);
+                }
+            });
+        } catch (RuntimeException e) {
+            cache.asMap().remove(requestId, execution);
+            execution.response().completeExceptionally(e);
+            throw e;
+        }
+        return execution.response();
+    }
+
+    private record Execution(String requestHash, CompletableFuture<UserBookResponse> response) {
+    }
+}
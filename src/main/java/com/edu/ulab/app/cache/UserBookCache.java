@@ -0,0 +1,64 @@
+package com.edu.ulab.app.cache;
+
+import com.edu.ulab.app.config.UserBookCacheProperties;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.function.LongFunction;
+
+/**
+ * Read-through кэш ответов {@code getUserWithBooks}.
+ * <p>
+ * Вытеснение W-TinyLFU по суммарному весу записей, метрики попаданий, промахов
+ * и вытеснений публикуются под именем кэша {@value #CACHE_NAME}.
+ */
+@Slf4j
+@Component
+public class UserBookCache {
+    public static final String CACHE_NAME = "userBooks";
+
+    private final Cache<Long, CachedUserBooks> cache;
+
+    public UserBookCache(UserBookCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxWeight())
+                .weigher((Long userId, CachedUserBooks entry) -> entry.weight())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public UserBookResponse get(long userId, LongFunction<UserBookResponse> loader) {
+        return cache.get(userId, id -> CachedUserBooks.of(loader.apply(id))).toResponse();
+    }
+
+    public Optional<UserBookResponse> getIfPresent(long userId) {
+        return Optional.ofNullable(cache.getIfPresent(userId)).map(CachedUserBooks::toResponse);
+    }
+
+    /**
+     * Удаляет запись сразу и, если идёт транзакция, повторно после её завершения,
+     * чтобы параллельное чтение не вернуло в кэш незафиксированное состояние.
+     */
+    public void invalidate(long userId) {
+        cache.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(userId);
+                }
+            });
+        }
+        log.debug("Invalidated cached user {}", userId);
+    }
+}
@@ -0,0 +1,73 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.logging.RequestBufferingAppender;
+import com.edu.ulab.app.logging.RequestBufferingAppender.RequestBuffer;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+
+@Configuration
+public class AsyncConfig {
+    public static final String DB_EXECUTOR = "dbExecutor";
+
+    // Потоков столько же, сколько соединений в пуле: лишние потоки только ждали бы соединение.
+    // Очередь ограничена, при переполнении задача отклоняется с TaskRejectedException
+    @Bean(DB_EXECUTOR)
+    public ThreadPoolTaskExecutor dbExecutor(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                             @Value("${app.async.db-executor.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("db-");
+        executor.setTaskDecorator(mdcTaskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // Собственный Executor отключает автоконфигурацию, поэтому пул по умолчанию для
+    // StreamingResponseBody и @Async объявлен явно, как это делает Spring Boot
+    @Lazy
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    // Задача выполняется с MDC и буфером диагностики запроса, из которого она запущена
+    private static TaskDecorator mdcTaskDecorator() {
+        return task -> {
+            Map<String, String> context = MDC.getCopyOfContextMap();
+            RequestBuffer buffer = RequestBufferingAppender.current();
+            return () -> {
+                Map<String, String> previous = MDC.getCopyOfContextMap();
+                if (context == null) {
+                    MDC.clear();
+                } else {
+                    MDC.setContextMap(context);
+                }
+                RequestBuffer previousBuffer = RequestBufferingAppender.attach(buffer);
+                try {
+                    task.run();
+                } finally {
+                    RequestBufferingAppender.attach(previousBuffer);
+                    if (previous == null) {
+                        MDC.clear();
+                    } else {
+                        MDC.setContextMap(previous);
+                    }
+                }
+            };
+        };
+    }
+}
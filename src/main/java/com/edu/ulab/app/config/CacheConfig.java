@@ -0,0 +1,11 @@
+package com.edu.ulab.app.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties({UserBookCacheProperties.class, IdempotencyProperties.class})
+public class CacheConfig {
+}
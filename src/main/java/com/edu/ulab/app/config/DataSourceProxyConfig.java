@@ -0,0 +1,58 @@
+package com.edu.ulab.app.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.function.SingletonSupplier;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Обёртка datasource-proxy над DataSource: каждое обращение к базе передаётся всем бинам
+ * {@link QueryExecutionListener} — метрикам запросов и {@code QueryGuard}, если он включён.
+ */
+@Configuration
+public class DataSourceProxyConfig {
+
+    // Обёртка ставится на уже созданный DataSource, слушатели получаются при первом запросе,
+    // чтобы не создавать MeterRegistry раньше остальных бинов
+    @Bean
+    public static BeanPostProcessor dataSourceProxyPostProcessor(ObjectProvider<QueryExecutionListener> listeners) {
+        Supplier<List<QueryExecutionListener>> delegates = SingletonSupplier.of(
+                () -> listeners.orderedStream().toList());
+        QueryExecutionListener listener = new QueryExecutionListener() {
+            @Override
+            public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                for (QueryExecutionListener delegate : delegates.get()) {
+                    delegate.beforeQuery(execInfo, queryInfoList);
+                }
+            }
+
+            @Override
+            public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                for (QueryExecutionListener delegate : delegates.get()) {
+                    delegate.afterQuery(execInfo, queryInfoList);
+                }
+            }
+        };
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .listener(listener)
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,113 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.repository.BookRepository;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.persistence.EntityManagerFactory;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Кеш второго уровня Hibernate на Caffeine через JCache.
+ * <p>
+ * Включается только для backend jpa: JDBC-сервисы пишут в те же таблицы мимо Hibernate,
+ * и закешированные сущности устаревали бы. Регионы создаются заранее с размером и временем
+ * жизни из {@link HibernateCacheProperties}, регион с метками изменения таблиц не ограничен,
+ * иначе кеш запросов отдавал бы устаревшие результаты. Регион, не созданный здесь, —
+ * ошибка при старте. Доля попаданий по регионам публикуется в {@value #HIT_RATIO_GAUGE_NAME},
+ * число обращений с тегом {@code result} — в метриках {@code hibernate.second.level.cache.*}.
+ */
+@Configuration
+@EnableConfigurationProperties(HibernateCacheProperties.class)
+@ConditionalOnExpression("${app.hibernate-cache.enabled:true} and '${app.storage.backend:jdbc}' == 'jpa'")
+public class HibernateCacheConfig {
+    public static final String HIT_RATIO_GAUGE_NAME = "ulab.hibernate.cache.hit-ratio";
+
+    static final List<String> REGIONS = List.of(
+            Person.CACHE_REGION,
+            Person.BOOKS_CACHE_REGION,
+            Book.CACHE_REGION,
+            BookRepository.BOOKS_BY_PERSON_REGION);
+
+    // Свой CacheManager на контекст: у CacheManager по умолчанию регионы общие для всех
+    // контекстов в JVM, и второй контекст не смог бы их создать
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(HibernateCacheProperties properties) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-cache:" + UUID.randomUUID()), getClass().getClassLoader());
+        for (String region : REGIONS) {
+            HibernateCacheProperties.Region overrides = properties.getRegions()
+                    .getOrDefault(region, new HibernateCacheProperties.Region());
+            createRegion(cacheManager, region,
+                    OptionalLong.of(overrides.getMaxSize() != null ? overrides.getMaxSize() : properties.getMaxSize()),
+                    OptionalLong.of((overrides.getTtl() != null ? overrides.getTtl() : properties.getTtl()).toNanos()));
+        }
+        createRegion(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                OptionalLong.of(properties.getMaxSize()), OptionalLong.of(properties.getTtl().toNanos()));
+        createRegion(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                OptionalLong.empty(), OptionalLong.empty());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return hibernateProperties -> {
+            hibernateProperties.put("hibernate.cache.use_second_level_cache", true);
+            hibernateProperties.put("hibernate.cache.use_query_cache", true);
+            hibernateProperties.put("hibernate.cache.region.factory_class", "jcache");
+            hibernateProperties.put("hibernate.javax.cache.cache_manager", hibernateCacheManager);
+            hibernateProperties.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+            // коллекция книг отображается со стороны Book (mappedBy), без этого
+            // добавление или удаление книги не сбрасывало бы кеш Person.bookSet
+            hibernateProperties.put("hibernate.cache.auto_evict_collection_cache", true);
+        };
+    }
+
+    @Bean
+    public MeterBinder hibernateCacheHitRatio(EntityManagerFactory entityManagerFactory) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return registry -> {
+            for (String region : REGIONS) {
+                Gauge.builder(HIT_RATIO_GAUGE_NAME, statistics, stats -> hitRatio(stats.getCacheRegionStatistics(region)))
+                        .tag("region", region)
+                        .register(registry);
+            }
+        };
+    }
+
+    private static void createRegion(CacheManager cacheManager, String region,
+                                     OptionalLong maxSize, OptionalLong ttlNanos) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maxSize);
+        configuration.setExpireAfterWrite(ttlNanos);
+        // Hibernate сам хранит в регионе разобранное состояние, копировать его при чтении незачем
+        configuration.setStoreByValue(false);
+        cacheManager.createCache(region, configuration);
+    }
+
+    private static double hitRatio(CacheRegionStatistics regionStatistics) {
+        if (regionStatistics == null) {
+            return Double.NaN;
+        }
+        long requests = regionStatistics.getHitCount() + regionStatistics.getMissCount();
+        return requests == 0 ? Double.NaN : (double) regionStatistics.getHitCount() / requests;
+    }
+}
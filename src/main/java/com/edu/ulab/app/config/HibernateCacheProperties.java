@@ -0,0 +1,38 @@
+package com.edu.ulab.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки кеша второго уровня Hibernate для backend jpa.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.hibernate-cache")
+public class HibernateCacheProperties {
+    /**
+     * Кешировать сущности, коллекцию книг пользователя и список книг пользователя.
+     */
+    private boolean enabled = true;
+    /**
+     * Число записей в регионе, если для него не задано своё.
+     */
+    private long maxSize = 10_000;
+    /**
+     * Время жизни записи после записи в регион, если для него не задано своё.
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+    /**
+     * Размер и время жизни отдельных регионов: person, book, [person.books], books-by-person.
+     */
+    private Map<String, Region> regions = new HashMap<>();
+
+    @Data
+    public static class Region {
+        private Long maxSize;
+        private Duration ttl;
+    }
+}
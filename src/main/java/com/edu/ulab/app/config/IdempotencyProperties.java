@@ -0,0 +1,27 @@
+package com.edu.ulab.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки повторного воспроизведения ответов по заголовку {@code rqid}.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.idempotency")
+public class IdempotencyProperties {
+    /**
+     * Число ответов, хранимых в памяти.
+     */
+    private long maxSize = 100_000;
+    /**
+     * Время, в течение которого повтор запроса возвращает первый ответ.
+     */
+    private Duration ttl = Duration.ofHours(1);
+    /**
+     * Хранить ответы также в таблице {@code idempotency_key}, чтобы повтор узнавался
+     * после перезапуска и на другом экземпляре приложения.
+     */
+    private boolean persistent = false;
+}
@@ -0,0 +1,10 @@
+package com.edu.ulab.app.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+// QueryGuard получает обращения к базе через DataSourceProxyConfig
+@Configuration
+@EnableConfigurationProperties(QueryGuardProperties.class)
+public class QueryGuardConfig {
+}
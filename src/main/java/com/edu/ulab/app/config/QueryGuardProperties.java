@@ -0,0 +1,62 @@
+package com.edu.ulab.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки учёта обращений к базе по HTTP-запросам.
+ * <p>
+ * Запросы относятся к HTTP-запросу по заголовку {@code rqid}, запросы без него
+ * попадают только в гистограмму времени выполнения.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.query-guard")
+public class QueryGuardProperties {
+    /**
+     * Оборачивать DataSource и учитывать обращения к базе.
+     */
+    private boolean enabled = false;
+    /**
+     * Что делать, когда HTTP-запрос превысил бюджет или повторяет один SQL-запрос.
+     */
+    private Action action = Action.LOG;
+    /**
+     * Число обращений к базе за HTTP-запрос, 0 — без ограничения.
+     */
+    private int defaultBudget = 50;
+    /**
+     * Бюджеты точек входа вида {@code "GET /api/v1/user/get/{userId}"} вместо defaultBudget.
+     */
+    private Map<String, Integer> budgets = new HashMap<>();
+    /**
+     * Сколько раз один SQL-запрос выполняется за HTTP-запрос, прежде чем считаться N+1.
+     */
+    private int repeatThreshold = 10;
+    /**
+     * SQL-запросы дольше порога пишутся в лог.
+     */
+    private Duration slowQueryThreshold = Duration.ofMillis(200);
+    /**
+     * Число различных форм SQL-запросов в гистограмме, остальные учитываются вместе.
+     */
+    private int maxStatementShapes = 500;
+
+    public enum Action {
+        /**
+         * Только увеличить счётчик.
+         */
+        METRIC,
+        /**
+         * Увеличить счётчик и записать предупреждение.
+         */
+        LOG,
+        /**
+         * Как LOG, и отклонять обращения к базе сверх бюджета.
+         */
+        FAIL
+    }
+}
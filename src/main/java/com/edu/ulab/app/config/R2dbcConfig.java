@@ -0,0 +1,66 @@
+package com.edu.ulab.app.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Источник данных и менеджеры транзакций для блокирующего и реактивного стека.
+ * <p>
+ * Автоконфигурация не создаёт {@code DataSource}, если в контексте есть R2DBC
+ * {@link ConnectionFactory}, а JPA — свой менеджер транзакций, если уже есть
+ * реактивный, поэтому они объявлены явно. {@code @Transactional} по умолчанию
+ * использует JPA, реактивные сервисы — {@link #R2DBC_TRANSACTIONAL_OPERATOR}.
+ */
+@Configuration
+public class R2dbcConfig {
+    public static final String R2DBC_TRANSACTIONAL_OPERATOR = "r2dbcTransactionalOperator";
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    @Bean
+    @Primary
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+                                                         ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+        customizers.ifAvailable(transactionCustomizers -> transactionCustomizers.customize(transactionManager));
+        return transactionManager;
+    }
+
+    @Bean
+    public ReactiveTransactionManager r2dbcTransactionManager(ConnectionFactory connectionFactory) {
+        return new R2dbcTransactionManager(connectionFactory);
+    }
+
+    @Bean(R2DBC_TRANSACTIONAL_OPERATOR)
+    public TransactionalOperator r2dbcTransactionalOperator(ReactiveTransactionManager r2dbcTransactionManager) {
+        return TransactionalOperator.create(r2dbcTransactionManager);
+    }
+}
@@ -0,0 +1,22 @@
+package com.edu.ulab.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки кэша пользователей с книгами.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.cache.user-books")
+public class UserBookCacheProperties {
+    /**
+     * Суммарный вес записей: одна запись весит 1 + число книг пользователя.
+     */
+    private long maxWeight = 1_000_000;
+    /**
+     * Время жизни записи после загрузки.
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+}
@@ -0,0 +1,43 @@
+package com.edu.ulab.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Настройки отложенной записи создаваемых пользователей через локальный журнал.
+ * <p>
+ * Пользователь, созданный в этом режиме, появляется в базе только после переноса
+ * журнала, до этого чтение по выданному идентификатору возвращает 404.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.write-behind")
+public class WriteBehindProperties {
+    /**
+     * Подтверждать создание после записи в журнал, а не после фиксации в базе.
+     */
+    private boolean enabled = false;
+    /**
+     * Каталог сегментов журнала и файла checkpoint, журнал ошибок — в подкаталоге {@code dead-letter}.
+     */
+    private Path directory = Path.of("write-behind");
+    /**
+     * Размер одного сегмента журнала.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    /**
+     * Сколько сегментов может ждать переноса в базу, дальше запросы отклоняются.
+     */
+    private int maxSegments = 16;
+    /**
+     * Пауза между проходами переноса журнала в базу.
+     */
+    private Duration flushInterval = Duration.ofMillis(100);
+    /**
+     * Число пользователей в одной пачке при переносе в базу.
+     */
+    private int flushBatchSize = 1000;
+}
@@ -0,0 +1,227 @@
+package com.edu.ulab.app.datasource;
+
+import com.edu.ulab.app.config.QueryGuardProperties;
+import com.edu.ulab.app.config.QueryGuardProperties.Action;
+import com.edu.ulab.app.exception.QueryBudgetExceededException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.MDC;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Учёт обращений к базе по HTTP-запросам.
+ * <p>
+ * Обращения приходят от обёртки DataSource ({@code DataSourceProxyConfig}) и относятся к HTTP-запросу,
+ * открытому {@link #begin}, по выданному сервером ключу из MDC ({@value #MDC_KEY}), который переносится
+ * и в потоки dbExecutor. Заголовок {@code rqid} задаёт клиент, поэтому для учёта он не используется.
+ * Пакетное выполнение считается одним обращением. Превышение бюджета точки входа и повтор
+ * одного SQL-запроса {@code repeatThreshold} раз (N+1) обрабатываются согласно
+ * {@link QueryGuardProperties#getAction()}. Время выполнения пишется в гистограмму
+ * {@value #STATEMENT_TIMER_NAME} по форме запроса, см. {@link #shapeOf(String)}.
+ * <p>
+ * На обращение приходятся чтение MDC, поиск в двух хеш-таблицах и запись в таймер,
+ * форма запроса вычисляется один раз на текст SQL.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.query-guard", name = "enabled", havingValue = "true")
+public class QueryGuard implements QueryExecutionListener {
+    public static final String STATEMENT_TIMER_NAME = "ulab.query-guard.statement";
+    public static final String STATEMENTS_PER_REQUEST_NAME = "ulab.query-guard.statements-per-request";
+    public static final String BUDGET_EXCEEDED_COUNTER_NAME = "ulab.query-guard.budget-exceeded";
+    public static final String REPEATED_COUNTER_NAME = "ulab.query-guard.repeated";
+    public static final String MDC_KEY = "queryGuardKey";
+
+    static final String OTHER_SHAPE = "other";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(?: ?, ?\\?)+");
+    private static final Pattern ROW_LIST = Pattern.compile("\\(\\?\\.\\.\\.\\)(?: ?, ?\\(\\?\\.\\.\\.\\))+");
+
+    private final QueryGuardProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RequestQueries> requests = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timersByShape = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> summariesByEndpoint = new ConcurrentHashMap<>();
+    private final AtomicLong nextKey = new AtomicLong();
+    private final Cache<String, Statement> statementsBySql;
+    private final long slowQueryThresholdMillis;
+
+    public QueryGuard(QueryGuardProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        // Текст SQL с литералами даёт много строк на одну форму, поэтому кеш больше числа форм
+        this.statementsBySql = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxStatementShapes() * 4L)
+                .build();
+        this.slowQueryThresholdMillis = properties.getSlowQueryThreshold().toMillis();
+    }
+
+    /**
+     * Начинает учёт обращений HTTP-запроса. Обращения находятся по {@link RequestQueries#key()},
+     * который вызывающий кладёт в MDC под {@value #MDC_KEY}.
+     *
+     * @param endpoint точка входа вида {@code "GET /api/v1/user/get/{userId}"}, вычисляется
+     *                 при первом обращении к базе
+     * @return учёт запроса для {@link #end}
+     */
+    public RequestQueries begin(Supplier<String> endpoint) {
+        RequestQueries queries = new RequestQueries(Long.toString(nextKey.incrementAndGet()), endpoint);
+        requests.put(queries.key, queries);
+        return queries;
+    }
+
+    public void end(RequestQueries queries) {
+        if (queries == null || !requests.remove(queries.key, queries)) {
+            return;
+        }
+        if (queries.statements.get() > 0) {
+            summariesByEndpoint.computeIfAbsent(queries.endpoint(), endpoint ->
+                            DistributionSummary.builder(STATEMENTS_PER_REQUEST_NAME)
+                                    .tag("endpoint", endpoint)
+                                    .publishPercentileHistogram()
+                                    .register(meterRegistry))
+                    .record(queries.statements.get());
+        }
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        RequestQueries queries = current();
+        if (queries == null) {
+            return;
+        }
+        int statements = queries.statements.incrementAndGet();
+        int budget = queries.budget();
+        if (budget <= 0 || statements <= budget) {
+            return;
+        }
+        if (queries.budgetExceeded.compareAndSet(false, true)) {
+            meterRegistry.counter(BUDGET_EXCEEDED_COUNTER_NAME, "endpoint", queries.endpoint()).increment();
+            if (properties.getAction() != Action.METRIC) {
+                log.warn("{} exceeded its budget of {} statements", queries.endpoint(), budget);
+            }
+        }
+        if (properties.getAction() == Action.FAIL) {
+            throw new QueryBudgetExceededException(queries.endpoint() + " exceeded its budget of "
+                    + budget + " statements");
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (queryInfoList.isEmpty()) {
+            return;
+        }
+        Statement statement = statementsBySql.get(queryInfoList.get(0).getQuery(), this::statementOf);
+        long elapsedMillis = execInfo.getElapsedTime();
+        statement.timer().record(elapsedMillis, TimeUnit.MILLISECONDS);
+        if (elapsedMillis >= slowQueryThresholdMillis) {
+            log.warn("Slow statement ({} ms): {}", elapsedMillis, statement.shape());
+        }
+
+        RequestQueries queries = current();
+        if (queries == null) {
+            return;
+        }
+        int repeats = queries.repeats.computeIfAbsent(statement.shape(), shape -> new AtomicInteger())
+                .incrementAndGet();
+        if (repeats == properties.getRepeatThreshold()) {
+            meterRegistry.counter(REPEATED_COUNTER_NAME, "endpoint", queries.endpoint()).increment();
+            if (properties.getAction() != Action.METRIC) {
+                log.warn("{} executed the same statement {} times, possible N+1: {}",
+                        queries.endpoint(), repeats, statement.shape());
+            }
+        }
+    }
+
+    /**
+     * Форма SQL-запроса: литералы заменены на {@code ?}, пробелы схлопнуты, списки
+     * параметров и строк {@code VALUES} свёрнуты в {@code ?...}, чтобы IN и пакетная
+     * вставка разной длины давали одну форму.
+     */
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("?...");
+        return ROW_LIST.matcher(shape).replaceAll("(?...)...");
+    }
+
+    private RequestQueries current() {
+        String key = MDC.get(MDC_KEY);
+        return key == null ? null : requests.get(key);
+    }
+
+    private Statement statementOf(String sql) {
+        String shape = shapeOf(sql);
+        Timer timer = timersByShape.get(shape);
+        if (timer == null) {
+            String tag = timersByShape.size() < properties.getMaxStatementShapes() ? shape : OTHER_SHAPE;
+            timer = timersByShape.computeIfAbsent(tag, statement -> Timer.builder(STATEMENT_TIMER_NAME)
+                    .tag("statement", statement)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        return new Statement(shape, timer);
+    }
+
+    private record Statement(String shape, Timer timer) {
+    }
+
+    /**
+     * Обращения к базе одного HTTP-запроса.
+     */
+    public final class RequestQueries {
+        private final String key;
+        private final Supplier<String> endpoint;
+        private final Supplier<Integer> budget;
+        private final AtomicInteger statements = new AtomicInteger();
+        private final AtomicBoolean budgetExceeded = new AtomicBoolean();
+        private final Map<String, AtomicInteger> repeats = new ConcurrentHashMap<>();
+
+        private RequestQueries(String key, Supplier<String> endpoint) {
+            this.key = key;
+            this.endpoint = SingletonSupplier.of(endpoint);
+            this.budget = SingletonSupplier.of(
+                    () -> properties.getBudgets().getOrDefault(endpoint(), properties.getDefaultBudget()));
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public String endpoint() {
+            return endpoint.get();
+        }
+
+        public int statements() {
+            return statements.get();
+        }
+
+        int budget() {
+            return budget.get();
+        }
+    }
+}
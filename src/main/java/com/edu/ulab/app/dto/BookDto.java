@@ -1,7 +1,9 @@
 package com.edu.ulab.app.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 @Data
@@ -13,4 +15,13 @@ public class BookDto {
     private String title;
     private String author;
     private long pageCount;
+    // Версия строки: прочитанная из базы или ожидаемая при обновлении, null - любая.
+    // Не входит в сравнение, выгрузку и журнал write-behind: вставленные строки начинают с 0
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private Long version;
+
+    public BookDto(Long id, Long userId, String title, String author, long pageCount) {
+        this(id, userId, title, author, pageCount, null);
+    }
 }
@@ -0,0 +1,22 @@
+package com.edu.ulab.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Частичное обновление книги пользователя {@code userId}: поля со значением {@code null}
+ * не изменяются, владелец книги не меняется.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookPatchDto {
+    private Long id;
+    private Long userId;
+    private String title;
+    private String author;
+    private Long pageCount;
+    // Ожидаемая версия, null - любая
+    private Long version;
+}
@@ -0,0 +1,16 @@
+package com.edu.ulab.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserBookIdsDto {
+    private Long userId;
+    private long version;
+    private List<Long> bookIds;
+}
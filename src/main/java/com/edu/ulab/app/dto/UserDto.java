@@ -1,7 +1,9 @@
 package com.edu.ulab.app.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 @Data
@@ -12,4 +14,13 @@ public class UserDto {
     private String fullName;
     private String title;
     private int age;
+    // Версия строки: прочитанная из базы или ожидаемая при обновлении, null - любая.
+    // Не входит в сравнение, выгрузку и журнал write-behind: вставленные строки начинают с 0
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private Long version;
+
+    public UserDto(Long id, String fullName, String title, int age) {
+        this(id, fullName, title, age, null);
+    }
 }
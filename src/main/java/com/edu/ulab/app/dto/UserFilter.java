@@ -0,0 +1,17 @@
+package com.edu.ulab.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Необязательные фильтры списка пользователей, {@code null} — фильтр не задан.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserFilter {
+    private String title;
+    private Integer minAge;
+    private Integer maxAge;
+}
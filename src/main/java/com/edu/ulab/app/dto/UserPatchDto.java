@@ -0,0 +1,20 @@
+package com.edu.ulab.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Частичное обновление пользователя: поля со значением {@code null} не изменяются.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserPatchDto {
+    private Long id;
+    private String fullName;
+    private String title;
+    private Integer age;
+    // Ожидаемая версия, null - любая
+    private Long version;
+}
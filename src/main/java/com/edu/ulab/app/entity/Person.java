@@ -2,6 +2,8 @@ package com.edu.ulab.app.entity;
 
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.Set;
@@ -12,7 +14,13 @@ import java.util.Set;
 @NoArgsConstructor
 @Entity
 @Table(name = "person", schema = "ulab_edu")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Person.CACHE_REGION)
 public class Person {
+    public static final String CACHE_REGION = "person";
+    public static final String BOOKS_CACHE_REGION = "person.books";
+    public static final String BOOKS_ROLE = "com.edu.ulab.app.entity.Person.bookSet";
+
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequence")
     @SequenceGenerator(name = "sequence", sequenceName = "sequence", allocationSize = 100)
@@ -27,9 +35,13 @@ public class Person {
     @Column(nullable = false)
     private int age;
 
+    @Version
+    private long version;
+
 //    @Column(nullable = false)
 //    private int count;
 
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = BOOKS_CACHE_REGION)
     @OneToMany(mappedBy = "person", cascade = {
             CascadeType.MERGE,
             CascadeType.PERSIST,
@@ -0,0 +1,24 @@
+package com.edu.ulab.app.entity.r2dbc;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * Строка таблицы {@code ulab_edu.book} для R2DBC.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("ulab_edu.book")
+public class BookRow {
+    @Id
+    private Long id;
+    private Long personId;
+    private String title;
+    private String author;
+    private long pageCount;
+    private long version;
+}
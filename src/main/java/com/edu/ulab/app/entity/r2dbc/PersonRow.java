@@ -0,0 +1,23 @@
+package com.edu.ulab.app.entity.r2dbc;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * Строка таблицы {@code ulab_edu.person} для R2DBC.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("ulab_edu.person")
+public class PersonRow {
+    @Id
+    private Long id;
+    private String fullName;
+    private String title;
+    private int age;
+    private long version;
+}
@@ -0,0 +1,7 @@
+package com.edu.ulab.app.exception;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String requestId) {
+        super("Request id " + requestId + " was already used with a different request body");
+    }
+}
@@ -0,0 +1,7 @@
+package com.edu.ulab.app.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,123 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.cache.IdempotentResponseCache;
+import com.edu.ulab.app.cache.RequestHash;
+import com.edu.ulab.app.cache.UserBookCache;
+import com.edu.ulab.app.config.AsyncConfig;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.web.request.BookPatchRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserPatchRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserBooksBatchResponse;
+import com.edu.ulab.app.web.response.UserPageResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * Асинхронный вариант {@link UserDataFacade}: работа с базой выполняется на
+ * ограниченном пуле {@link AsyncConfig#DB_EXECUTOR}, поток сервлета освобождается сразу.
+ * <p>
+ * Независимые запросы чтения выполняются параллельно. Пользователь с книгами по одному
+ * ID читается одним запросом с LEFT JOIN, поэтому делить его на два нет смысла.
+ */
+@Slf4j
+@Component
+public class AsyncUserDataFacade {
+    private final UserDataFacade userDataFacade;
+    private final UserBookCache userBookCache;
+    private final IdempotentResponseCache idempotentResponseCache;
+    private final ObjectMapper objectMapper;
+    private final Executor dbExecutor;
+
+    public AsyncUserDataFacade(UserDataFacade userDataFacade,
+                               UserBookCache userBookCache,
+                               IdempotentResponseCache idempotentResponseCache,
+                               ObjectMapper objectMapper,
+                               @Qualifier(AsyncConfig.DB_EXECUTOR) Executor dbExecutor) {
+        this.userDataFacade = userDataFacade;
+        this.userBookCache = userBookCache;
+        this.idempotentResponseCache = idempotentResponseCache;
+        this.objectMapper = objectMapper;
+        this.dbExecutor = dbExecutor;
+    }
+
+    public CompletableFuture<UserBookResponse> createUserWithBooks(UserBookRequest userBookRequest) {
+        return CompletableFuture.supplyAsync(() -> userDataFacade.createUserWithBooks(userBookRequest), dbExecutor);
+    }
+
+    // Повтор запроса с тем же rqid получает первый ответ, не занимая пул и соединение
+    public CompletableFuture<UserBookResponse> createUserWithBooks(UserBookRequest userBookRequest, String requestId) {
+        if (requestId == null || requestId.isEmpty()) {
+            return createUserWithBooks(userBookRequest);
+        }
+        String requestHash = RequestHash.of(objectMapper, userBookRequest);
+        return idempotentResponseCache.execute(requestId, requestHash, () -> CompletableFuture.supplyAsync(
+                () -> userDataFacade.createUserWithBooks(userBookRequest, requestId, requestHash), dbExecutor));
+    }
+
+    public CompletableFuture<UserBookResponse> updateUserWithBooks(UserBookRequest userBookRequest, Long userId,
+                                                                   Long expectedVersion) {
+        return CompletableFuture.supplyAsync(
+                () -> userDataFacade.updateUserWithBooks(userBookRequest, userId, expectedVersion), dbExecutor);
+    }
+
+    public CompletableFuture<Long> patchUser(UserPatchRequest userPatchRequest, Long userId, Long expectedVersion) {
+        return CompletableFuture.supplyAsync(
+                () -> userDataFacade.patchUser(userPatchRequest, userId, expectedVersion), dbExecutor);
+    }
+
+    public CompletableFuture<Long> patchBook(BookPatchRequest bookPatchRequest, Long userId, Long bookId,
+                                             Long expectedVersion) {
+        return CompletableFuture.supplyAsync(
+                () -> userDataFacade.patchBook(bookPatchRequest, userId, bookId, expectedVersion), dbExecutor);
+    }
+
+    public CompletableFuture<UserBookResponse> getUserWithBooks(Long userId) {
+        if (userId != null) {
+            UserBookResponse cached = userBookCache.getIfPresent(userId).orElse(null);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> userDataFacade.getUserWithBooks(userId), dbExecutor);
+    }
+
+    // Пользователи и их книги запрашиваются одновременно: книги отсутствующих
+    // пользователей в ответ не попадут
+    public CompletableFuture<UserBooksBatchResponse> getUsersWithBooks(List<Long> userIds) {
+        log.info("Got async get {} users with books request", userIds.size());
+        List<Long> distinctIds = UserDataFacade.distinctUserIds(userIds);
+
+        CompletableFuture<Set<Long>> foundIds = CompletableFuture.supplyAsync(
+                () -> userDataFacade.getUserService().getUsersByIds(distinctIds)
+                        .stream()
+                        .map(UserDto::getId)
+                        .collect(Collectors.toSet()),
+                dbExecutor);
+        CompletableFuture<Map<Long, List<Long>>> bookIdsByUserId = CompletableFuture.supplyAsync(
+                () -> userDataFacade.getBookService().getBookIdsByUserIds(distinctIds),
+                dbExecutor);
+
+        return foundIds.thenCombine(bookIdsByUserId,
+                (found, bookIds) -> UserDataFacade.toBatchResponse(distinctIds, found, bookIds));
+    }
+
+    public CompletableFuture<UserPageResponse> getUsersPage(UserFilter filter, String cursor, int limit) {
+        return CompletableFuture.supplyAsync(() -> userDataFacade.getUsersPage(filter, cursor, limit), dbExecutor);
+    }
+
+    public CompletableFuture<Void> deleteUserWithBooks(Long userId) {
+        return CompletableFuture.runAsync(() -> userDataFacade.deleteUserWithBooks(userId), dbExecutor);
+    }
+}
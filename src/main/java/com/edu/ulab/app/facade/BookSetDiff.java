@@ -0,0 +1,81 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.dto.BookDto;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Сопоставление книг из запроса с сохранёнными книгами пользователя.
+ * <p>
+ * Книги, совпадающие по всем полям, остаются как есть; книги с тем же названием
+ * обновляются; книги без пары вставляются; оставшиеся сохранённые книги удаляются.
+ * Совпавшим и обновляемым книгам из запроса присваивается идентификатор сохранённой книги,
+ * обновляемым — и её версия, с которой сравнивается версия строки при обновлении.
+ */
+@Getter
+final class BookSetDiff {
+    private final List<BookDto> booksToInsert = new ArrayList<>();
+    private final List<BookDto> booksToUpdate = new ArrayList<>();
+    private final List<Long> bookIdsToDelete = new ArrayList<>();
+
+    private BookSetDiff() {
+    }
+
+    static BookSetDiff of(List<BookDto> storedBooks, List<BookDto> requestedBooks) {
+        BookSetDiff diff = new BookSetDiff();
+
+        Map<String, Deque<BookDto>> storedByTitle = new HashMap<>();
+        storedBooks.forEach(storedBook -> storedByTitle
+                .computeIfAbsent(storedBook.getTitle(), title -> new ArrayDeque<>())
+                .add(storedBook));
+
+        List<BookDto> changedBooks = new ArrayList<>();
+        for (BookDto requestedBook : requestedBooks) {
+            BookDto sameBook = removeSame(storedByTitle.get(requestedBook.getTitle()), requestedBook);
+            if (sameBook != null) {
+                requestedBook.setId(sameBook.getId());
+            } else {
+                changedBooks.add(requestedBook);
+            }
+        }
+
+        for (BookDto requestedBook : changedBooks) {
+            Deque<BookDto> candidates = storedByTitle.get(requestedBook.getTitle());
+            BookDto storedBook = candidates == null ? null : candidates.pollFirst();
+            if (storedBook != null) {
+                requestedBook.setId(storedBook.getId());
+                requestedBook.setVersion(storedBook.getVersion());
+                diff.booksToUpdate.add(requestedBook);
+            } else {
+                diff.booksToInsert.add(requestedBook);
+            }
+        }
+
+        storedByTitle.values().forEach(rest -> rest.forEach(storedBook -> diff.bookIdsToDelete.add(storedBook.getId())));
+        return diff;
+    }
+
+    private static BookDto removeSame(Deque<BookDto> candidates, BookDto requestedBook) {
+        if (candidates == null) {
+            return null;
+        }
+        Iterator<BookDto> iterator = candidates.iterator();
+        while (iterator.hasNext()) {
+            BookDto candidate = iterator.next();
+            if (Objects.equals(candidate.getAuthor(), requestedBook.getAuthor())
+                    && candidate.getPageCount() == requestedBook.getPageCount()) {
+                iterator.remove();
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
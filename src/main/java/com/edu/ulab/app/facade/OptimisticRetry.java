@@ -0,0 +1,106 @@
+package com.edu.ulab.app.facade;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Повтор операции при конфликте версий.
+ * <p>
+ * Операция, обычно транзакция целиком, выполняется до {@code maxAttempts} раз. Перед n-м повтором
+ * поток ждёт случайное время от нуля до {@code min(maxBackoff, backoff * 2^(n-1))}, чтобы
+ * столкнувшиеся запросы не повторялись одновременно. Повторы и исчерпанные попытки считаются
+ * счётчиком {@value #CONFLICTS_COUNTER_NAME} с тегом {@code outcome}.
+ */
+@Slf4j
+@Component
+public class OptimisticRetry {
+    public static final String CONFLICTS_COUNTER_NAME = "ulab.optimistic-retry.conflicts";
+
+    private final int maxAttempts;
+    private final long backoffNanos;
+    private final long maxBackoffNanos;
+    private final Counter retried;
+    private final Counter exhausted;
+
+    public OptimisticRetry(@Value("${app.optimistic-retry.max-attempts:3}") int maxAttempts,
+                           @Value("${app.optimistic-retry.backoff:10ms}") Duration backoff,
+                           @Value("${app.optimistic-retry.max-backoff:200ms}") Duration maxBackoff,
+                           MeterRegistry meterRegistry) {
+        this.maxAttempts = maxAttempts;
+        this.backoffNanos = backoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.retried = meterRegistry.counter(CONFLICTS_COUNTER_NAME, "outcome", "retried");
+        this.exhausted = meterRegistry.counter(CONFLICTS_COUNTER_NAME, "outcome", "exhausted");
+    }
+
+    /**
+     * @return результат первой попытки без конфликта
+     * @throws OptimisticLockingFailureException конфликт последней попытки
+     */
+    public <T> T execute(Supplier<T> operation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw e;
+                }
+                retried.increment();
+                long delayNanos = delayNanos(attempt);
+                log.debug("Conflict on attempt {}, retrying in {} us: {}", attempt,
+                        TimeUnit.NANOSECONDS.toMicros(delayNanos), e.getMessage());
+                sleep(delayNanos, e);
+            }
+        }
+    }
+
+    /**
+     * Неблокирующий вариант {@link #execute(Supplier)}: при конфликте на {@code operation}
+     * подписываются заново, ожидание перед повтором не занимает поток.
+     *
+     * @throws OptimisticLockingFailureException конфликт последней попытки, сигналом ошибки
+     */
+    public <T> Mono<T> execute(Mono<T> operation) {
+        return operation.retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+            if (!(signal.failure() instanceof OptimisticLockingFailureException conflict)) {
+                return Mono.error(signal.failure());
+            }
+            int attempt = (int) signal.totalRetries() + 1;
+            if (attempt >= maxAttempts) {
+                exhausted.increment();
+                return Mono.error(conflict);
+            }
+            retried.increment();
+            long delayNanos = delayNanos(attempt);
+            log.debug("Conflict on attempt {}, retrying in {} us: {}", attempt,
+                    TimeUnit.NANOSECONDS.toMicros(delayNanos), conflict.getMessage());
+            return Mono.delay(Duration.ofNanos(delayNanos));
+        })));
+    }
+
+    long delayNanos(int attempt) {
+        long bound = (long) Math.min(maxBackoffNanos, backoffNanos * Math.pow(2, attempt - 1));
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    private static void sleep(long nanos, OptimisticLockingFailureException conflict) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.exception.NotValidException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор keyset-пагинации: ID последнего пользователя страницы в Base64.
+ */
+final class PageCursor {
+    private static final String PREFIX = "u:";
+
+    private PageCursor() {
+    }
+
+    static String encode(long lastId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new NotValidException("Not valid cursor: " + cursor);
+            }
+            return Long.parseLong(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new NotValidException("Not valid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.cache.UserBookCache;
+import com.edu.ulab.app.config.R2dbcConfig;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.service.ReactiveBookService;
+import com.edu.ulab.app.service.ReactiveUserService;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserBooksBatchResponse;
+import com.edu.ulab.app.web.response.UserPageResponse;
+import com.edu.ulab.app.web.response.UserResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Неблокирующий вариант {@link UserDataFacade} поверх R2DBC.
+ * <p>
+ * Работает с теми же таблицами, поэтому изменения сбрасывают общий
+ * {@link UserBookCache}, которым пользуется блокирующий API, и, если есть
+ * {@link EntityManagerFactory}, регионы кеша второго уровня Hibernate.
+ */
+@Slf4j
+@Component
+public class ReactiveUserDataFacade {
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ReactiveUserService userService;
+    private final ReactiveBookService bookService;
+    private final UserMapper userMapper;
+    private final BookMapper bookMapper;
+    private final UserBookCache userBookCache;
+    private final TransactionalOperator transactionalOperator;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private final OptimisticRetry optimisticRetry;
+
+    public ReactiveUserDataFacade(ReactiveUserService userService,
+                                  ReactiveBookService bookService,
+                                  UserMapper userMapper,
+                                  BookMapper bookMapper,
+                                  UserBookCache userBookCache,
+                                  @Qualifier(R2dbcConfig.R2DBC_TRANSACTIONAL_OPERATOR)
+                                  TransactionalOperator transactionalOperator,
+                                  ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                                  OptimisticRetry optimisticRetry) {
+        this.userService = userService;
+        this.bookService = bookService;
+        this.userMapper = userMapper;
+        this.bookMapper = bookMapper;
+        this.userBookCache = userBookCache;
+        this.transactionalOperator = transactionalOperator;
+        this.entityManagerFactory = entityManagerFactory;
+        this.optimisticRetry = optimisticRetry;
+    }
+
+    public Mono<UserBookResponse> createUserWithBooks(UserBookRequest userBookRequest) {
+        log.debug("Got reactive user book create request: {}", userBookRequest);
+        UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
+
+        return userService.createUser(userDto)
+                .flatMap(createdUser -> bookService.createBooks(toBookDtos(userBookRequest, createdUser.getId()))
+                        .map(BookDto::getId)
+                        .collectList()
+                        .map(bookIdList -> UserBookResponse.builder()
+                                .userId(createdUser.getId())
+                                .booksIdList(bookIdList)
+                                .version(createdUser.getVersion())
+                                .build()))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<UserBookResponse> updateUserWithBooks(UserBookRequest userBookRequest, Long userId) {
+        return updateUserWithBooks(userBookRequest, userId, null);
+    }
+
+    /**
+     * Обновление с оптимистической блокировкой по версии пользователя, как
+     * {@link UserDataFacade#updateUserWithBooks(UserBookRequest, Long, Long)}.
+     *
+     * @param expectedVersion версия из {@code If-Match} или {@code null}
+     * @throws PreconditionFailedException если версия пользователя не равна {@code expectedVersion}
+     */
+    public Mono<UserBookResponse> updateUserWithBooks(UserBookRequest userBookRequest, Long userId, Long expectedVersion) {
+        // каждая попытка заново строит запрос и транзакцию
+        Mono<UserBookResponse> update = Mono.defer(
+                () -> updateUserWithBooksInTransaction(userBookRequest, userId, expectedVersion));
+        Mono<UserBookResponse> conditionalUpdate = expectedVersion == null
+                ? optimisticRetry.execute(update)
+                : update.onErrorMap(OptimisticLockingFailureException.class,
+                        e -> new PreconditionFailedException("User with ID=" + userId
+                                + " was modified, expected version " + expectedVersion));
+        return conditionalUpdate.doFinally(signal -> invalidate(userId));
+    }
+
+    private Mono<UserBookResponse> updateUserWithBooksInTransaction(UserBookRequest userBookRequest, Long userId,
+                                                                    Long expectedVersion) {
+        log.debug("Got reactive user book update request: {}", userBookRequest);
+        UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
+        userDto.setId(userId);
+        userDto.setVersion(expectedVersion);
+
+        Mono<List<Long>> bookIdList;
+        if (userBookRequest.getBookRequests() != null) {
+            List<BookDto> bookDtoList = toBookDtos(userBookRequest, userId);
+            bookIdList = bookService.getBooksByUserId(userId)
+                    .collectList()
+                    .flatMap(storedBooks -> {
+                        BookSetDiff diff = BookSetDiff.of(storedBooks, bookDtoList);
+                        return bookService.deleteBooksByIds(diff.getBookIdsToDelete())
+                                .thenMany(bookService.updateBooks(diff.getBooksToUpdate()))
+                                .thenMany(bookService.createBooks(diff.getBooksToInsert()))
+                                .collectList()
+                                .doOnNext(createdBooks -> UserDataFacade.assignCreatedIds(diff.getBooksToInsert(),
+                                        createdBooks))
+                                .then(Mono.fromSupplier(() -> bookDtoList.stream()
+                                        .map(BookDto::getId)
+                                        .toList()));
+                    });
+        } else {
+            bookIdList = bookService.getBookIdsByUserIds(List.of(userId))
+                    .map(bookIdsByUserId -> bookIdsByUserId.getOrDefault(userId, List.of()));
+        }
+
+        return userService.updateUser(userDto)
+                .flatMap(updatedUser -> bookIdList.map(bookIds -> UserBookResponse.builder()
+                        .userId(userId)
+                        .booksIdList(bookIds)
+                        .version(updatedUser.getVersion())
+                        .build()))
+                .as(transactionalOperator::transactional);
+    }
+
+    // Пользователь и его книги читаются одновременно
+    public Mono<UserBookResponse> getUserWithBooks(Long userId) {
+        return Mono.zip(userService.getUserById(userId),
+                        bookService.getBookIdsByUserIds(List.of(userId)))
+                .map(userAndBooks -> UserBookResponse.builder()
+                        .userId(userId)
+                        .booksIdList(userAndBooks.getT2().getOrDefault(userId, List.of()))
+                        .version(userAndBooks.getT1().getVersion())
+                        .build());
+    }
+
+    public Mono<UserBooksBatchResponse> getUsersWithBooks(List<Long> userIds) {
+        List<Long> distinctIds = UserDataFacade.distinctUserIds(userIds);
+
+        Mono<Set<Long>> foundIds = userService.getUsersByIds(distinctIds)
+                .map(UserDto::getId)
+                .collect(Collectors.toSet());
+        return Mono.zip(foundIds, bookService.getBookIdsByUserIds(distinctIds))
+                .map(found -> UserDataFacade.toBatchResponse(distinctIds, found.getT1(), found.getT2()));
+    }
+
+    public Mono<UserPageResponse> getUsersPage(UserFilter filter, String cursor, int limit) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        // Лишняя запись показывает, есть ли следующая страница
+        return userService.getUsersPage(filter, PageCursor.decode(cursor), pageSize + 1)
+                .collectList()
+                .flatMap(users -> {
+                    boolean hasNext = users.size() > pageSize;
+                    List<UserDto> page = hasNext ? users.subList(0, pageSize) : users;
+                    return bookService.getBookIdsByUserIds(page.stream().map(UserDto::getId).toList())
+                            .map(bookIdsByUserId -> UserPageResponse.builder()
+                                    .users(page.stream()
+                                            .map(user -> UserResponse.builder()
+                                                    .id(user.getId())
+                                                    .fullName(user.getFullName())
+                                                    .title(user.getTitle())
+                                                    .age(user.getAge())
+                                                    .booksIdList(bookIdsByUserId.getOrDefault(user.getId(), List.of()))
+                                                    .build())
+                                            .toList())
+                                    .nextCursor(hasNext ? PageCursor.encode(page.get(page.size() - 1).getId()) : null)
+                                    .build());
+                });
+    }
+
+    public Flux<UserWithBooksDto> exportUsersWithBooks() {
+        return userService.getAllUsersWithBooks();
+    }
+
+    public Mono<Void> deleteUserWithBooks(Long userId) {
+        return bookService.deleteBooksByUserId(userId)
+                .then(userService.deleteUserById(userId))
+                .as(transactionalOperator::transactional)
+                .doFinally(signal -> invalidate(userId));
+    }
+
+    // R2DBC пишет мимо Hibernate, поэтому при backend jpa его кеш второго уровня сбрасывается явно;
+    // книги пользователя заранее не известны, регион Book сбрасывается целиком
+    private void invalidate(Long userId) {
+        userBookCache.invalidate(userId);
+        EntityManagerFactory factory = entityManagerFactory.getIfAvailable();
+        if (factory == null) {
+            return;
+        }
+        Cache cache = factory.getCache().unwrap(Cache.class);
+        cache.evictEntityData(Person.class, userId);
+        cache.evictCollectionData(Person.BOOKS_ROLE, userId);
+        cache.evictEntityData(Book.class);
+        cache.evictQueryRegion(BookRepository.BOOKS_BY_PERSON_REGION);
+    }
+
+    private List<BookDto> toBookDtos(UserBookRequest userBookRequest, Long userId) {
+        if (userBookRequest.getBookRequests() == null) {
+            return List.of();
+        }
+        return userBookRequest.getBookRequests()
+                .stream()
+                .filter(Objects::nonNull)
+                .map(bookMapper::bookRequestToBookDto)
+                .peek(bookDto -> bookDto.setUserId(userId))
+                .toList();
+    }
+}
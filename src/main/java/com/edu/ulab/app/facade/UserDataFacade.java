@@ -1,125 +1,431 @@
 package com.edu.ulab.app.facade;
 
+import com.edu.ulab.app.bulk.UserBookImporter;
+import com.edu.ulab.app.cache.UserBookCache;
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.BookPatchDto;
+import com.edu.ulab.app.dto.UserBookIdsDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.dto.UserPatchDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.exception.IdempotencyKeyReusedException;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.exception.PreconditionFailedException;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.IdempotencyKeyRepository;
 
 import com.edu.ulab.app.service.BookService;
 import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.web.request.BookPatchRequest;
 import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserPatchRequest;
 import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserBooksBatchResponse;
+import com.edu.ulab.app.web.response.UserPageResponse;
+import com.edu.ulab.app.web.response.UserResponse;
+import com.edu.ulab.app.writebehind.UserBookWriteBehind;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 public class UserDataFacade {
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_MULTI_GET_SIZE = 1000;
+
+    @Getter(AccessLevel.PACKAGE)
     private final UserService userService;
+    @Getter(AccessLevel.PACKAGE)
     private final BookService bookService;
     private final UserMapper userMapper;
     private final BookMapper bookMapper;
+    private final UserBookCache userBookCache;
+    private final UserBookImporter userBookImporter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final UserBookWriteBehind writeBehind;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final OptimisticRetry optimisticRetry;
 
-    // Для смены реализации сервисов необходимо поменять
-    // jdbcUserService -> jpaUserService, jdbcBookService -> jpaBookService
+    // Реализация сервисов выбирается свойством app.storage.backend:
+    // jdbc -> jdbcUserService/jdbcBookService, jpa -> jpaUserService/jpaBookService,
+    // inMemory -> inMemoryUserService/inMemoryBookService
     @Autowired
-    public UserDataFacade(@Qualifier("jdbcUserService") UserService userService,
-                          @Qualifier("jdbcBookService") BookService bookService,
+    public UserDataFacade(Map<String, UserService> userServices,
+                          Map<String, BookService> bookServices,
+                          @Value("${app.storage.backend:jdbc}") String backend,
                           UserMapper userMapper,
-                          BookMapper bookMapper) {
-        this.userService = userService;
-        this.bookService = bookService;
+                          BookMapper bookMapper,
+                          UserBookCache userBookCache,
+                          UserBookImporter userBookImporter,
+                          ObjectMapper objectMapper,
+                          TransactionTemplate transactionTemplate,
+                          ObjectProvider<UserBookWriteBehind> writeBehind,
+                          ObjectProvider<IdempotencyKeyRepository> idempotencyKeyRepository,
+                          OptimisticRetry optimisticRetry) {
+        this.userService = resolveService(userServices, backend + "UserService");
+        this.bookService = resolveService(bookServices, backend + "BookService");
         this.userMapper = userMapper;
         this.bookMapper = bookMapper;
+        this.userBookCache = userBookCache;
+        this.userBookImporter = userBookImporter;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.writeBehind = writeBehind.getIfAvailable();
+        this.idempotencyKeyRepository = idempotencyKeyRepository.getIfAvailable();
+        this.optimisticRetry = optimisticRetry;
     }
 
+    private static <T> T resolveService(Map<String, T> services, String name) {
+        T service = services.get(name);
+        if (service == null) {
+            throw new IllegalStateException("Unknown service " + name + ", available: " + services.keySet());
+        }
+        return service;
+    }
+
+    // При app.write-behind.enabled запрос только пишется в журнал, транзакция в базе не открывается
     public UserBookResponse createUserWithBooks(UserBookRequest userBookRequest) {
-        log.info("Got user book create request: {}", userBookRequest);
+        if (writeBehind != null) {
+            log.debug("Got user book create request for write-behind: {}", userBookRequest);
+            return writeBehind.createUserWithBooks(userBookRequest);
+        }
+        return transactionTemplate.execute(status -> createUserWithBooksInTransaction(userBookRequest));
+    }
+
+    /**
+     * Создание с ключом идемпотентности {@code requestId}. При {@code app.idempotency.persistent}
+     * ответ сохраняется в той же транзакции вместе с {@code requestHash}, а повтор запроса
+     * возвращает сохранённый ответ.
+     *
+     * @throws IdempotencyKeyReusedException если ключ уже использован с другим телом запроса
+     */
+    public UserBookResponse createUserWithBooks(UserBookRequest userBookRequest, String requestId, String requestHash) {
+        if (idempotencyKeyRepository == null) {
+            return createUserWithBooks(userBookRequest);
+        }
+        UserBookResponse stored = idempotencyKeyRepository.findResponse(requestId, requestHash).orElse(null);
+        if (stored != null) {
+            log.info("Request {} was already completed, returning the stored response", requestId);
+            return stored;
+        }
+
+        if (writeBehind != null) {
+            UserBookResponse response = writeBehind.createUserWithBooks(userBookRequest);
+            idempotencyKeyRepository.save(requestId, requestHash, response);
+            return response;
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                UserBookResponse response = createUserWithBooksInTransaction(userBookRequest);
+                idempotencyKeyRepository.save(requestId, requestHash, response);
+                return response;
+            });
+        } catch (DuplicateKeyException e) {
+            // тот же запрос параллельно выполнил другой экземпляр, эта транзакция откачена
+            log.info("Request {} was completed concurrently, returning its response", requestId);
+            return idempotencyKeyRepository.findResponse(requestId, requestHash).orElseThrow(() -> e);
+        }
+    }
+
+    private UserBookResponse createUserWithBooksInTransaction(UserBookRequest userBookRequest) {
+        log.debug("Got user book create request: {}", userBookRequest);
         UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
-        log.info("Mapped user request: {}", userDto);
+        log.debug("Mapped user request: {}", userDto);
 
         UserDto createdUser = userService.createUser(userDto);
-        log.info("Created user: {}", createdUser);
+        log.debug("Created user: {}", createdUser);
 
-        List<Long> bookIdList = userBookRequest.getBookRequests()
+        List<BookDto> bookDtoList = userBookRequest.getBookRequests()
                 .stream()
                 .filter(Objects::nonNull)
                 .map(bookMapper::bookRequestToBookDto)
                 .peek(bookDto -> bookDto.setUserId(createdUser.getId()))
-                .peek(mappedBookDto -> log.info("mapped book: {}", mappedBookDto))
-                .map(bookService::createBook)
-                .peek(createdBook -> log.info("Created book: {}", createdBook))
+                .peek(mappedBookDto -> log.debug("mapped book: {}", mappedBookDto))
+                .toList();
+
+        List<Long> bookIdList = bookService.createBooks(bookDtoList)
+                .stream()
                 .map(BookDto::getId)
                 .toList();
-        log.info("Collected book ids: {}", bookIdList);
+        log.debug("Collected book ids: {}", bookIdList);
 
         return UserBookResponse.builder()
                 .userId(createdUser.getId())
                 .booksIdList(bookIdList)
+                .version(createdUser.getVersion())
                 .build();
     }
 
+    // createBooks не обязан заполнять переданные DTO, идентификаторы берутся из результата по позиции
+    static void assignCreatedIds(List<BookDto> booksToInsert, List<BookDto> createdBooks) {
+        for (int i = 0; i < booksToInsert.size(); i++) {
+            booksToInsert.get(i).setId(createdBooks.get(i).getId());
+        }
+    }
+
     public UserBookResponse updateUserWithBooks(UserBookRequest userBookRequest, Long userId) {
-        log.info("Got user book update request: {}", userBookRequest);
+        return updateUserWithBooks(userBookRequest, userId, null);
+    }
+
+    /**
+     * Обновление с оптимистической блокировкой по версии пользователя.
+     * <p>
+     * Без {@code expectedVersion} транзакция при конфликте с параллельным обновлением
+     * выполняется заново, см. {@link OptimisticRetry}. С ней конфликт означает, что клиент
+     * изменял устаревшее состояние, и повтор не поможет.
+     *
+     * @param expectedVersion версия из {@code If-Match} или {@code null}
+     * @throws PreconditionFailedException если версия пользователя не равна {@code expectedVersion}
+     */
+    public UserBookResponse updateUserWithBooks(UserBookRequest userBookRequest, Long userId, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return optimisticRetry.execute(() -> transactionTemplate.execute(
+                    status -> updateUserWithBooksInTransaction(userBookRequest, userId, null)));
+        }
+        try {
+            return transactionTemplate.execute(
+                    status -> updateUserWithBooksInTransaction(userBookRequest, userId, expectedVersion));
+        } catch (OptimisticLockingFailureException e) {
+            throw new PreconditionFailedException("User with ID=" + userId
+                    + " was modified, expected version " + expectedVersion);
+        }
+    }
+
+    private UserBookResponse updateUserWithBooksInTransaction(UserBookRequest userBookRequest, Long userId,
+                                                              Long expectedVersion) {
+        log.debug("Got user book update request: {}", userBookRequest);
         UserDto userDto = userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
         userDto.setId(userId);
-        log.info("Mapped user request: {}", userDto);
+        userDto.setVersion(expectedVersion);
+        log.debug("Mapped user request: {}", userDto);
 
         UserDto updatedUser = userService.updateUser(userDto);
-        log.info("Updated user: {}", updatedUser);
+        log.debug("Updated user: {}", updatedUser);
+        userBookCache.invalidate(userId);
 
         List<Long> bookIdList;
 
         if (userBookRequest.getBookRequests() != null) {
-            bookService.deleteBooksByUserId(userDto.getId());
-
-            bookIdList = userBookRequest.getBookRequests()
+            List<BookDto> bookDtoList = userBookRequest.getBookRequests()
                     .stream()
                     .filter(Objects::nonNull)
                     .map(bookMapper::bookRequestToBookDto)
                     .peek(bookDto -> bookDto.setUserId(userDto.getId()))
-                    .peek(mappedBookDto -> log.info("mapped book: {}", mappedBookDto))
-                    .map(bookService::createBook)
-                    .peek(createdBook -> log.info("Created book: {}", createdBook))
+                    .peek(mappedBookDto -> log.debug("mapped book: {}", mappedBookDto))
+                    .toList();
+
+            BookSetDiff diff = BookSetDiff.of(bookService.getBooksByUserId(userDto.getId()), bookDtoList);
+            if (!diff.getBookIdsToDelete().isEmpty()) {
+                bookService.deleteBooksByIds(diff.getBookIdsToDelete());
+            }
+            if (!diff.getBooksToUpdate().isEmpty()) {
+                bookService.updateBooks(diff.getBooksToUpdate());
+            }
+            if (!diff.getBooksToInsert().isEmpty()) {
+                assignCreatedIds(diff.getBooksToInsert(), bookService.createBooks(diff.getBooksToInsert()));
+            }
+            log.info("Reconciled books of user {}: inserted {}, updated {}, deleted {}", userId,
+                    diff.getBooksToInsert().size(), diff.getBooksToUpdate().size(), diff.getBookIdsToDelete().size());
+
+            bookIdList = bookDtoList.stream()
                     .map(BookDto::getId)
                     .toList();
-            log.info("Updated book ids: {}", bookIdList);
+        } else {
+            bookIdList = userService.getUserBookIds(userDto.getId()).getBookIds();
         }
 
-        bookIdList = bookService.getBooksByUserId(userDto.getId())
-                .stream()
-                .map(BookDto::getId)
-                .toList();
-
         return UserBookResponse.builder()
                 .userId(updatedUser.getId())
                 .booksIdList(bookIdList)
+                .version(updatedUser.getVersion())
                 .build();
     }
 
+    /**
+     * Частичное обновление пользователя одним {@code UPDATE}, книги не затрагиваются.
+     *
+     * @param expectedVersion версия из {@code If-Match} или {@code null}
+     * @return новая версия пользователя
+     * @throws PreconditionFailedException если версия пользователя не равна {@code expectedVersion}
+     */
+    public long patchUser(UserPatchRequest userPatchRequest, Long userId, Long expectedVersion) {
+        log.debug("Got user patch request: {}", userPatchRequest);
+        UserPatchDto patch = userMapper.userPatchRequestToUserPatchDto(userPatchRequest);
+        patch.setId(userId);
+        patch.setVersion(expectedVersion);
+        try {
+            long version = userService.patchUser(patch);
+            userBookCache.invalidate(userId);
+            return version;
+        } catch (OptimisticLockingFailureException e) {
+            if (expectedVersion == null) {
+                throw e;
+            }
+            throw new PreconditionFailedException("User with ID=" + userId
+                    + " was modified, expected version " + expectedVersion);
+        }
+    }
+
+    /**
+     * Частичное обновление книги пользователя одним {@code UPDATE}. Версия пользователя
+     * и его список книг не меняются, поэтому кеш пользователя остаётся верным.
+     *
+     * @param expectedVersion версия книги из {@code If-Match} или {@code null}
+     * @return новая версия книги
+     * @throws PreconditionFailedException если версия книги не равна {@code expectedVersion}
+     */
+    public long patchBook(BookPatchRequest bookPatchRequest, Long userId, Long bookId, Long expectedVersion) {
+        log.debug("Got book patch request: {}", bookPatchRequest);
+        BookPatchDto patch = bookMapper.bookPatchRequestToBookPatchDto(bookPatchRequest);
+        patch.setId(bookId);
+        patch.setUserId(userId);
+        patch.setVersion(expectedVersion);
+        try {
+            return bookService.patchBook(patch);
+        } catch (OptimisticLockingFailureException e) {
+            if (expectedVersion == null) {
+                throw e;
+            }
+            throw new PreconditionFailedException("Book with ID=" + bookId
+                    + " was modified, expected version " + expectedVersion);
+        }
+    }
+
     public UserBookResponse getUserWithBooks(Long userId) {
         log.info("Got get user {} with books request", userId);
-        UserDto userDto = userService.getUserById(userId);
+        return userBookCache.get(userId, this::loadUserWithBooks);
+    }
 
-        List<Long> bookIdList = bookService.getBooksByUserId(userId).stream()
-                .map(BookDto::getId)
+    private UserBookResponse loadUserWithBooks(long userId) {
+        UserBookIdsDto userBookIds = userService.getUserBookIds(userId);
+        return UserBookResponse.builder()
+                .userId(userId)
+                .booksIdList(userBookIds.getBookIds())
+                .version(userBookIds.getVersion())
+                .build();
+    }
+
+    public UserBooksBatchResponse getUsersWithBooks(List<Long> userIds) {
+        log.info("Got get {} users with books request", userIds.size());
+        List<Long> distinctIds = distinctUserIds(userIds);
+
+        Set<Long> foundIds = userService.getUsersByIds(distinctIds)
+                .stream()
+                .map(UserDto::getId)
+                .collect(Collectors.toSet());
+        return toBatchResponse(distinctIds, foundIds, bookService.getBookIdsByUserIds(foundIds));
+    }
+
+    static List<Long> distinctUserIds(List<Long> userIds) {
+        List<Long> distinctIds = userIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
                 .toList();
+        if (distinctIds.size() > MAX_MULTI_GET_SIZE) {
+            throw new NotValidException("Too many ids, max " + MAX_MULTI_GET_SIZE);
+        }
+        return distinctIds;
+    }
 
-        return UserBookResponse.builder()
-                .userId(userDto.getId())
-                .booksIdList(bookIdList)
+    static UserBooksBatchResponse toBatchResponse(List<Long> distinctIds, Set<Long> foundIds,
+                                                  Map<Long, List<Long>> bookIdsByUserId) {
+        List<UserBookResponse> users = new ArrayList<>(foundIds.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long userId : distinctIds) {
+            if (foundIds.contains(userId)) {
+                users.add(UserBookResponse.builder()
+                        .userId(userId)
+                        .booksIdList(bookIdsByUserId.getOrDefault(userId, List.of()))
+                        .build());
+            } else {
+                missingIds.add(userId);
+            }
+        }
+
+        return UserBooksBatchResponse.builder()
+                .users(users)
+                .missingIds(missingIds)
                 .build();
     }
 
+    public UserPageResponse getUsersPage(UserFilter filter, String cursor, int limit) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        log.info("Got list users request: filter {}, page size {}", filter, pageSize);
+
+        // Лишняя запись показывает, есть ли следующая страница
+        List<UserDto> users = userService.getUsersPage(filter, PageCursor.decode(cursor), pageSize + 1);
+        boolean hasNext = users.size() > pageSize;
+        if (hasNext) {
+            users = users.subList(0, pageSize);
+        }
+
+        Map<Long, List<Long>> bookIdsByUserId = bookService.getBookIdsByUserIds(
+                users.stream().map(UserDto::getId).toList());
+
+        return UserPageResponse.builder()
+                .users(users.stream()
+                        .map(user -> UserResponse.builder()
+                                .id(user.getId())
+                                .fullName(user.getFullName())
+                                .title(user.getTitle())
+                                .age(user.getAge())
+                                .booksIdList(bookIdsByUserId.getOrDefault(user.getId(), List.of()))
+                                .build())
+                        .toList())
+                .nextCursor(hasNext ? PageCursor.encode(users.get(users.size() - 1).getId()) : null)
+                .build();
+    }
+
+    public void importUsersWithBooks(InputStream input, OutputStream output) throws IOException {
+        userBookImporter.importUsersWithBooks(input, output);
+    }
+
+    public void exportUsersWithBooks(OutputStream output) throws IOException {
+        try (SequenceWriter writer = objectMapper.writerFor(UserWithBooksDto.class)
+                .withRootValueSeparator("\n")
+                .writeValues(output)) {
+            userService.forEachUserWithBooks(userWithBooks -> {
+                try {
+                    writer.write(userWithBooks);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
     public void deleteUserWithBooks(Long userId) {
         log.info("Got delete user {} with books request", userId);
-        bookService.deleteBooksByUserId(userId);
-        userService.deleteUserById(userId);
+        try {
+            bookService.deleteBooksByUserId(userId);
+            userService.deleteUserById(userId);
+        } finally {
+            userBookCache.invalidate(userId);
+        }
         log.info("Deleted user with ID={}", userId);
     }
 }
@@ -0,0 +1,187 @@
+package com.edu.ulab.app.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Appender, который придерживает диагностику запроса в памяти потока.
+ * <p>
+ * Пока для потока открыт буфер ({@link #begin()}), события уровня ниже WARN
+ * складываются в кольцевой буфер на {@code maxEventsPerRequest} записей. В буфер попадает
+ * само событие: шаблон и аргументы форматируются только при выводе, поэтому успешный запрос
+ * не платит за форматирование. В момент записи фиксируются лишь MDC и имя потока.
+ * {@link #end(RequestBuffer, boolean)} либо передаёт их вложенным
+ * appender'ам (запрос упал или был медленным), либо просто отбрасывает.
+ * Вне запроса события от INFO и выше передаются сразу, DEBUG отбрасывается.
+ */
+public class RequestBufferingAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+    private static final ThreadLocal<RequestBuffer> BUFFER = new ThreadLocal<>();
+    private static volatile RequestBufferingAppender instance;
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private int maxEventsPerRequest = 256;
+
+    /**
+     * Открывает буфер для текущего потока, если appender настроен.
+     */
+    public static void begin() {
+        if (instance != null) {
+            BUFFER.set(new RequestBuffer());
+        }
+    }
+
+    /**
+     * Закрывает буфер текущего потока.
+     *
+     * @param flush передать накопленные события дальше
+     * @return число отброшенных из-за переполнения событий
+     */
+    public static int end(boolean flush) {
+        return end(detach(), flush);
+    }
+
+    /**
+     * Отвязывает буфер от текущего потока, чтобы завершить его в другом,
+     * например, по окончании асинхронного запроса.
+     *
+     * @return буфер или {@code null}, если он не был открыт
+     */
+    public static RequestBuffer detach() {
+        RequestBuffer buffer = BUFFER.get();
+        BUFFER.remove();
+        return buffer;
+    }
+
+    /**
+     * @return буфер текущего потока или {@code null}, если он не открыт
+     */
+    public static RequestBuffer current() {
+        return BUFFER.get();
+    }
+
+    /**
+     * Привязывает к текущему потоку буфер запроса, открытый в другом потоке, например,
+     * на время выполнения задачи запроса в пуле.
+     *
+     * @param buffer буфер или {@code null}, чтобы отвязать буфер от потока
+     * @return буфер, который был привязан к потоку до вызова
+     */
+    public static RequestBuffer attach(RequestBuffer buffer) {
+        RequestBuffer previous = BUFFER.get();
+        if (buffer == null) {
+            BUFFER.remove();
+        } else {
+            BUFFER.set(buffer);
+        }
+        return previous;
+    }
+
+    public static int end(RequestBuffer buffer, boolean flush) {
+        if (buffer == null) {
+            return 0;
+        }
+        RequestBufferingAppender appender = instance;
+        synchronized (buffer) {
+            if (flush && appender != null) {
+                for (ILoggingEvent event : buffer.events) {
+                    appender.appenders.appendLoopOnAppenders(event);
+                }
+            }
+            return buffer.dropped;
+        }
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        instance = this;
+    }
+
+    @Override
+    public void stop() {
+        if (instance == this) {
+            instance = null;
+        }
+        appenders.detachAndStopAllAppenders();
+        super.stop();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        RequestBuffer buffer = BUFFER.get();
+        if (event.getLevel().isGreaterOrEqual(Level.WARN)) {
+            appenders.appendLoopOnAppenders(event);
+        } else if (buffer != null) {
+            // в буфер одного запроса могут писать несколько потоков пула
+            synchronized (buffer) {
+                if (buffer.events.size() == maxEventsPerRequest) {
+                    buffer.events.pollFirst();
+                    buffer.dropped++;
+                }
+                buffer.events.addLast(defer(event));
+            }
+        } else if (event.getLevel().isGreaterOrEqual(Level.INFO)) {
+            appenders.appendLoopOnAppenders(event);
+        }
+    }
+
+    // MDC и имя потока вычисляются событием лениво по текущему потоку, поэтому фиксируются сразу.
+    // prepareForDeferredProcessing не подходит: оно заодно форматирует сообщение
+    private static ILoggingEvent defer(ILoggingEvent event) {
+        event.getThreadName();
+        event.getMDCPropertyMap();
+        return event;
+    }
+
+    public void setMaxEventsPerRequest(int maxEventsPerRequest) {
+        this.maxEventsPerRequest = maxEventsPerRequest;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        appenders.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+
+    public static final class RequestBuffer {
+        private final ArrayDeque<ILoggingEvent> events = new ArrayDeque<>();
+        private int dropped;
+    }
+}
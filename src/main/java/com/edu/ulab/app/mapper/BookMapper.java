@@ -1,7 +1,10 @@
 package com.edu.ulab.app.mapper;
 
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.BookPatchDto;
 import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.r2dbc.BookRow;
+import com.edu.ulab.app.web.request.BookPatchRequest;
 import com.edu.ulab.app.web.request.BookRequest;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -13,7 +16,20 @@ public interface BookMapper {
 
     BookRequest bookDtoToBookRequest(BookDto bookDto);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "userId", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    BookPatchDto bookPatchRequestToBookPatchDto(BookPatchRequest bookPatchRequest);
+
+    @Mapping(target = "person.id", source = "userId")
     Book bookDtoToBook(BookDto bookDto);
 
+    @Mapping(target = "userId", source = "person.id")
     BookDto bookToBookDto(Book book);
+
+    @Mapping(target = "personId", source = "userId")
+    BookRow bookDtoToBookRow(BookDto bookDto);
+
+    @Mapping(target = "userId", source = "personId")
+    BookDto bookRowToBookDto(BookRow bookRow);
 }
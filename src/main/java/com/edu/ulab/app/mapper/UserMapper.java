@@ -1,9 +1,13 @@
 package com.edu.ulab.app.mapper;
 
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserPatchDto;
 import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.entity.r2dbc.PersonRow;
+import com.edu.ulab.app.web.request.UserPatchRequest;
 import com.edu.ulab.app.web.request.UserRequest;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring")
 public interface UserMapper {
@@ -11,7 +15,15 @@ public interface UserMapper {
 
     UserRequest userDtoToUserRequest(UserDto userDto);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    UserPatchDto userPatchRequestToUserPatchDto(UserPatchRequest userPatchRequest);
+
     Person userDtoToPerson(UserDto userDto);
 
     UserDto personToUserDto(Person person);
+
+    PersonRow userDtoToPersonRow(UserDto userDto);
+
+    UserDto personRowToUserDto(PersonRow personRow);
 }
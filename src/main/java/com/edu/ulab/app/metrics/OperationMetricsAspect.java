@@ -0,0 +1,124 @@
+package com.edu.ulab.app.metrics;
+
+import com.edu.ulab.app.exception.DataInvalidException;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotUniqueException;
+import com.edu.ulab.app.exception.NotValidException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Таймеры с гистограммой перцентилей для публичных методов фасада и сервисов.
+ * <p>
+ * Метрика {@value #TIMER_NAME} помечается тегами {@code class}, {@code method},
+ * {@code backend} (jdbc, jpa, inMemory — по имени бина сервиса, для фасада —
+ * {@code app.storage.backend}), {@code outcome} и {@code exception}.
+ * Неуспешные вызовы дополнительно считаются в {@value #ERRORS_COUNTER_NAME}.
+ * Таймер и счётчик регистрируются один раз на сочетание тегов, дальше берутся из кеша.
+ */
+@Aspect
+@Component
+public class OperationMetricsAspect {
+    public static final String TIMER_NAME = "ulab.operation";
+    public static final String ERRORS_COUNTER_NAME = "ulab.operation.errors";
+
+    private static final String SUCCESS = "success";
+    private static final String NO_EXCEPTION = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final String facadeBackend;
+    private final Map<Class<?>, String> backendByClass = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Meters> metersByKey = new ConcurrentHashMap<>();
+
+    public OperationMetricsAspect(MeterRegistry meterRegistry,
+                                  @Value("${app.storage.backend:jdbc}") String facadeBackend) {
+        this.meterRegistry = meterRegistry;
+        this.facadeBackend = facadeBackend;
+    }
+
+    // Реактивные сервисы возвращают Mono/Flux до выполнения запроса, их время здесь не измерить
+    @Around("(execution(public * com.edu.ulab.app.service.impl.*.*(..))"
+            + " && !within(com.edu.ulab.app.service.impl.*R2dbc))"
+            + " || execution(public * com.edu.ulab.app.facade.UserDataFacade.*(..))")
+    public Object timeOperation(ProceedingJoinPoint joinPoint) throws Throwable {
+        Class<?> targetClass = ClassUtils.getUserClass(joinPoint.getTarget());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = SUCCESS;
+        String exception = NO_EXCEPTION;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            outcome = outcomeOf(e);
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            Meters meters = metersByKey.computeIfAbsent(
+                    new MeterKey(targetClass, joinPoint.getSignature().getName(), outcome, exception),
+                    this::registerMeters);
+            sample.stop(meters.timer());
+            if (meters.errors() != null) {
+                meters.errors().increment();
+            }
+        }
+    }
+
+    private Meters registerMeters(MeterKey key) {
+        Tags tags = Tags.of(
+                "class", key.targetClass().getSimpleName(),
+                "method", key.method(),
+                "backend", backendOf(key.targetClass()));
+        Timer timer = Timer.builder(TIMER_NAME)
+                .tags(tags)
+                .tag("outcome", key.outcome())
+                .tag("exception", key.exception())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Counter errors = SUCCESS.equals(key.outcome())
+                ? null
+                : meterRegistry.counter(ERRORS_COUNTER_NAME, tags.and("outcome", key.outcome()));
+        return new Meters(timer, errors);
+    }
+
+    static String outcomeOf(Throwable e) {
+        if (e instanceof NotFoundException) {
+            return "not_found";
+        }
+        if (e instanceof NotValidException || e instanceof DataInvalidException) {
+            return "invalid";
+        }
+        if (e instanceof NotUniqueException) {
+            return "conflict";
+        }
+        return "error";
+    }
+
+    // jdbcUserService -> jdbc, jpaBookService -> jpa
+    private String backendOf(Class<?> targetClass) {
+        return backendByClass.computeIfAbsent(targetClass, type -> {
+            Service service = AnnotationUtils.findAnnotation(type, Service.class);
+            if (service == null || service.value().isEmpty()) {
+                return facadeBackend;
+            }
+            return service.value().replaceFirst("(User|Book)Service$", "");
+        });
+    }
+
+    private record MeterKey(Class<?> targetClass, String method, String outcome, String exception) {
+    }
+
+    private record Meters(Timer timer, Counter errors) {
+    }
+}
@@ -0,0 +1,77 @@
+package com.edu.ulab.app.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время выполнения SQL-запросов через DataSource приложения.
+ * <p>
+ * Метрика {@value #TIMER_NAME} с гистограммой перцентилей помечается тегами {@code statement}
+ * (select, insert, update, delete или other по первому слову запроса), {@code backend}
+ * ({@code app.storage.backend}) и {@code outcome} (success, error). Пакетное выполнение
+ * измеряется одним значением. Все таймеры регистрируются при создании, на запрос приходится
+ * только сравнение начала SQL и запись в таймер.
+ */
+@Component
+public class StatementMetricsListener implements QueryExecutionListener {
+    public static final String TIMER_NAME = "ulab.datasource.statement";
+
+    static final String OTHER = "other";
+    private static final List<String> STATEMENTS = List.of("select", "insert", "update", "delete");
+
+    // [0] — success, [1] — error
+    private final Map<String, Timer[]> timersByStatement = new HashMap<>();
+
+    public StatementMetricsListener(MeterRegistry meterRegistry,
+                                    @Value("${app.storage.backend:jdbc}") String backend) {
+        for (String statement : STATEMENTS) {
+            timersByStatement.put(statement, register(meterRegistry, statement, backend));
+        }
+        timersByStatement.put(OTHER, register(meterRegistry, OTHER, backend));
+    }
+
+    private static Timer[] register(MeterRegistry meterRegistry, String statement, String backend) {
+        Timer[] timers = new Timer[2];
+        int index = 0;
+        for (String outcome : List.of("success", "error")) {
+            timers[index++] = Timer.builder(TIMER_NAME)
+                    .tag("statement", statement)
+                    .tag("backend", backend)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+        return timers;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        String statement = queryInfoList.isEmpty() ? OTHER : statementOf(queryInfoList.get(0).getQuery());
+        timersByStatement.get(statement)[execInfo.isSuccess() ? 0 : 1]
+                .record(execInfo.getElapsedTime(), TimeUnit.MILLISECONDS);
+    }
+
+    static String statementOf(String sql) {
+        String trimmed = sql.stripLeading();
+        for (String statement : STATEMENTS) {
+            if (trimmed.regionMatches(true, 0, statement, 0, statement.length())) {
+                return statement;
+            }
+        }
+        return OTHER;
+    }
+}
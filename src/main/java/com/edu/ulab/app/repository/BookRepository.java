@@ -1,23 +1,47 @@
 package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.repository.projection.UserBookId;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 @Repository
 public interface BookRepository extends CrudRepository<Book, Long> {
+    String BOOKS_BY_PERSON_REGION = "books-by-person";
 
+    // Сервисами не используется: книги обновляются с проверкой версии
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("select b from Book b where b.id = :id")
     Optional<Book> findByIdForUpdate(long id);
 
+    boolean existsByIdAndPersonId(Long id, Long personId);
+
     List<Book> deleteByPersonId(Long userId);
 
+    @Modifying
+    @Query("delete from Book b where b.id in :ids")
+    int deleteAllByIdIn(Collection<Long> ids);
+
+    // Кешируются идентификаторы книг, сами книги берутся из региона Book.
+    // Hibernate сбрасывает результат при любом изменении таблицы book через сессию
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = BOOKS_BY_PERSON_REGION)})
     List<Book> findAllByPersonId(Long userId);
+
+    @Query("select new com.edu.ulab.app.repository.projection.UserBookId(b.person.id, b.id) from Book b " +
+            "where b.person.id in :userIds order by b.person.id, b.id")
+    List<UserBookId> findBookIdsByPersonIdIn(Collection<Long> userIds);
 }
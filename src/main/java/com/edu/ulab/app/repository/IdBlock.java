@@ -0,0 +1,43 @@
+package com.edu.ulab.app.repository;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.edu.ulab.app.repository.SequenceRepository.ALLOCATION_SIZE;
+
+/**
+ * Блок из {@link SequenceRepository#ALLOCATION_SIZE} идентификаторов одного значения
+ * последовательности, выдаётся частями из нескольких потоков без блокировок.
+ */
+public final class IdBlock {
+    public static final IdBlock EXHAUSTED = new IdBlock(0, ALLOCATION_SIZE);
+
+    private final long base;
+    private final AtomicInteger nextLo;
+
+    public IdBlock(long hi) {
+        // как и в LegacyHiLoAlgorithmOptimizer, для hi = 0 идентификатор 0 пропускается
+        this(hi, hi == 0 ? 1 : 0);
+    }
+
+    private IdBlock(long hi, int firstLo) {
+        this.base = hi * ALLOCATION_SIZE;
+        this.nextLo = new AtomicInteger(firstLo);
+    }
+
+    // Заполняет ids начиная с filled, сколько хватит блока; возвращает новое число заполненных
+    public int take(long[] ids, int filled) {
+        while (true) {
+            int lo = nextLo.get();
+            if (lo >= ALLOCATION_SIZE) {
+                return filled;
+            }
+            int taken = Math.min(ALLOCATION_SIZE - lo, ids.length - filled);
+            if (nextLo.compareAndSet(lo, lo + taken)) {
+                for (int i = 0; i < taken; i++) {
+                    ids[filled + i] = base + lo + i;
+                }
+                return filled + taken;
+            }
+        }
+    }
+}
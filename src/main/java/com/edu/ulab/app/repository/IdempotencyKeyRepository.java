@@ -0,0 +1,97 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.IdempotencyProperties;
+import com.edu.ulab.app.exception.IdempotencyKeyReusedException;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Ответы на запросы создания, сохранённые по значению заголовка {@code rqid}.
+ * <p>
+ * Запись добавляется в той же транзакции, что и созданные данные, поэтому повтор
+ * запроса после сбоя или на другом экземпляре приложения вернёт первый ответ.
+ * Вместе с ответом хранятся хэш тела запроса и версия пользователя для ETag,
+ * повтор ключа с другим телом отклоняется.
+ * Записи старше {@code app.idempotency.ttl} периодически удаляются.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(prefix = "app.idempotency", name = "persistent", havingValue = "true")
+public class IdempotencyKeyRepository {
+    private static final String FIND_RESPONSE_SQL =
+            "SELECT REQUEST_HASH, RESPONSE, VERSION FROM ULAB_EDU.IDEMPOTENCY_KEY WHERE REQUEST_ID = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO ULAB_EDU.IDEMPOTENCY_KEY(REQUEST_ID, REQUEST_HASH, RESPONSE, VERSION, CREATED_AT) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM ULAB_EDU.IDEMPOTENCY_KEY WHERE CREATED_AT < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyProperties properties;
+
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate,
+                                    ObjectMapper objectMapper,
+                                    IdempotencyProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    /**
+     * @throws IdempotencyKeyReusedException если ключ сохранён для запроса с другим телом
+     */
+    public Optional<UserBookResponse> findResponse(String requestId, String requestHash) {
+        return jdbcTemplate.query(FIND_RESPONSE_SQL, (rs, rowNum) -> {
+                    if (!rs.getString(1).equals(requestHash)) {
+                        throw new IdempotencyKeyReusedException(requestId);
+                    }
+                    UserBookResponse response = fromJson(rs.getString(2));
+                    // версия в JSON не попадает, без неё повтор вернул бы ответ без ETag
+                    response.setVersion(rs.getObject(3, Long.class));
+                    return response;
+                }, requestId)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * @throws org.springframework.dao.DuplicateKeyException если ответ на запрос уже сохранён
+     */
+    public void save(String requestId, String requestHash, UserBookResponse response) {
+        jdbcTemplate.update(INSERT_SQL, requestId, requestHash, toJson(response), response.getVersion(),
+                Timestamp.from(Instant.now()));
+    }
+
+    @Scheduled(fixedDelayString = "PT10M", initialDelayString = "PT10M")
+    public void deleteExpired() {
+        int deleted = jdbcTemplate.update(DELETE_EXPIRED_SQL,
+                Timestamp.from(Instant.now().minus(properties.getTtl())));
+        log.info("Deleted {} expired idempotency keys", deleted);
+    }
+
+    private String toJson(UserBookResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private UserBookResponse fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, UserBookResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.edu.ulab.app.repository;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.edu.ulab.app.repository.SequenceRepository.ALLOCATION_SIZE;
+
+/**
+ * Выдача идентификаторов на стороне приложения блоками из последовательности {@code sequence}.
+ * <p>
+ * Одно значение последовательности резервирует {@link SequenceRepository#ALLOCATION_SIZE}
+ * идентификаторов по тому же алгоритму hi/lo, что и генератор JPA, поэтому JDBC- и JPA-сервисы
+ * могут писать в одни таблицы. Текущий блок общий для всех потоков и выдаётся без блокировок;
+ * запрос к базе выполняется раз на блок. Если два потока одновременно исчерпали блок,
+ * в общий ставится один новый, второй поток берёт идентификаторы из своего, остаток
+ * которого пропускается.
+ */
+@Component
+public class PooledIdAllocator {
+    private final SequenceRepository sequenceRepository;
+    private final AtomicReference<IdBlock> current = new AtomicReference<>(IdBlock.EXHAUSTED);
+
+    public PooledIdAllocator(SequenceRepository sequenceRepository) {
+        this.sequenceRepository = sequenceRepository;
+    }
+
+    public long nextId() {
+        return nextIds(1)[0];
+    }
+
+    public long[] nextIds(int count) {
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            IdBlock block = current.get();
+            filled = block.take(ids, filled);
+            int remaining = count - filled;
+            if (remaining == 0) {
+                break;
+            }
+            if (remaining >= ALLOCATION_SIZE) {
+                // большой запрос получает свои блоки одним обращением к последовательности
+                System.arraycopy(sequenceRepository.nextIds(remaining), 0, ids, filled, remaining);
+                break;
+            }
+            IdBlock next = new IdBlock(sequenceRepository.nextHiValues(1).get(0));
+            if (!current.compareAndSet(block, next)) {
+                filled = next.take(ids, filled);
+            }
+        }
+        return ids;
+    }
+}
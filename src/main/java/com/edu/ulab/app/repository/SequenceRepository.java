@@ -0,0 +1,46 @@
+package com.edu.ulab.app.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Выдача идентификаторов из общей последовательности {@code sequence} в обход Hibernate.
+ * <p>
+ * Сущности {@code Person} и {@code Book} используют генератор с {@code allocationSize = 100}
+ * при {@code use-new-id-generator-mappings: false}, то есть алгоритм hi/lo: значение
+ * последовательности {@code v} резервирует идентификаторы {@code [v * 100, v * 100 + 99]}.
+ * Здесь идентификаторы нарезаются так же, поэтому не пересекаются с выданными JPA.
+ */
+@Repository
+public class SequenceRepository {
+    public static final int ALLOCATION_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SequenceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<Long> nextHiValues(int count) {
+        final String NEXT_VALUES_SQL = "SELECT nextval('sequence') FROM generate_series(1, ?)";
+
+        return jdbcTemplate.queryForList(NEXT_VALUES_SQL, Long.class, count);
+    }
+
+    public long[] nextIds(int count) {
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            int blocks = (count - filled + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+            for (long hi : nextHiValues(blocks)) {
+                // как и в LegacyHiLoAlgorithmOptimizer, для hi = 0 идентификатор 0 пропускается
+                for (long lo = hi == 0 ? 1 : 0; lo < ALLOCATION_SIZE && filled < count; lo++) {
+                    ids[filled++] = hi * ALLOCATION_SIZE + lo;
+                }
+            }
+        }
+        return ids;
+    }
+}
@@ -1,16 +1,18 @@
 package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.repository.projection.UserVersionBookId;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.LockModeType;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends CrudRepository<Person, Long> {
+public interface UserRepository extends CrudRepository<Person, Long>, UserRepositoryCustom {
 
     /*
     User has books - book - started - comited status - other logic
@@ -18,10 +20,18 @@ public interface UserRepository extends CrudRepository<Person, Long> {
     User has books - book - finished
      */
 
+    // Сервисы обновляют пользователя с проверкой версии, блокировка строки
+    // оставлена для сравнения в UpdateContentionBenchmark
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("select p from Person p where p.id = :id")
     Optional<Person> findByIdForUpdate(long id);
 
+    // Пути чтения, которым хватает значений, собирают DTO конструктором без управляемых сущностей
+    // (entity graph на bookSet не нужен: управляемые книги читает BookRepository.findAllByPersonId из кеша запросов)
+    @Query("select new com.edu.ulab.app.repository.projection.UserVersionBookId(p.id, p.version, b.id) " +
+            "from Person p left join p.bookSet b where p.id = :id order by b.id")
+    List<UserVersionBookId> findBookIdsById(Long id);
+
     boolean existsByTitle(String title);
     Optional<Person> getByTitle(String title);
 }
@@ -0,0 +1,21 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.repository.projection.UserBookRow;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface UserRepositoryCustom {
+    /**
+     * Страница пользователей с ID больше {@code afterId} по возрастанию ID (keyset-пагинация).
+     */
+    List<Person> findPage(UserFilter filter, long afterId, int limit);
+
+    /**
+     * Все пользователи с книгами по возрастанию ID пользователя и книги, по строке на книгу.
+     * Строки читаются курсором пачками по {@code app.export.fetch-size}, поток нужно закрыть.
+     */
+    Stream<UserBookRow> streamAllWithBooks();
+}
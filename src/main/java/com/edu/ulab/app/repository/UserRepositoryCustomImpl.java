@@ -0,0 +1,63 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.repository.projection.UserBookRow;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    private static final String ALL_WITH_BOOKS_JPQL = "select new com.edu.ulab.app.repository.projection.UserBookRow(" +
+            "p.id, p.fullName, p.title, p.age, b.id, b.title, b.author, b.pageCount) " +
+            "from Person p left join p.bookSet b order by p.id, b.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    @Override
+    public List<Person> findPage(UserFilter filter, long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Person> query = cb.createQuery(Person.class);
+        Root<Person> person = query.from(Person.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.greaterThan(person.get("id"), afterId));
+        if (filter.getTitle() != null) {
+            predicates.add(cb.equal(person.get("title"), filter.getTitle()));
+        }
+        if (filter.getMinAge() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(person.get("age"), filter.getMinAge()));
+        }
+        if (filter.getMaxAge() != null) {
+            predicates.add(cb.lessThanOrEqualTo(person.get("age"), filter.getMaxAge()));
+        }
+
+        query.select(person)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(person.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<UserBookRow> streamAllWithBooks() {
+        return entityManager.createQuery(ALL_WITH_BOOKS_JPQL, UserBookRow.class)
+                .setHint(HINT_FETCH_SIZE, exportFetchSize)
+                .getResultStream();
+    }
+}
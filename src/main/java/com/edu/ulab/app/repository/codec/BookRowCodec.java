@@ -0,0 +1,69 @@
+package com.edu.ulab.app.repository.codec;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.BookPatchDto;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Строка таблицы {@code BOOK}: ID, PERSON_ID, TITLE, AUTHOR, PAGE_COUNT, VERSION.
+ */
+public final class BookRowCodec extends RowCodec<BookDto> {
+    public static final BookRowCodec INSTANCE = new BookRowCodec();
+
+    private BookRowCodec() {
+        super("BOOK", List.of("PERSON_ID", "TITLE", "AUTHOR", "PAGE_COUNT"));
+    }
+
+    @Override
+    public BookDto read(ResultSet rs, int firstColumn) throws SQLException {
+        return new BookDto(
+                rs.getLong(firstColumn),
+                rs.getLong(firstColumn + 1),
+                rs.getString(firstColumn + 2),
+                rs.getString(firstColumn + 3),
+                rs.getLong(firstColumn + 4),
+                rs.getLong(firstColumn + 5));
+    }
+
+    /**
+     * @return заданные поля изменения по столбцам, для {@link #patchStatement}
+     */
+    public Map<String, Object> patchValues(BookPatchDto patch) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (patch.getTitle() != null) {
+            values.put("TITLE", patch.getTitle());
+        }
+        if (patch.getAuthor() != null) {
+            values.put("AUTHOR", patch.getAuthor());
+        }
+        if (patch.getPageCount() != null) {
+            values.put("PAGE_COUNT", patch.getPageCount());
+        }
+        return values;
+    }
+
+    @Override
+    protected long id(BookDto book) {
+        return book.getId();
+    }
+
+    @Override
+    protected Long version(BookDto book) {
+        return book.getVersion();
+    }
+
+    @Override
+    protected int bindValues(PreparedStatement ps, int firstParameter, BookDto book) throws SQLException {
+        ps.setLong(firstParameter, book.getUserId());
+        ps.setString(firstParameter + 1, book.getTitle());
+        ps.setString(firstParameter + 2, book.getAuthor());
+        ps.setLong(firstParameter + 3, book.getPageCount());
+        return firstParameter + 4;
+    }
+}
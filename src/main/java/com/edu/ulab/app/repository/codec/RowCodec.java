@@ -0,0 +1,184 @@
+package com.edu.ulab.app.repository.codec;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Отображение строки таблицы на DTO по номерам столбцов.
+ * <p>
+ * Список столбцов задаётся явно и определяет порядок в SELECT и INSERT: первым идёт
+ * {@value #ID_COLUMN}, за ним остальные и последним {@value #VERSION_COLUMN}. {@link #read} читает столбцы подряд с заданного
+ * номера, поэтому строку можно читать и из соединения таблиц, {@link #bind} устанавливает
+ * параметры в том же порядке. Соответствие столбцов схеме Liquibase проверяет
+ * {@code RowCodecSchemaTest}.
+ */
+public abstract class RowCodec<T> {
+    public static final String ID_COLUMN = "ID";
+    public static final String VERSION_COLUMN = "VERSION";
+    // В нижнем регистре: PgJDBC добавляет RETURNING с именами столбцов в кавычках
+    private static final String[] RETURNED_VERSION = {"version"};
+
+    private final String table;
+    private final List<String> valueColumns;
+    private final List<String> columns;
+    private final String selectSql;
+    private final String updateSql;
+    private final RowMapper<T> rowMapper = (rs, rowNum) -> read(rs, 1);
+
+    protected RowCodec(String table, List<String> valueColumns) {
+        this.table = table;
+        this.valueColumns = valueColumns;
+        this.columns = Stream.of(Stream.of(ID_COLUMN), valueColumns.stream(), Stream.of(VERSION_COLUMN))
+                .flatMap(column -> column)
+                .toList();
+        this.selectSql = "SELECT " + columnList() + " FROM " + table;
+        this.updateSql = "UPDATE " + table + " SET "
+                + valueColumns.stream().map(column -> column + " = ?").collect(Collectors.joining(", "))
+                + ", " + VERSION_COLUMN + " = " + VERSION_COLUMN + " + 1"
+                + " WHERE " + ID_COLUMN + " = ? AND " + VERSION_COLUMN + " = ?";
+    }
+
+    public String table() {
+        return table;
+    }
+
+    public List<String> columns() {
+        return columns;
+    }
+
+    public String columnList() {
+        return String.join(", ", columns);
+    }
+
+    public String columnList(String alias) {
+        return columns.stream()
+                .map(column -> alias + "." + column)
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * @return {@code SELECT} всех столбцов без условия, условие дописывает вызывающий
+     */
+    public String selectSql() {
+        return selectSql;
+    }
+
+    public String insertSql(int rows) {
+        String placeholders = "(" + String.join(",", Collections.nCopies(columns.size(), "?")) + ")";
+        return "INSERT INTO " + table + "(" + columnList() + ") VALUES "
+                + String.join(",", Collections.nCopies(rows, placeholders));
+    }
+
+    /**
+     * @return {@code UPDATE} всех столбцов кроме {@value #ID_COLUMN} по {@value #ID_COLUMN}
+     * и ожидаемой версии, {@value #VERSION_COLUMN} увеличивается на 1. Ноль обновлённых строк
+     * означает, что строку изменили или удалили, см. {@link #checkUpdated}
+     */
+    public String updateSql() {
+        return updateSql;
+    }
+
+    /**
+     * @return {@code UPDATE} только столбцов {@code columns} по условиям равенства {@code keyColumns},
+     * {@value #VERSION_COLUMN} увеличивается на 1
+     */
+    public String patchSql(Collection<String> columns, Collection<String> keyColumns) {
+        if (columns.isEmpty() || !valueColumns.containsAll(columns) || !this.columns.containsAll(keyColumns)) {
+            throw new IllegalArgumentException("Unknown or empty columns of " + table + ": " + columns + ", " + keyColumns);
+        }
+        return "UPDATE " + table + " SET "
+                + columns.stream().map(column -> column + " = ?").collect(Collectors.joining(", "))
+                + ", " + VERSION_COLUMN + " = " + VERSION_COLUMN + " + 1"
+                + " WHERE " + keyColumns.stream().map(column -> column + " = ?").collect(Collectors.joining(" AND "));
+    }
+
+    /**
+     * Частичное обновление одним запросом по {@link #patchSql}, без чтения строки.
+     * Новая {@value #VERSION_COLUMN} возвращается как сгенерированный ключ.
+     *
+     * @param values новые значения столбцов в порядке обхода
+     * @param keys   значения столбцов условия, например {@value #ID_COLUMN} и ожидаемой версии
+     */
+    public PreparedStatementCreator patchStatement(Map<String, ?> values, Map<String, ?> keys) {
+        String sql = patchSql(values.keySet(), keys.keySet());
+        return connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, RETURNED_VERSION);
+            int index = 1;
+            for (Object value : values.values()) {
+                ps.setObject(index++, value);
+            }
+            for (Object key : keys.values()) {
+                ps.setObject(index++, key);
+            }
+            return ps;
+        };
+    }
+
+    public RowMapper<T> rowMapper() {
+        return rowMapper;
+    }
+
+    /**
+     * Читает строку из столбцов {@code firstColumn .. firstColumn + columns().size() - 1}.
+     */
+    public abstract T read(ResultSet rs, int firstColumn) throws SQLException;
+
+    /**
+     * Устанавливает параметры всех столбцов для {@link #insertSql(int)}.
+     *
+     * @return номер следующего параметра
+     */
+    public int bind(PreparedStatement ps, int firstParameter, T value) throws SQLException {
+        ps.setLong(firstParameter, id(value));
+        int next = bindValues(ps, firstParameter + 1, value);
+        Long version = version(value);
+        ps.setLong(next, version == null ? 0L : version);
+        return next + 1;
+    }
+
+    /**
+     * Устанавливает параметры для {@link #updateSql()}, версия значения должна быть задана.
+     */
+    public void bindUpdate(PreparedStatement ps, T value) throws SQLException {
+        int next = bindValues(ps, 1, value);
+        ps.setLong(next, id(value));
+        ps.setLong(next + 1, version(value));
+    }
+
+    /**
+     * @param updated число строк, обновлённых {@link #updateSql()} для {@code value}
+     * @throws OptimisticLockingFailureException если строка с ожидаемой версией не найдена
+     */
+    public void checkUpdated(int updated, T value) {
+        checkUpdated(updated, id(value), version(value));
+    }
+
+    public void checkUpdated(int updated, long id, Long version) {
+        if (updated == 0) {
+            throw new OptimisticLockingFailureException(table + " with ID=" + id
+                    + " and VERSION=" + version + " was modified or deleted concurrently");
+        }
+    }
+
+    protected abstract long id(T value);
+
+    protected abstract Long version(T value);
+
+    /**
+     * Устанавливает параметры столбцов кроме {@value #ID_COLUMN} в порядке {@code valueColumns}.
+     *
+     * @return номер следующего параметра
+     */
+    protected abstract int bindValues(PreparedStatement ps, int firstParameter, T value) throws SQLException;
+}
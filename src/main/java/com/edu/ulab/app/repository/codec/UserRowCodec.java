@@ -0,0 +1,67 @@
+package com.edu.ulab.app.repository.codec;
+
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserPatchDto;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Строка таблицы {@code PERSON}: ID, FULL_NAME, TITLE, AGE, VERSION.
+ */
+public final class UserRowCodec extends RowCodec<UserDto> {
+    public static final UserRowCodec INSTANCE = new UserRowCodec();
+
+    private UserRowCodec() {
+        super("PERSON", List.of("FULL_NAME", "TITLE", "AGE"));
+    }
+
+    @Override
+    public UserDto read(ResultSet rs, int firstColumn) throws SQLException {
+        return new UserDto(
+                rs.getLong(firstColumn),
+                rs.getString(firstColumn + 1),
+                rs.getString(firstColumn + 2),
+                rs.getInt(firstColumn + 3),
+                rs.getLong(firstColumn + 4));
+    }
+
+    /**
+     * @return заданные поля изменения по столбцам, для {@link #patchStatement}
+     */
+    public Map<String, Object> patchValues(UserPatchDto patch) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (patch.getFullName() != null) {
+            values.put("FULL_NAME", patch.getFullName());
+        }
+        if (patch.getTitle() != null) {
+            values.put("TITLE", patch.getTitle());
+        }
+        if (patch.getAge() != null) {
+            values.put("AGE", patch.getAge());
+        }
+        return values;
+    }
+
+    @Override
+    protected long id(UserDto user) {
+        return user.getId();
+    }
+
+    @Override
+    protected Long version(UserDto user) {
+        return user.getVersion();
+    }
+
+    @Override
+    protected int bindValues(PreparedStatement ps, int firstParameter, UserDto user) throws SQLException {
+        ps.setString(firstParameter, user.getFullName());
+        ps.setString(firstParameter + 1, user.getTitle());
+        ps.setInt(firstParameter + 2, user.getAge());
+        return firstParameter + 3;
+    }
+}
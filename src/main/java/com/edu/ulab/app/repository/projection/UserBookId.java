@@ -0,0 +1,15 @@
+package com.edu.ulab.app.repository.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Пара пользователь - книга. Для пользователя без книг {@code bookId} равен {@code null}.
+ * Создаётся конструктором в JPQL, поэтому в контекст персистентности ничего не попадает.
+ */
+@Getter
+@AllArgsConstructor
+public class UserBookId {
+    private final Long userId;
+    private final Long bookId;
+}
@@ -0,0 +1,21 @@
+package com.edu.ulab.app.repository.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Строка соединения пользователь - книга. Для пользователя без книг поля книги равны {@code null}.
+ * Создаётся конструктором в JPQL, поэтому в контекст персистентности ничего не попадает.
+ */
+@Getter
+@AllArgsConstructor
+public class UserBookRow {
+    private final Long userId;
+    private final String fullName;
+    private final String title;
+    private final Integer age;
+    private final Long bookId;
+    private final String bookTitle;
+    private final String author;
+    private final Long pageCount;
+}
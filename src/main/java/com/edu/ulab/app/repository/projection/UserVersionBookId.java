@@ -0,0 +1,16 @@
+package com.edu.ulab.app.repository.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Пара пользователь - книга с версией пользователя. Для пользователя без книг {@code bookId}
+ * равен {@code null}. Создаётся конструктором в JPQL, поэтому в контекст персистентности ничего не попадает.
+ */
+@Getter
+@AllArgsConstructor
+public class UserVersionBookId {
+    private final Long userId;
+    private final Long version;
+    private final Long bookId;
+}
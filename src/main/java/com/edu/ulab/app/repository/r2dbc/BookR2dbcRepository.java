@@ -0,0 +1,24 @@
+package com.edu.ulab.app.repository.r2dbc;
+
+import com.edu.ulab.app.entity.r2dbc.BookRow;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface BookR2dbcRepository extends ReactiveCrudRepository<BookRow, Long> {
+    Flux<BookRow> findAllByPersonIdOrderById(Long personId);
+
+    Flux<BookRow> findAllByPersonIdInOrderByPersonIdAscIdAsc(Collection<Long> personIds);
+
+    @Modifying
+    @Query("DELETE FROM ulab_edu.book WHERE id IN (:ids)")
+    Mono<Integer> deleteAllByIdIn(Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM ulab_edu.book WHERE person_id = :personId")
+    Mono<Integer> deleteByPersonId(Long personId);
+}
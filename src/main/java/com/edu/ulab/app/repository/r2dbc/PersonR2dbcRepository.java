@@ -0,0 +1,7 @@
+package com.edu.ulab.app.repository.r2dbc;
+
+import com.edu.ulab.app.entity.r2dbc.PersonRow;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+public interface PersonR2dbcRepository extends ReactiveCrudRepository<PersonRow, Long> {
+}
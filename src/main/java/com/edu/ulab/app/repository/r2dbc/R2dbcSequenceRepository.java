@@ -0,0 +1,71 @@
+package com.edu.ulab.app.repository.r2dbc;
+
+import com.edu.ulab.app.repository.IdBlock;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.repository.SequenceRepository;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.edu.ulab.app.repository.SequenceRepository.ALLOCATION_SIZE;
+
+/**
+ * Неблокирующий вариант {@link SequenceRepository}: идентификаторы нарезаются
+ * из значений последовательности {@code sequence} по тому же алгоритму hi/lo.
+ * <p>
+ * Как и в {@link PooledIdAllocator}, текущий блок общий для всех подписчиков и переживает
+ * вызовы, поэтому к последовательности обращаются раз на {@link SequenceRepository#ALLOCATION_SIZE}
+ * идентификаторов, а не на каждый запрос.
+ */
+@Repository
+public class R2dbcSequenceRepository {
+    private final DatabaseClient databaseClient;
+    private final AtomicReference<IdBlock> current = new AtomicReference<>(IdBlock.EXHAUSTED);
+
+    public R2dbcSequenceRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<long[]> nextIds(int count) {
+        // блок берётся при подписке, а не при сборке цепочки
+        return Mono.defer(() -> fill(new long[count], 0));
+    }
+
+    private Mono<long[]> fill(long[] ids, int filled) {
+        IdBlock block = current.get();
+        int taken = block.take(ids, filled);
+        int remaining = ids.length - taken;
+        if (remaining == 0) {
+            return Mono.just(ids);
+        }
+        if (remaining >= ALLOCATION_SIZE) {
+            // большой запрос получает свои блоки, общий блок не меняется
+            // запас в один идентификатор на случай hi = 0
+            return nextHiValues((remaining + ALLOCATION_SIZE) / ALLOCATION_SIZE)
+                    .reduce(taken, (filledNow, hi) -> new IdBlock(hi).take(ids, filledNow))
+                    .thenReturn(ids);
+        }
+        return nextHiValues(1)
+                .single()
+                .flatMap(hi -> {
+                    IdBlock next = new IdBlock(hi);
+                    if (current.compareAndSet(block, next)) {
+                        return fill(ids, taken);
+                    }
+                    // общий блок уже заменён другим подписчиком, остаток своего пропускается
+                    return fill(ids, next.take(ids, taken));
+                });
+    }
+
+    private Flux<Long> nextHiValues(int count) {
+        final String NEXT_VALUE_SQL = "SELECT nextval('sequence')";
+
+        return Flux.range(0, count)
+                .concatMap(i -> databaseClient.sql(NEXT_VALUE_SQL)
+                        .map(row -> row.get(0, Long.class))
+                        .one());
+    }
+}
@@ -2,19 +2,46 @@ package com.edu.ulab.app.service;
 
 
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.BookPatchDto;
+import org.springframework.dao.OptimisticLockingFailureException;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface BookService {
     BookDto createBook(BookDto bookDto);
 
+    /**
+     * @return созданные книги с выданными идентификаторами в порядке {@code bookDtos}
+     */
+    List<BookDto> createBooks(List<BookDto> bookDtos);
+
     BookDto updateBook(BookDto bookDto);
 
+    List<BookDto> updateBooks(List<BookDto> bookDtos);
+
+    /**
+     * Изменяет только заданные поля книги пользователя {@code patch.userId} одним {@code UPDATE},
+     * не читая книгу заранее.
+     *
+     * @return новая версия книги
+     * @throws OptimisticLockingFailureException если {@code patch.version} задана и не совпала
+     */
+    long patchBook(BookPatchDto patch);
+
     BookDto getBookById(Long id);
 
     void deleteBookById(Long id);
 
+    void deleteBooksByIds(List<Long> ids);
+
     List<BookDto> getBooksByUserId(Long userId);
 
+    /**
+     * @return идентификаторы книг по ID пользователя; пользователи без книг в результат не попадают
+     */
+    Map<Long, List<Long>> getBookIdsByUserIds(Collection<Long> userIds);
+
     void deleteBooksByUserId(Long id);
 }
@@ -0,0 +1,32 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.BookDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неблокирующий аналог {@link BookService}.
+ */
+public interface ReactiveBookService {
+    /**
+     * @return созданные книги с выданными идентификаторами в порядке {@code bookDtos}
+     */
+    Flux<BookDto> createBooks(List<BookDto> bookDtos);
+
+    Flux<BookDto> updateBooks(List<BookDto> bookDtos);
+
+    Mono<Void> deleteBooksByIds(List<Long> ids);
+
+    Flux<BookDto> getBooksByUserId(Long userId);
+
+    /**
+     * @return идентификаторы книг по ID пользователя; пользователи без книг в результат не попадают
+     */
+    Mono<Map<Long, List<Long>>> getBookIdsByUserIds(Collection<Long> userIds);
+
+    Mono<Void> deleteBooksByUserId(Long id);
+}
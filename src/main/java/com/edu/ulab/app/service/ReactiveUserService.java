@@ -0,0 +1,31 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Неблокирующий аналог {@link UserService}.
+ */
+public interface ReactiveUserService {
+    Mono<UserDto> createUser(UserDto userDto);
+
+    Mono<UserDto> updateUser(UserDto userDto);
+
+    Mono<UserDto> getUserById(Long id);
+
+    Flux<UserDto> getUsersByIds(Collection<Long> ids);
+
+    Flux<UserDto> getUsersPage(UserFilter filter, Long afterId, int limit);
+
+    Mono<Void> deleteUserById(Long id);
+
+    /**
+     * Все пользователи с книгами в порядке возрастания ID, одним запросом.
+     */
+    Flux<UserWithBooksDto> getAllUsersWithBooks();
+}
@@ -1,16 +1,58 @@
 package com.edu.ulab.app.service;
 
+import com.edu.ulab.app.dto.UserBookIdsDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.dto.UserPatchDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
 @Repository
 public interface UserService {
     UserDto createUser(UserDto userDto);
 
+    /**
+     * Обновляет пользователя и увеличивает его версию, даже если поля не изменились:
+     * версия пользователя отражает и изменения его книг.
+     *
+     * @param userDto новые значения; {@code version}, если задана, должна совпадать с сохранённой
+     * @return пользователь с новой версией
+     * @throws OptimisticLockingFailureException если версия не совпала или строку изменили параллельно
+     */
     UserDto updateUser(UserDto userDto);
 
+    /**
+     * Изменяет только заданные поля одним {@code UPDATE}, не читая пользователя заранее.
+     *
+     * @param patch заданные поля проверяются, остальные не изменяются; {@code version}, если задана,
+     *              должна совпадать с сохранённой
+     * @return новая версия пользователя
+     * @throws OptimisticLockingFailureException если версия не совпала
+     */
+    long patchUser(UserPatchDto patch);
+
     UserDto getUserById(Long id);
 
+    List<UserDto> getUsersByIds(Collection<Long> ids);
+
+    List<UserDto> getUsersPage(UserFilter filter, Long afterId, int limit);
+
+    /**
+     * @return версия пользователя и идентификаторы его книг по возрастанию
+     */
+    UserBookIdsDto getUserBookIds(Long id);
+
     void deleteUserById(Long id);
 
+    /**
+     * Передаёт всех пользователей с книгами по одному в порядке возрастания ID,
+     * не загружая весь набор в память.
+     */
+    void forEachUserWithBooks(Consumer<UserWithBooksDto> consumer);
+
 }
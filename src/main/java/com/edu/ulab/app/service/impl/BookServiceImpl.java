@@ -1,18 +1,40 @@
 package com.edu.ulab.app.service.impl;
 
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.BookPatchDto;
 import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotValidException;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.repository.codec.BookRowCodec;
+import com.edu.ulab.app.repository.codec.RowCodec;
+import com.edu.ulab.app.repository.projection.UserBookId;
 import com.edu.ulab.app.service.BookService;
 import com.edu.ulab.app.validation.BookValidator;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.persistence.EntityManager;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service("jpaBookService")
@@ -22,21 +44,102 @@ public class BookServiceImpl implements BookService {
 
     private final BookMapper bookMapper;
 
+    private final PooledIdAllocator idAllocator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}")
+    private int batchSize;
+
+    @Value("${app.jpa.stateless-insert-threshold:1000}")
+    private int statelessInsertThreshold;
+
     public BookServiceImpl(BookRepository bookRepository,
-                           BookMapper bookMapper) {
+                           BookMapper bookMapper,
+                           PooledIdAllocator idAllocator) {
         this.bookRepository = bookRepository;
         this.bookMapper = bookMapper;
+        this.idAllocator = idAllocator;
     }
 
     @Override
     public BookDto createBook(BookDto bookDto) {
         Book book = bookMapper.bookDtoToBook(bookDto);
-        log.info("Mapped book: {}", book);
+        log.debug("Mapped book: {}", book);
         Book savedBook = bookRepository.save(book);
-        log.info("Saved book: {}", savedBook);
+        log.debug("Saved book: {}", savedBook);
         return bookMapper.bookToBookDto(savedBook);
     }
 
+    @Transactional
+    @Override
+    public List<BookDto> createBooks(List<BookDto> bookDtos) {
+        if (bookDtos.size() >= statelessInsertThreshold) {
+            insertBatched(bookDtos);
+        } else {
+            List<Book> books = bookDtos.stream()
+                    .map(bookMapper::bookDtoToBook)
+                    .toList();
+            persistInBatches(books);
+            for (int i = 0; i < books.size(); i++) {
+                bookDtos.get(i).setId(books.get(i).getId());
+                bookDtos.get(i).setVersion(books.get(i).getVersion());
+            }
+        }
+        log.info("Saved {} books", bookDtos.size());
+        return bookDtos;
+    }
+
+    // flush/clear после каждой пачки, чтобы контекст персистентности не рос
+    // вместе со списком книг, а INSERT уходили JDBC-батчами
+    private void persistInBatches(List<Book> books) {
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            book.setPerson(entityManager.getReference(Person.class, book.getPerson().getId()));
+            entityManager.persist(book);
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    // JDBC-батч на соединении текущей транзакции без контекста персистентности и dirty checking,
+    // идентификаторы выдаются по тому же hi/lo, что и у генератора sequence
+    private void insertBatched(List<BookDto> bookDtos) {
+        long[] ids = idAllocator.nextIds(bookDtos.size());
+        for (int i = 0; i < bookDtos.size(); i++) {
+            bookDtos.get(i).setId(ids[i]);
+            bookDtos.get(i).setVersion(0L);
+        }
+        JdbcBatchInsert.insert(entityManager, BookRowCodec.INSTANCE, bookDtos, batchSize);
+        evictBooksOfUsers(entityManager.unwrap(Session.class).getSessionFactory().getCache(), bookDtos);
+    }
+
+    // JDBC-батч пишет мимо кеша второго уровня, поэтому кешированные списки книг
+    // сбрасываются сразу и повторно после завершения транзакции, как в UserBookCache
+    private void evictBooksOfUsers(Cache cache, List<BookDto> bookDtos) {
+        Set<Long> userIds = bookDtos.stream()
+                .map(BookDto::getUserId)
+                .collect(Collectors.toSet());
+        Runnable evict = () -> {
+            cache.evictQueryRegion(BookRepository.BOOKS_BY_PERSON_REGION);
+            userIds.forEach(userId -> cache.evictCollectionData(Person.BOOKS_ROLE, userId));
+        };
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict.run();
+                }
+            });
+        }
+    }
+
     @Override
     public BookDto updateBook(BookDto bookDto) {
         BookDto existBook = getBookById(bookDto.getId());
@@ -53,15 +156,73 @@ public class BookServiceImpl implements BookService {
             existBook.setPageCount(bookDto.getPageCount());
         }
 
+        // merge сравнивает версию с сохранённой и при расхождении отклоняет изменение
+        if (bookDto.getVersion() != null) {
+            existBook.setVersion(bookDto.getVersion());
+        }
+
         if (BookValidator.isValidBook(existBook)) {
             existBook = bookMapper.bookToBookDto(bookRepository.save(bookMapper.bookDtoToBook(existBook)));
-            log.info("Update book: {}", existBook);
+            log.debug("Update book: {}", existBook);
         }
 
         return existBook;
     }
 
 
+    // Книги обычно уже находятся в контексте персистентности транзакции фасада,
+    // поэтому merge не делает повторный select, а UPDATE уходят JDBC-батчем.
+    // Версии книг должны быть заданы: merge и UPDATE проверяют их
+    @Transactional
+    @Override
+    public List<BookDto> updateBooks(List<BookDto> bookDtos) {
+        List<Book> books = new ArrayList<>(bookDtos.size());
+        try {
+            for (BookDto bookDto : bookDtos) {
+                Book book = bookMapper.bookDtoToBook(bookDto);
+                book.setPerson(entityManager.getReference(Person.class, bookDto.getUserId()));
+                books.add(entityManager.merge(book));
+            }
+            entityManager.flush();
+        } catch (OptimisticLockException e) {
+            throw new ObjectOptimisticLockingFailureException(e.getMessage(), e);
+        }
+        for (int i = 0; i < books.size(); i++) {
+            bookDtos.get(i).setVersion(books.get(i).getVersion());
+        }
+        log.info("Updated {} books", bookDtos.size());
+        return bookDtos;
+    }
+
+    // UPDATE заданных полей без загрузки сущности, книга другого пользователя не обновляется
+    // условием PERSON_ID. Новая версия возвращается тем же запросом
+    @Transactional
+    @Override
+    public long patchBook(BookPatchDto patch) {
+        if (patch.getId() == null || patch.getUserId() == null) {
+            throw new NotValidException("ID must be not null");
+        }
+        if (!BookValidator.isValidBookPatch(patch)) {
+            throw new NotValidException("Not valid data: " + patch);
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(RowCodec.ID_COLUMN, patch.getId());
+        keys.put("PERSON_ID", patch.getUserId());
+        if (patch.getVersion() != null) {
+            keys.put(RowCodec.VERSION_COLUMN, patch.getVersion());
+        }
+        Long version = JdbcPatch.patch(entityManager, BookRowCodec.INSTANCE, Book.class, patch.getId(),
+                BookRowCodec.INSTANCE.patchValues(patch), keys);
+        if (version == null) {
+            if (!bookRepository.existsByIdAndPersonId(patch.getId(), patch.getUserId())) {
+                throw new NotFoundException("Book with ID=" + patch.getId() + " not found!");
+            }
+            throw new ObjectOptimisticLockingFailureException(Book.class, patch.getId());
+        }
+        log.info("Book with ID={} successfully patched", patch.getId());
+        return version;
+    }
+
     @Override
     public BookDto getBookById(Long id) {
         Book book = bookRepository.findById(id)
@@ -78,6 +239,17 @@ public class BookServiceImpl implements BookService {
                 .toList();
     }
 
+    @Override
+    public Map<Long, List<Long>> getBookIdsByUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        return bookRepository.findBookIdsByPersonIdIn(userIds)
+                .stream()
+                .collect(Collectors.groupingBy(UserBookId::getUserId,
+                        Collectors.mapping(UserBookId::getBookId, Collectors.toList())));
+    }
+
     @Override
     public void deleteBookById(Long id) {
         try {
@@ -88,6 +260,13 @@ public class BookServiceImpl implements BookService {
         }
     }
 
+    @Transactional
+    @Override
+    public void deleteBooksByIds(List<Long> ids) {
+        bookRepository.deleteAllByIdIn(ids);
+        log.info("Deleted books with IDs={}", ids);
+    }
+
     @Transactional
     @Override
     public void deleteBooksByUserId(Long id) {
@@ -0,0 +1,194 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.BookPatchDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.storage.Storage;
+import com.edu.ulab.app.validation.BookValidator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service("inMemoryBookService")
+public class BookServiceImplInMemory implements BookService {
+    private final Storage storage;
+    private final BookMapper bookMapper;
+
+    public BookServiceImplInMemory(Storage storage,
+                                   BookMapper bookMapper) {
+        this.storage = storage;
+        this.bookMapper = bookMapper;
+    }
+
+    @Override
+    public BookDto createBook(BookDto bookDto) {
+        if (bookDto.getUserId() == null || !BookValidator.isValidBook(bookDto)) {
+            throw new NotValidException("Not valid data: " + bookDto);
+        }
+        Book savedBook = storage.saveBook(bookMapper.bookDtoToBook(bookDto));
+        log.info("Saved book: {}", savedBook.getId());
+        return bookMapper.bookToBookDto(savedBook);
+    }
+
+    @Override
+    public List<BookDto> createBooks(List<BookDto> bookDtos) {
+        bookDtos.forEach(bookDto -> {
+            if (bookDto.getUserId() == null || !BookValidator.isValidBook(bookDto)) {
+                throw new NotValidException("Not valid data: " + bookDto);
+            }
+        });
+        return bookDtos.stream()
+                .map(bookMapper::bookDtoToBook)
+                .map(storage::saveBook)
+                .map(bookMapper::bookToBookDto)
+                .toList();
+    }
+
+    @Override
+    public BookDto updateBook(BookDto bookDto) {
+        BookDto existBook = getBookById(bookDto.getId());
+        if (bookDto.getVersion() != null && !bookDto.getVersion().equals(existBook.getVersion())) {
+            throw new OptimisticLockingFailureException("Book with ID=" + bookDto.getId()
+                    + " and VERSION=" + bookDto.getVersion() + " was modified concurrently");
+        }
+
+        if (bookDto.getUserId() != null) {
+            existBook.setUserId(bookDto.getUserId());
+        }
+
+        if (bookDto.getTitle() != null) {
+            existBook.setTitle(bookDto.getTitle());
+        }
+
+        if (bookDto.getAuthor() != null) {
+            existBook.setAuthor(bookDto.getAuthor());
+        }
+
+        if (bookDto.getPageCount() != 0) {
+            existBook.setPageCount(bookDto.getPageCount());
+        }
+
+        if (!BookValidator.isValidBook(existBook)) {
+            throw new NotValidException("Not valid data: " + existBook);
+        }
+
+        existBook.setVersion(existBook.getVersion() + 1);
+        Book updatedBook = storage.updateBook(bookMapper.bookDtoToBook(existBook))
+                .orElseThrow(() -> new NotFoundException("Book with ID=" + bookDto.getId() + " not found!"));
+        log.info("Book with ID={} successfully update", updatedBook.getId());
+        return bookMapper.bookToBookDto(updatedBook);
+    }
+
+    @Override
+    public List<BookDto> updateBooks(List<BookDto> bookDtos) {
+        return bookDtos.stream()
+                .map(this::updateBook)
+                .toList();
+    }
+
+    @Override
+    public long patchBook(BookPatchDto patch) {
+        if (!BookValidator.isValidBookPatch(patch)) {
+            throw new NotValidException("Not valid data: " + patch);
+        }
+        BookDto existBook = getBookById(patch.getId());
+        if (!existBook.getUserId().equals(patch.getUserId())) {
+            throw new NotFoundException("Book with ID=" + patch.getId() + " not found!");
+        }
+        if (patch.getVersion() != null && !patch.getVersion().equals(existBook.getVersion())) {
+            throw new OptimisticLockingFailureException("Book with ID=" + patch.getId()
+                    + " and VERSION=" + patch.getVersion() + " was modified concurrently");
+        }
+
+        if (patch.getTitle() != null) {
+            existBook.setTitle(patch.getTitle());
+        }
+
+        if (patch.getAuthor() != null) {
+            existBook.setAuthor(patch.getAuthor());
+        }
+
+        if (patch.getPageCount() != null) {
+            existBook.setPageCount(patch.getPageCount());
+        }
+
+        existBook.setVersion(existBook.getVersion() + 1);
+        storage.updateBook(bookMapper.bookDtoToBook(existBook))
+                .orElseThrow(() -> new NotFoundException("Book with ID=" + patch.getId() + " not found!"));
+        log.info("Book with ID={} successfully patched", patch.getId());
+        return existBook.getVersion();
+    }
+
+    @Override
+    public BookDto getBookById(Long id) {
+        if (id == null) {
+            throw new NotValidException("ID must be not null");
+        }
+        Book book = storage.findBookById(id)
+                .orElseThrow(() -> new NotFoundException("Book with ID=" + id + " not found!"));
+        return bookMapper.bookToBookDto(book);
+    }
+
+    @Override
+    public void deleteBookById(Long id) {
+        if (id == null) {
+            throw new NotValidException("ID must be not null");
+        }
+        if (!storage.deleteBookById(id)) {
+            throw new NotFoundException("Book with ID=" + id + " not found!");
+        }
+        log.info("Deleted book with ID={}", id);
+    }
+
+    @Override
+    public void deleteBooksByIds(List<Long> ids) {
+        ids.forEach(storage::deleteBookById);
+        log.info("Deleted books with IDs={}", ids);
+    }
+
+    @Override
+    public List<BookDto> getBooksByUserId(Long userId) {
+        if (userId == null) {
+            throw new NotValidException("ID must be not null");
+        }
+        return storage.findBooksByUserId(userId)
+                .orElseThrow(() -> new NotFoundException("User with ID=" + userId + " not found!"))
+                .stream()
+                .map(bookMapper::bookToBookDto)
+                .toList();
+    }
+
+    @Override
+    public Map<Long, List<Long>> getBookIdsByUserIds(Collection<Long> userIds) {
+        Map<Long, List<Long>> bookIdsByUserId = new HashMap<>();
+        for (Long userId : userIds) {
+            storage.findBooksByUserId(userId)
+                    .filter(books -> !books.isEmpty())
+                    .ifPresent(books -> bookIdsByUserId.put(userId, books.stream()
+                            .map(Book::getId)
+                            .sorted()
+                            .toList()));
+        }
+        return bookIdsByUserId;
+    }
+
+    @Override
+    public void deleteBooksByUserId(Long id) {
+        if (id == null) {
+            throw new NotValidException("ID must be not null");
+        }
+        if (!storage.deleteBooksByUserId(id)) {
+            throw new NotFoundException("User with ID=" + id + " not found!");
+        }
+    }
+}
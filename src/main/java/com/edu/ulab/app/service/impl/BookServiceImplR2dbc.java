@@ -0,0 +1,117 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.entity.r2dbc.BookRow;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.repository.r2dbc.BookR2dbcRepository;
+import com.edu.ulab.app.repository.r2dbc.R2dbcSequenceRepository;
+import com.edu.ulab.app.service.ReactiveBookService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service("r2dbcBookService")
+public class BookServiceImplR2dbc implements ReactiveBookService {
+    private final BookR2dbcRepository bookRepository;
+    private final R2dbcSequenceRepository sequenceRepository;
+    private final R2dbcEntityTemplate template;
+    private final DatabaseClient databaseClient;
+    private final BookMapper bookMapper;
+
+    public BookServiceImplR2dbc(BookR2dbcRepository bookRepository,
+                                R2dbcSequenceRepository sequenceRepository,
+                                R2dbcEntityTemplate template,
+                                DatabaseClient databaseClient,
+                                BookMapper bookMapper) {
+        this.bookRepository = bookRepository;
+        this.sequenceRepository = sequenceRepository;
+        this.template = template;
+        this.databaseClient = databaseClient;
+        this.bookMapper = bookMapper;
+    }
+
+    @Override
+    public Flux<BookDto> createBooks(List<BookDto> bookDtos) {
+        if (bookDtos.isEmpty()) {
+            return Flux.empty();
+        }
+        return sequenceRepository.nextIds(bookDtos.size())
+                .flatMapMany(ids -> Flux.range(0, bookDtos.size())
+                        .concatMap(index -> {
+                            BookDto bookDto = bookDtos.get(index);
+                            bookDto.setId(ids[index]);
+                            bookDto.setVersion(0L);
+                            return template.insert(bookMapper.bookDtoToBookRow(bookDto)).thenReturn(bookDto);
+                        }))
+                .doOnComplete(() -> log.info("Created {} books", bookDtos.size()));
+    }
+
+    // Книги обновляются по версии, прочитанной вместе с набором книг пользователя
+    @Override
+    public Flux<BookDto> updateBooks(List<BookDto> bookDtos) {
+        final String UPDATE_BOOK_SQL = "UPDATE ulab_edu.book SET person_id = :personId, title = :title, " +
+                "author = :author, page_count = :pageCount, version = version + 1 WHERE id = :id AND version = :version";
+
+        return Flux.fromIterable(bookDtos)
+                .concatMap(bookDto -> databaseClient.sql(UPDATE_BOOK_SQL)
+                        .bind("personId", bookDto.getUserId())
+                        .bind("title", bookDto.getTitle())
+                        .bind("author", bookDto.getAuthor())
+                        .bind("pageCount", bookDto.getPageCount())
+                        .bind("id", bookDto.getId())
+                        .bind("version", bookDto.getVersion())
+                        .fetch()
+                        .rowsUpdated()
+                        .flatMap(rows -> {
+                            if (rows == 0) {
+                                return Mono.error(new OptimisticLockingFailureException("Book with ID=" + bookDto.getId()
+                                        + " and VERSION=" + bookDto.getVersion() + " was modified or deleted concurrently"));
+                            }
+                            bookDto.setVersion(bookDto.getVersion() + 1);
+                            return Mono.just(bookDto);
+                        }))
+                .doOnComplete(() -> log.info("Updated {} books", bookDtos.size()));
+    }
+
+    @Override
+    public Mono<Void> deleteBooksByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.empty();
+        }
+        return bookRepository.deleteAllByIdIn(ids)
+                .doOnSuccess(rows -> log.info("Deleted books with IDs={}", ids))
+                .then();
+    }
+
+    @Override
+    public Flux<BookDto> getBooksByUserId(Long userId) {
+        return bookRepository.findAllByPersonIdOrderById(userId)
+                .map(bookMapper::bookRowToBookDto);
+    }
+
+    @Override
+    public Mono<Map<Long, List<Long>>> getBookIdsByUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return bookRepository.findAllByPersonIdInOrderByPersonIdAscIdAsc(userIds)
+                .collect(Collectors.groupingBy(BookRow::getPersonId, LinkedHashMap::new,
+                        Collectors.mapping(BookRow::getId, Collectors.toList())));
+    }
+
+    @Override
+    public Mono<Void> deleteBooksByUserId(Long id) {
+        return bookRepository.deleteByPersonId(id).then();
+    }
+}
@@ -1,98 +1,149 @@
 package com.edu.ulab.app.service.impl;
 
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.BookPatchDto;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.repository.codec.BookRowCodec;
+import com.edu.ulab.app.repository.codec.RowCodec;
 import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.validation.BookValidator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Service;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 
 @Slf4j
 @Service("jdbcBookService")
 public class BookServiceImplTemplate implements BookService {
+    private static final BookRowCodec BOOK_CODEC = BookRowCodec.INSTANCE;
+    private static final String INSERT_SQL = BOOK_CODEC.insertSql(1);
+    private static final String GET_SQL = BOOK_CODEC.selectSql() + " WHERE ID = ?";
+    private static final String GET_BOOKS_SQL = BOOK_CODEC.selectSql() + " WHERE PERSON_ID = ?";
+    // Число строк в одном многострочном INSERT: 5 параметров на строку,
+    // лимит драйвера PostgreSQL — 32767 параметров на запрос
+    private static final int INSERT_BATCH_SIZE = 500;
 
     private final JdbcTemplate jdbcTemplate;
+    private final PooledIdAllocator idAllocator;
 
-    public BookServiceImplTemplate(JdbcTemplate jdbcTemplate) {
+    public BookServiceImplTemplate(JdbcTemplate jdbcTemplate, PooledIdAllocator idAllocator) {
         this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
     }
 
     @Override
     public BookDto createBook(BookDto bookDto) {
-        final String INSERT_SQL = "INSERT INTO BOOK(TITLE, AUTHOR, PAGE_COUNT, PERSON_ID) VALUES (?,?,?,?)";
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                new PreparedStatementCreator() {
-                    public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
-                        PreparedStatement ps =
-                                connection.prepareStatement(INSERT_SQL, new String[]{"id"});
-                        ps.setString(1, bookDto.getTitle());
-                        ps.setString(2, bookDto.getAuthor());
-                        ps.setLong(3, bookDto.getPageCount());
-                        ps.setLong(4, bookDto.getUserId());
-                        return ps;
-                    }
-                },
-                keyHolder);
-
-        bookDto.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        bookDto.setId(idAllocator.nextId());
+        jdbcTemplate.update(INSERT_SQL, ps -> BOOK_CODEC.bind(ps, 1, bookDto));
         return bookDto;
     }
 
+    // Идентификаторы выдаются до вставки одним обращением к последовательности на блок,
+    // поэтому многострочный INSERT не возвращает ключи
     @Override
-    public BookDto updateBook(BookDto bookDto) {
-        final String UPDATE_SQL = "UPDATE BOOK SET " +
-                "TITLE = ?, AUTHOR = ?, PAGE_COUNT = ?, PERSON_ID = ? " +
-                "WHERE ID = ?";
+    public List<BookDto> createBooks(List<BookDto> bookDtos) {
+        long[] ids = idAllocator.nextIds(bookDtos.size());
+        for (int i = 0; i < bookDtos.size(); i++) {
+            bookDtos.get(i).setId(ids[i]);
+        }
+        for (int from = 0; from < bookDtos.size(); from += INSERT_BATCH_SIZE) {
+            insertBooks(bookDtos.subList(from, Math.min(from + INSERT_BATCH_SIZE, bookDtos.size())));
+        }
+        log.info("Created {} books", bookDtos.size());
+        return bookDtos;
+    }
 
+    private void insertBooks(List<BookDto> bookDtos) {
+        jdbcTemplate.update(BOOK_CODEC.insertSql(bookDtos.size()), ps -> {
+            int index = 1;
+            for (BookDto bookDto : bookDtos) {
+                index = BOOK_CODEC.bind(ps, index, bookDto);
+            }
+        });
+    }
+
+    @Override
+    public BookDto updateBook(BookDto bookDto) {
         if (bookDto.getId() == null) {
             throw new NotValidException("ID must be not null");
         }
-        if (getBookById(bookDto.getId()) != null) {
-            jdbcTemplate.update(UPDATE_SQL,
-                    bookDto.getTitle(),
-                    bookDto.getAuthor(),
-                    bookDto.getPageCount(),
-                    bookDto.getUserId(),
-                    bookDto.getId());
-            log.info("Book with ID={} successfully update", bookDto.getId());
-            return bookDto;
-        } else {
-            throw new NotFoundException("Book with ID=" + bookDto.getId() + " not found!");
+        if (bookDto.getVersion() == null) {
+            bookDto.setVersion(getBookById(bookDto.getId()).getVersion());
+        }
+        int updated = jdbcTemplate.update(BOOK_CODEC.updateSql(), ps -> BOOK_CODEC.bindUpdate(ps, bookDto));
+        if (updated == 0) {
+            // NotFoundException, если книгу удалили
+            getBookById(bookDto.getId());
         }
+        BOOK_CODEC.checkUpdated(updated, bookDto);
+        bookDto.setVersion(bookDto.getVersion() + 1);
+        log.info("Book with ID={} successfully update", bookDto.getId());
+        return bookDto;
     }
 
+    // Версии книг должны быть заданы: UPDATE выполняется по ID и версии
     @Override
-    public BookDto getBookById(Long id) {
-        final String GET_SQL = "SELECT * FROM BOOK WHERE ID = ?";
+    public List<BookDto> updateBooks(List<BookDto> bookDtos) {
+        int[][] updated = jdbcTemplate.batchUpdate(BOOK_CODEC.updateSql(), bookDtos, INSERT_BATCH_SIZE,
+                BOOK_CODEC::bindUpdate);
+        int index = 0;
+        for (int[] batch : updated) {
+            for (int rows : batch) {
+                BookDto bookDto = bookDtos.get(index++);
+                BOOK_CODEC.checkUpdated(rows, bookDto);
+                bookDto.setVersion(bookDto.getVersion() + 1);
+            }
+        }
+        log.info("Updated {} books", bookDtos.size());
+        return bookDtos;
+    }
 
-        if (id == null) {
+    // Книга другого пользователя не обновляется условием PERSON_ID. Строка читается
+    // только если ничего не обновлено, чтобы отличить отсутствие книги от изменения
+    @Override
+    public long patchBook(BookPatchDto patch) {
+        if (patch.getId() == null || patch.getUserId() == null) {
             throw new NotValidException("ID must be not null");
         }
-        SqlRowSet bookRows = jdbcTemplate.queryForRowSet(GET_SQL, id);
-        BookDto bookDto;
-        if (bookRows.first()) {
-            bookDto = new BookDto(
-                    bookRows.getLong("ID"),
-                    bookRows.getLong("USER_ID"),
-                    bookRows.getString("TITLE"),
-                    bookRows.getString("AUTHOR"),
-                    bookRows.getInt("PAGE_COUNT"));
-        } else {
-            throw new NotFoundException("Book with ID=" + id + " not found!");
+        if (!BookValidator.isValidBookPatch(patch)) {
+            throw new NotValidException("Not valid data: " + patch);
         }
-        return bookDto;
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(RowCodec.ID_COLUMN, patch.getId());
+        keys.put("PERSON_ID", patch.getUserId());
+        if (patch.getVersion() != null) {
+            keys.put(RowCodec.VERSION_COLUMN, patch.getVersion());
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int updated = jdbcTemplate.update(BOOK_CODEC.patchStatement(BOOK_CODEC.patchValues(patch), keys), keyHolder);
+        if (updated == 0 && !patch.getUserId().equals(getBookById(patch.getId()).getUserId())) {
+            throw new NotFoundException("Book with ID=" + patch.getId() + " not found!");
+        }
+        BOOK_CODEC.checkUpdated(updated, patch.getId(), patch.getVersion());
+        log.info("Book with ID={} successfully patched", patch.getId());
+        return keyHolder.getKey().longValue();
+    }
+
+    @Override
+    public BookDto getBookById(Long id) {
+        if (id == null) {
+            throw new NotValidException("ID must be not null");
+        }
+        return jdbcTemplate.query(GET_SQL, BOOK_CODEC.rowMapper(), id)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Book with ID=" + id + " not found!"));
     }
 
     @Override
@@ -108,6 +159,15 @@ public class BookServiceImplTemplate implements BookService {
         }
     }
 
+    @Override
+    public void deleteBooksByIds(List<Long> ids) {
+        final String DELETE_SQL = "DELETE FROM BOOK WHERE ID = ANY(?)";
+
+        jdbcTemplate.update(DELETE_SQL, ps ->
+                ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())));
+        log.info("Deleted books with IDs={}", ids);
+    }
+
     @Override
     public void deleteBooksByUserId(Long id) {
         final String DELETE_SQL = "DELETE FROM BOOK WHERE PERSON_ID = ? ";
@@ -121,16 +181,24 @@ public class BookServiceImplTemplate implements BookService {
         }
     }
 
+    @Override
+    public Map<Long, List<Long>> getBookIdsByUserIds(Collection<Long> userIds) {
+        final String GET_BOOK_IDS_SQL = "SELECT PERSON_ID, ID FROM BOOK WHERE PERSON_ID = ANY(?) ORDER BY PERSON_ID, ID";
+
+        Map<Long, List<Long>> bookIdsByUserId = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return bookIdsByUserId;
+        }
+        jdbcTemplate.query(GET_BOOK_IDS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", userIds.toArray())),
+                (RowCallbackHandler) rs -> bookIdsByUserId
+                        .computeIfAbsent(rs.getLong("PERSON_ID"), userId -> new ArrayList<>())
+                        .add(rs.getLong("ID")));
+        return bookIdsByUserId;
+    }
+
     @Override
     public List<BookDto> getBooksByUserId(Long userId) {
-        final String GET_BOOKS_SQL = "SELECT * FROM BOOK WHERE PERSON_ID = ? ";
-
-        return jdbcTemplate.query(GET_BOOKS_SQL, (rs, rowNum) -> new BookDto(
-                        rs.getLong("ID"),
-                        rs.getLong("USER_ID"),
-                        rs.getString("TITLE"),
-                        rs.getString("AUTHOR"),
-                        rs.getInt("PAGE_COUNT")),
-                userId);
+        return jdbcTemplate.query(GET_BOOKS_SQL, BOOK_CODEC.rowMapper(), userId);
     }
 }
@@ -0,0 +1,37 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.repository.codec.RowCodec;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.util.List;
+
+/**
+ * Вставка большого списка строк JDBC-батчем на соединении текущей транзакции Hibernate,
+ * без контекста персистентности и кеша второго уровня. Идентификаторы строк должны быть
+ * заданы заранее, например {@link com.edu.ulab.app.repository.PooledIdAllocator}.
+ */
+final class JdbcBatchInsert {
+
+    private JdbcBatchInsert() {
+    }
+
+    static <T> void insert(EntityManager entityManager, RowCodec<T> codec, List<T> rows, int batchSize) {
+        Session session = entityManager.unwrap(Session.class);
+        // ожидающие INSERT контекста должны уйти раньше, например строка пользователя книг
+        session.flush();
+        session.doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(codec.insertSql(1))) {
+                for (int i = 0; i < rows.size(); i++) {
+                    codec.bind(ps, 1, rows.get(i));
+                    ps.addBatch();
+                    if ((i + 1) % batchSize == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+}
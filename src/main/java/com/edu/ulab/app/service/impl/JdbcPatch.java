@@ -0,0 +1,63 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.repository.codec.RowCodec;
+import org.hibernate.Session;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+
+/**
+ * Частичное обновление строки через {@link RowCodec#patchStatement} на соединении текущей
+ * транзакции Hibernate. Новая версия приходит сгенерированным ключом того же запроса,
+ * а из кеша второго уровня сбрасывается только обновлённая сущность.
+ */
+final class JdbcPatch {
+
+    private JdbcPatch() {
+    }
+
+    /**
+     * @return новая версия или {@code null}, если условиям {@code keys} не отвечает ни одна строка
+     */
+    static Long patch(EntityManager entityManager, RowCodec<?> codec, Class<?> entityClass, long id,
+                      Map<String, ?> values, Map<String, ?> keys) {
+        PreparedStatementCreator statement = codec.patchStatement(values, keys);
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+        Long version = session.doReturningWork(connection -> {
+            try (PreparedStatement ps = statement.createPreparedStatement(connection)) {
+                if (ps.executeUpdate() == 0) {
+                    return null;
+                }
+                try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                    generatedKeys.next();
+                    return generatedKeys.getLong(1);
+                }
+            }
+        });
+        if (version != null) {
+            evict(entityManager.getEntityManagerFactory().getCache(), entityClass, id);
+        }
+        return version;
+    }
+
+    // Запрос идёт мимо Hibernate: сущность сбрасывается сразу и повторно после завершения
+    // транзакции, чтобы параллельное чтение не вернуло в кеш старую строку
+    private static void evict(Cache cache, Class<?> entityClass, long id) {
+        cache.evict(entityClass, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(entityClass, id);
+                }
+            });
+        }
+    }
+}
@@ -1,16 +1,44 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBookIdsDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.dto.UserPatchDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
 import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.exception.NotValidException;
 import com.edu.ulab.app.mapper.UserMapper;
 import com.edu.ulab.app.repository.UserRepository;
+import com.edu.ulab.app.repository.codec.RowCodec;
+import com.edu.ulab.app.repository.codec.UserRowCodec;
+import com.edu.ulab.app.repository.projection.UserBookRow;
+import com.edu.ulab.app.repository.projection.UserVersionBookId;
 import com.edu.ulab.app.service.UserService;
 import com.edu.ulab.app.validation.UserValidator;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service("jpaUserService")
@@ -19,6 +47,9 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     public UserServiceImpl(UserRepository userRepository,
                            UserMapper userMapper) {
         this.userRepository = userRepository;
@@ -29,18 +60,30 @@ public class UserServiceImpl implements UserService {
     public UserDto createUser(UserDto userDto) {
         if (UserValidator.isValidUser(userDto)) {
             Person user = userMapper.userDtoToPerson(userDto);
-            log.info("Mapped user: {}", user);
+            log.debug("Mapped user: {}", user);
             Person savedUser = userRepository.save(user);
-            log.info("Saved user: {}", savedUser);
+            log.debug("Saved user: {}", savedUser);
             return userMapper.personToUserDto(savedUser);
         } else {
             throw new NotValidException("Not valid data: " + userDto);
         }
     }
 
+    // Пользователь читается мимо кеша второго уровня, чтобы версия сравнивалась с базой.
+    // Изменённые поля сразу уходят в UPDATE с проверкой версии; если поля не изменились,
+    // версия увеличивается при фиксации транзакции. В обоих случаях она растёт на 1
+    @Transactional
     @Override
     public UserDto updateUser(UserDto userDto) {
-        UserDto existUser = getUserById(userDto.getId());
+        Person user = Optional.ofNullable(entityManager.find(Person.class, userDto.getId(),
+                        Map.of(AvailableSettings.JPA_SHARED_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS)))
+                .orElseThrow(() -> new NotFoundException("User with ID=" + userDto.getId() + " not found!"));
+        long version = user.getVersion();
+        if (userDto.getVersion() != null && userDto.getVersion() != version) {
+            throw new ObjectOptimisticLockingFailureException(Person.class, userDto.getId());
+        }
+
+        UserDto existUser = userMapper.personToUserDto(user);
 
         if (userDto.getFullName() != null) {
             existUser.setFullName(userDto.getFullName());
@@ -55,12 +98,50 @@ public class UserServiceImpl implements UserService {
         }
 
         if (UserValidator.isValidUser(existUser)) {
-            existUser = userMapper.personToUserDto(userRepository.save(userMapper.userDtoToPerson(existUser)));
+            user.setFullName(existUser.getFullName());
+            user.setTitle(existUser.getTitle());
+            user.setAge(existUser.getAge());
+            try {
+                entityManager.flush();
+            } catch (OptimisticLockException e) {
+                throw new ObjectOptimisticLockingFailureException(Person.class, userDto.getId(), e);
+            }
+            if (user.getVersion() == version) {
+                entityManager.lock(user, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            }
+            existUser.setVersion(version + 1);
         }
 
         return existUser;
     }
 
+    // UPDATE заданных полей без загрузки сущности, новая версия возвращается тем же запросом
+    @Transactional
+    @Override
+    public long patchUser(UserPatchDto patch) {
+        if (patch.getId() == null) {
+            throw new NotValidException("ID must be not null");
+        }
+        if (!UserValidator.isValidUserPatch(patch)) {
+            throw new NotValidException("Not valid data: " + patch);
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(RowCodec.ID_COLUMN, patch.getId());
+        if (patch.getVersion() != null) {
+            keys.put(RowCodec.VERSION_COLUMN, patch.getVersion());
+        }
+        Long version = JdbcPatch.patch(entityManager, UserRowCodec.INSTANCE, Person.class, patch.getId(),
+                UserRowCodec.INSTANCE.patchValues(patch), keys);
+        if (version == null) {
+            if (!userRepository.existsById(patch.getId())) {
+                throw new NotFoundException("User with ID=" + patch.getId() + " not found!");
+            }
+            throw new ObjectOptimisticLockingFailureException(Person.class, patch.getId());
+        }
+        log.info("User with ID={} successfully patched", patch.getId());
+        return version;
+    }
+
     @Override
     public UserDto getUserById(Long id) {
         Person user = userRepository.findById(id)
@@ -68,6 +149,33 @@ public class UserServiceImpl implements UserService {
         return userMapper.personToUserDto(user);
     }
 
+    @Override
+    public List<UserDto> getUsersByIds(Collection<Long> ids) {
+        List<UserDto> users = new ArrayList<>(ids.size());
+        userRepository.findAllById(ids).forEach(user -> users.add(userMapper.personToUserDto(user)));
+        return users;
+    }
+
+    @Override
+    public List<UserDto> getUsersPage(UserFilter filter, Long afterId, int limit) {
+        return userRepository.findPage(filter, afterId == null ? 0L : afterId, limit)
+                .stream()
+                .map(userMapper::personToUserDto)
+                .toList();
+    }
+
+    @Override
+    public UserBookIdsDto getUserBookIds(Long id) {
+        List<UserVersionBookId> rows = userRepository.findBookIdsById(id);
+        if (rows.isEmpty()) {
+            throw new NotFoundException("User with ID=" + id + " not found!");
+        }
+        return new UserBookIdsDto(id, rows.get(0).getVersion(), rows.stream()
+                .map(UserVersionBookId::getBookId)
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
     @Override
     public void deleteUserById(Long id) {
         try {
@@ -77,4 +185,30 @@ public class UserServiceImpl implements UserService {
             throw new NotFoundException("User with ID=" + id + " not found!");
         }
     }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void forEachUserWithBooks(Consumer<UserWithBooksDto> consumer) {
+        try (Stream<UserBookRow> rows = userRepository.streamAllWithBooks()) {
+            UserWithBooksDto current = null;
+            for (Iterator<UserBookRow> iterator = rows.iterator(); iterator.hasNext(); ) {
+                UserBookRow row = iterator.next();
+                if (current == null || !current.getUser().getId().equals(row.getUserId())) {
+                    if (current != null) {
+                        consumer.accept(current);
+                    }
+                    current = new UserWithBooksDto(
+                            new UserDto(row.getUserId(), row.getFullName(), row.getTitle(), row.getAge()),
+                            new ArrayList<>());
+                }
+                if (row.getBookId() != null) {
+                    current.getBooks().add(new BookDto(row.getBookId(), row.getUserId(),
+                            row.getBookTitle(), row.getAuthor(), row.getPageCount()));
+                }
+            }
+            if (current != null) {
+                consumer.accept(current);
+            }
+        }
+    }
 }
@@ -0,0 +1,188 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.UserBookIdsDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.dto.UserPatchDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.storage.Storage;
+import com.edu.ulab.app.validation.UserValidator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@Slf4j
+@Service("inMemoryUserService")
+public class UserServiceImplInMemory implements UserService {
+    private final Storage storage;
+    private final UserMapper userMapper;
+    private final BookMapper bookMapper;
+
+    public UserServiceImplInMemory(Storage storage,
+                                   UserMapper userMapper,
+                                   BookMapper bookMapper) {
+        this.storage = storage;
+        this.userMapper = userMapper;
+        this.bookMapper = bookMapper;
+    }
+
+    @Override
+    public UserDto createUser(UserDto userDto) {
+        if (UserValidator.isValidUser(userDto)) {
+            Person savedUser = storage.saveUser(userMapper.userDtoToPerson(userDto));
+            log.info("Saved user: {}", savedUser.getId());
+            return userMapper.personToUserDto(savedUser);
+        } else {
+            throw new NotValidException("Not valid data: " + userDto);
+        }
+    }
+
+    @Override
+    public UserDto updateUser(UserDto userDto) {
+        UserDto existUser = getUserById(userDto.getId());
+        if (userDto.getVersion() != null && !userDto.getVersion().equals(existUser.getVersion())) {
+            throw new OptimisticLockingFailureException("User with ID=" + userDto.getId()
+                    + " and VERSION=" + userDto.getVersion() + " was modified concurrently");
+        }
+
+        if (userDto.getFullName() != null) {
+            existUser.setFullName(userDto.getFullName());
+        }
+
+        if (userDto.getTitle() != null) {
+            existUser.setTitle(userDto.getTitle());
+        }
+
+        if (userDto.getAge() != 0) {
+            existUser.setAge(userDto.getAge());
+        }
+
+        if (!UserValidator.isValidUser(existUser)) {
+            throw new NotValidException("Not valid data: " + existUser);
+        }
+
+        existUser.setVersion(existUser.getVersion() + 1);
+        Person updatedUser = storage.updateUser(userMapper.userDtoToPerson(existUser))
+                .orElseThrow(() -> new NotFoundException("User with ID=" + userDto.getId() + " not found!"));
+        log.info("User with ID={} successfully update", updatedUser.getId());
+        return userMapper.personToUserDto(updatedUser);
+    }
+
+    // Запись в памяти заменяется целиком, Storage.updateUser отклонит замену,
+    // если пользователя изменили после чтения
+    @Override
+    public long patchUser(UserPatchDto patch) {
+        if (!UserValidator.isValidUserPatch(patch)) {
+            throw new NotValidException("Not valid data: " + patch);
+        }
+        UserDto existUser = getUserById(patch.getId());
+        if (patch.getVersion() != null && !patch.getVersion().equals(existUser.getVersion())) {
+            throw new OptimisticLockingFailureException("User with ID=" + patch.getId()
+                    + " and VERSION=" + patch.getVersion() + " was modified concurrently");
+        }
+
+        if (patch.getFullName() != null) {
+            existUser.setFullName(patch.getFullName());
+        }
+
+        if (patch.getTitle() != null) {
+            existUser.setTitle(patch.getTitle());
+        }
+
+        if (patch.getAge() != null) {
+            existUser.setAge(patch.getAge());
+        }
+
+        existUser.setVersion(existUser.getVersion() + 1);
+        storage.updateUser(userMapper.userDtoToPerson(existUser))
+                .orElseThrow(() -> new NotFoundException("User with ID=" + patch.getId() + " not found!"));
+        log.info("User with ID={} successfully patched", patch.getId());
+        return existUser.getVersion();
+    }
+
+    @Override
+    public UserDto getUserById(Long id) {
+        if (id == null) {
+            throw new NotValidException("ID must be not null");
+        }
+        Person user = storage.findUserById(id)
+                .orElseThrow(() -> new NotFoundException("User with ID=" + id + " not found!"));
+        return userMapper.personToUserDto(user);
+    }
+
+    @Override
+    public List<UserDto> getUsersByIds(Collection<Long> ids) {
+        return ids.stream()
+                .map(storage::findUserById)
+                .flatMap(Optional::stream)
+                .map(userMapper::personToUserDto)
+                .toList();
+    }
+
+    @Override
+    public List<UserDto> getUsersPage(UserFilter filter, Long afterId, int limit) {
+        long after = afterId == null ? 0L : afterId;
+        return storage.findUsersAfter(after)
+                .filter(user -> filter.getTitle() == null || filter.getTitle().equals(user.getTitle()))
+                .filter(user -> filter.getMinAge() == null || user.getAge() >= filter.getMinAge())
+                .filter(user -> filter.getMaxAge() == null || user.getAge() <= filter.getMaxAge())
+                .limit(limit)
+                .map(userMapper::personToUserDto)
+                .toList();
+    }
+
+    @Override
+    public UserBookIdsDto getUserBookIds(Long id) {
+        if (id == null) {
+            throw new NotValidException("ID must be not null");
+        }
+        Person user = storage.findUserById(id)
+                .orElseThrow(() -> new NotFoundException("User with ID=" + id + " not found!"));
+        List<Long> bookIds = storage.findBooksByUserId(id)
+                .orElseThrow(() -> new NotFoundException("User with ID=" + id + " not found!"))
+                .stream()
+                .map(Book::getId)
+                .toList();
+        return new UserBookIdsDto(id, user.getVersion(), bookIds);
+    }
+
+    @Override
+    public void deleteUserById(Long id) {
+        if (id == null) {
+            throw new NotValidException("ID must be not null");
+        }
+        if (!storage.deleteUserById(id)) {
+            throw new NotFoundException("User with ID=" + id + " not found!");
+        }
+        log.info("Deleted user with ID={}", id);
+    }
+
+    @Override
+    public void forEachUserWithBooks(Consumer<UserWithBooksDto> consumer) {
+        for (long id : storage.findAllUserIds()) {
+            Optional<Person> user = storage.findUserById(id);
+            Optional<List<Book>> books = storage.findBooksByUserId(id);
+            if (user.isPresent() && books.isPresent()) {
+                consumer.accept(new UserWithBooksDto(
+                        userMapper.personToUserDto(user.get()),
+                        books.get().stream()
+                                .sorted(Comparator.comparing(Book::getId))
+                                .map(bookMapper::bookToBookDto)
+                                .toList()));
+            }
+        }
+    }
+}
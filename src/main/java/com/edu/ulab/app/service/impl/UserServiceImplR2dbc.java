@@ -0,0 +1,185 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.entity.r2dbc.PersonRow;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.r2dbc.PersonR2dbcRepository;
+import com.edu.ulab.app.repository.r2dbc.R2dbcSequenceRepository;
+import com.edu.ulab.app.service.ReactiveUserService;
+import io.r2dbc.spi.Row;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.springframework.data.relational.core.query.Criteria.where;
+
+@Slf4j
+@Service("r2dbcUserService")
+public class UserServiceImplR2dbc implements ReactiveUserService {
+    private final PersonR2dbcRepository personRepository;
+    private final R2dbcSequenceRepository sequenceRepository;
+    private final R2dbcEntityTemplate template;
+    private final DatabaseClient databaseClient;
+    private final UserMapper userMapper;
+
+    public UserServiceImplR2dbc(PersonR2dbcRepository personRepository,
+                                R2dbcSequenceRepository sequenceRepository,
+                                R2dbcEntityTemplate template,
+                                DatabaseClient databaseClient,
+                                UserMapper userMapper) {
+        this.personRepository = personRepository;
+        this.sequenceRepository = sequenceRepository;
+        this.template = template;
+        this.databaseClient = databaseClient;
+        this.userMapper = userMapper;
+    }
+
+    @Override
+    public Mono<UserDto> createUser(UserDto userDto) {
+        // идентификатор задан заранее, поэтому insert, а не save репозитория
+        return sequenceRepository.nextIds(1)
+                .flatMap(ids -> {
+                    PersonRow person = userMapper.userDtoToPersonRow(userDto);
+                    person.setId(ids[0]);
+                    return template.insert(person);
+                })
+                .map(userMapper::personRowToUserDto);
+    }
+
+    // Без ожидаемой версии сначала читается текущая, как в JDBC-варианте. Ноль обновлённых
+    // строк значит, что пользователя удалили или его версия уже другая
+    @Override
+    public Mono<UserDto> updateUser(UserDto userDto) {
+        final String UPDATE_USER_SQL = "UPDATE ulab_edu.person SET full_name = :fullName, title = :title, " +
+                "age = :age, version = version + 1 WHERE id = :id AND version = :version";
+
+        if (userDto.getId() == null) {
+            return Mono.error(new NotValidException("ID must be not null"));
+        }
+        Mono<Long> expectedVersion = userDto.getVersion() == null
+                ? getUserById(userDto.getId()).map(UserDto::getVersion)
+                : Mono.just(userDto.getVersion());
+        return expectedVersion.flatMap(version -> databaseClient.sql(UPDATE_USER_SQL)
+                .bind("fullName", userDto.getFullName())
+                .bind("title", userDto.getTitle())
+                .bind("age", userDto.getAge())
+                .bind("id", userDto.getId())
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(rows -> {
+                    if (rows == 0) {
+                        // NotFoundException, если пользователя удалили
+                        return getUserById(userDto.getId())
+                                .then(Mono.error(() -> new OptimisticLockingFailureException("User with ID="
+                                        + userDto.getId() + " and VERSION=" + version + " was modified concurrently")));
+                    }
+                    userDto.setVersion(version + 1);
+                    return Mono.just(userDto);
+                }));
+    }
+
+    @Override
+    public Mono<UserDto> getUserById(Long id) {
+        if (id == null) {
+            return Mono.error(new NotValidException("ID must be not null"));
+        }
+        return personRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("User with ID=" + id + " not found!")))
+                .map(userMapper::personRowToUserDto);
+    }
+
+    @Override
+    public Flux<UserDto> getUsersByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return personRepository.findAllById(ids)
+                .map(userMapper::personRowToUserDto);
+    }
+
+    @Override
+    public Flux<UserDto> getUsersPage(UserFilter filter, Long afterId, int limit) {
+        Criteria criteria = where("id").greaterThan(afterId == null ? 0L : afterId);
+        if (filter.getTitle() != null) {
+            criteria = criteria.and("title").is(filter.getTitle());
+        }
+        if (filter.getMinAge() != null) {
+            criteria = criteria.and("age").greaterThanOrEquals(filter.getMinAge());
+        }
+        if (filter.getMaxAge() != null) {
+            criteria = criteria.and("age").lessThanOrEquals(filter.getMaxAge());
+        }
+        return template.select(PersonRow.class)
+                .matching(Query.query(criteria)
+                        .sort(Sort.by("id"))
+                        .limit(limit))
+                .all()
+                .map(userMapper::personRowToUserDto);
+    }
+
+    @Override
+    public Mono<Void> deleteUserById(Long id) {
+        if (id == null) {
+            return Mono.error(new NotValidException("ID must be not null"));
+        }
+        return template.delete(PersonRow.class)
+                .matching(Query.query(where("id").is(id)))
+                .all()
+                .flatMap(rows -> rows == 0
+                        ? Mono.error(new NotFoundException("User with ID=" + id + " not found!"))
+                        : Mono.<Void>empty())
+                .doOnSuccess(ignored -> log.info("Deleted user with ID={}", id));
+    }
+
+    @Override
+    public Flux<UserWithBooksDto> getAllUsersWithBooks() {
+        final String ALL_USERS_WITH_BOOKS_SQL = "SELECT P.ID, P.FULL_NAME, P.TITLE, P.AGE, " +
+                "B.ID AS BOOK_ID, B.TITLE AS BOOK_TITLE, B.AUTHOR, B.PAGE_COUNT " +
+                "FROM ulab_edu.person P LEFT JOIN ulab_edu.book B ON B.PERSON_ID = P.ID " +
+                "ORDER BY P.ID, B.ID";
+
+        // строки одного пользователя идут подряд и собираются в один элемент
+        return databaseClient.sql(ALL_USERS_WITH_BOOKS_SQL)
+                .map((row, metadata) -> toUserWithBook(row))
+                .all()
+                .bufferUntilChanged(userWithBook -> userWithBook.getUser().getId())
+                .map(rows -> {
+                    List<BookDto> books = new ArrayList<>(rows.size());
+                    rows.forEach(userWithBook -> books.addAll(userWithBook.getBooks()));
+                    return new UserWithBooksDto(rows.get(0).getUser(), books);
+                });
+    }
+
+    private static UserWithBooksDto toUserWithBook(Row row) {
+        Long userId = row.get("ID", Long.class);
+        UserDto user = new UserDto(userId,
+                row.get("FULL_NAME", String.class),
+                row.get("TITLE", String.class),
+                row.get("AGE", Integer.class));
+        Long bookId = row.get("BOOK_ID", Long.class);
+        List<BookDto> books = bookId == null
+                ? List.of()
+                : List.of(new BookDto(bookId, userId,
+                row.get("BOOK_TITLE", String.class),
+                row.get("AUTHOR", String.class),
+                row.get("PAGE_COUNT", Integer.class)));
+        return new UserWithBooksDto(user, books);
+    }
+}
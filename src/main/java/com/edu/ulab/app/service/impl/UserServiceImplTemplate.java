@@ -1,90 +1,183 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.dto.UserBookIdsDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.dto.UserPatchDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
 import com.edu.ulab.app.exception.NotFoundException;
 import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.repository.codec.BookRowCodec;
+import com.edu.ulab.app.repository.codec.RowCodec;
+import com.edu.ulab.app.repository.codec.UserRowCodec;
 import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.validation.UserValidator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service("jdbcUserService")
 public class UserServiceImplTemplate implements UserService {
+    private static final UserRowCodec USER_CODEC = UserRowCodec.INSTANCE;
+    private static final BookRowCodec BOOK_CODEC = BookRowCodec.INSTANCE;
+    private static final String INSERT_SQL = USER_CODEC.insertSql(1);
+    private static final String GET_SQL = USER_CODEC.selectSql() + " WHERE ID = ?";
+    private static final String GET_USERS_SQL = USER_CODEC.selectSql() + " WHERE ID = ANY(?)";
+    // Столбцы книги идут сразу за столбцами пользователя
+    private static final int BOOK_FIRST_COLUMN = USER_CODEC.columns().size() + 1;
+    private static final String EXPORT_SQL = "SELECT " + USER_CODEC.columnList("P") + ", " + BOOK_CODEC.columnList("B") +
+            " FROM PERSON P LEFT JOIN BOOK B ON B.PERSON_ID = P.ID" +
+            " ORDER BY P.ID, B.ID";
+
     private final JdbcTemplate jdbcTemplate;
+    private final PooledIdAllocator idAllocator;
+
+    @Value("${app.export.fetch-size:1000}")
+    private int exportFetchSize;
 
-    public UserServiceImplTemplate(JdbcTemplate jdbcTemplate) {
+    public UserServiceImplTemplate(JdbcTemplate jdbcTemplate, PooledIdAllocator idAllocator) {
         this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
     }
 
+    // Идентификатор выдаётся до вставки, поэтому ключ не нужно получать из базы
     @Override
     public UserDto createUser(UserDto userDto) {
-
-        final String INSERT_SQL = "INSERT INTO PERSON(FULL_NAME, TITLE, AGE) VALUES (?,?,?)";
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(
-                connection -> {
-                    PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"});
-                    ps.setString(1, userDto.getFullName());
-                    ps.setString(2, userDto.getTitle());
-                    ps.setLong(3, userDto.getAge());
-                    return ps;
-                }, keyHolder);
-
-        userDto.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        userDto.setId(idAllocator.nextId());
+        userDto.setVersion(0L);
+        jdbcTemplate.update(INSERT_SQL, ps -> USER_CODEC.bind(ps, 1, userDto));
         return userDto;
     }
 
+    // Без ожидаемой версии обновляется версия, прочитанная здесь же. UPDATE увеличивает
+    // версию и тогда, когда поля не изменились
     @Override
     public UserDto updateUser(UserDto userDto) {
-        final String UPDATE_SQL = "UPDATE PERSON SET " +
-                "FULL_NAME = ?, TITLE = ?, AGE = ? " +
-                "WHERE ID = ?";
-
         if (userDto.getId() == null) {
             throw new NotValidException("ID must be not null");
         }
-        if (getUserById(userDto.getId()) != null) {
-            jdbcTemplate.update(UPDATE_SQL,
-                    userDto.getFullName(),
-                    userDto.getTitle(),
-                    userDto.getAge(),
-                    userDto.getId());
-            log.info("User with ID={} successfully update", userDto.getId());
-            return userDto;
-        } else {
-            throw new NotFoundException("User with ID=" + userDto.getId() + " not found!");
+        if (userDto.getVersion() == null) {
+            userDto.setVersion(getUserById(userDto.getId()).getVersion());
         }
+        int updated = jdbcTemplate.update(USER_CODEC.updateSql(), ps -> USER_CODEC.bindUpdate(ps, userDto));
+        if (updated == 0) {
+            // NotFoundException, если пользователя удалили
+            getUserById(userDto.getId());
+        }
+        USER_CODEC.checkUpdated(updated, userDto);
+        userDto.setVersion(userDto.getVersion() + 1);
+        log.info("User with ID={} successfully update", userDto.getId());
+        return userDto;
+    }
+
+    // Без ожидаемой версии ноль обновлённых строк значит, что пользователя нет. С ней
+    // пользователь читается только в этом случае, чтобы отличить удаление от изменения
+    @Override
+    public long patchUser(UserPatchDto patch) {
+        if (patch.getId() == null) {
+            throw new NotValidException("ID must be not null");
+        }
+        if (!UserValidator.isValidUserPatch(patch)) {
+            throw new NotValidException("Not valid data: " + patch);
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(RowCodec.ID_COLUMN, patch.getId());
+        if (patch.getVersion() != null) {
+            keys.put(RowCodec.VERSION_COLUMN, patch.getVersion());
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int updated = jdbcTemplate.update(USER_CODEC.patchStatement(USER_CODEC.patchValues(patch), keys), keyHolder);
+        if (updated == 0) {
+            getUserById(patch.getId());
+        }
+        USER_CODEC.checkUpdated(updated, patch.getId(), patch.getVersion());
+        log.info("User with ID={} successfully patched", patch.getId());
+        return keyHolder.getKey().longValue();
     }
 
     @Override
     public UserDto getUserById(Long id) {
-        final String GET_SQL = "SELECT * FROM PERSON WHERE ID = ?";
+        if (id == null) {
+            throw new NotValidException("ID must be not null");
+        }
+        return jdbcTemplate.query(GET_SQL, USER_CODEC.rowMapper(), id)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("User with ID=" + id + " not found!"));
+    }
+
+    @Override
+    public List<UserDto> getUsersByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(GET_USERS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                USER_CODEC.rowMapper());
+    }
+
+    @Override
+    public List<UserDto> getUsersPage(UserFilter filter, Long afterId, int limit) {
+        StringBuilder pageSql = new StringBuilder(USER_CODEC.selectSql()).append(" WHERE ID > ?");
+        List<Object> args = new ArrayList<>();
+        args.add(afterId == null ? 0L : afterId);
+        if (filter.getTitle() != null) {
+            pageSql.append(" AND TITLE = ?");
+            args.add(filter.getTitle());
+        }
+        if (filter.getMinAge() != null) {
+            pageSql.append(" AND AGE >= ?");
+            args.add(filter.getMinAge());
+        }
+        if (filter.getMaxAge() != null) {
+            pageSql.append(" AND AGE <= ?");
+            args.add(filter.getMaxAge());
+        }
+        pageSql.append(" ORDER BY ID LIMIT ?");
+        args.add(limit);
+
+        return jdbcTemplate.query(pageSql.toString(), USER_CODEC.rowMapper(), args.toArray());
+    }
+
+    @Override
+    public UserBookIdsDto getUserBookIds(Long id) {
+        final String GET_BOOK_IDS_SQL = "SELECT P.ID, P.VERSION, ARRAY_REMOVE(ARRAY_AGG(B.ID ORDER BY B.ID), NULL) AS BOOK_IDS " +
+                "FROM PERSON P LEFT JOIN BOOK B ON B.PERSON_ID = P.ID " +
+                "WHERE P.ID = ? GROUP BY P.ID, P.VERSION";
 
         if (id == null) {
             throw new NotValidException("ID must be not null");
         }
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet(GET_SQL, id);
-        UserDto userDto;
-        if (userRows.first()) {
-            userDto = new UserDto(
-                    userRows.getLong("ID"),
-                    userRows.getString("FULL_NAME"),
-                    userRows.getString("TITLE"),
-                    userRows.getInt("AGE"));
-        } else {
+        List<UserBookIdsDto> rows = jdbcTemplate.query(GET_BOOK_IDS_SQL,
+                (rs, rowNum) -> new UserBookIdsDto(id, rs.getLong("VERSION"),
+                        Arrays.stream((Object[]) rs.getArray("BOOK_IDS").getArray())
+                                .map(bookId -> ((Number) bookId).longValue())
+                                .toList()),
+                id);
+        if (rows.isEmpty()) {
             throw new NotFoundException("User with ID=" + id + " not found!");
         }
-        return userDto;
+        return rows.get(0);
     }
 
     @Override
@@ -99,4 +192,33 @@ public class UserServiceImplTemplate implements UserService {
             throw new NotFoundException("User with ID=" + id + " not found!");
         }
     }
+
+    // PostgreSQL читает по курсору порциями fetchSize только вне режима autocommit,
+    // поэтому выгрузка идёт в read-only транзакции
+    @Transactional(readOnly = true)
+    @Override
+    public void forEachUserWithBooks(Consumer<UserWithBooksDto> consumer) {
+        UserWithBooksDto[] current = new UserWithBooksDto[1];
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(EXPORT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(exportFetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            long userId = rs.getLong(1);
+            if (current[0] == null || current[0].getUser().getId() != userId) {
+                if (current[0] != null) {
+                    consumer.accept(current[0]);
+                }
+                current[0] = new UserWithBooksDto(USER_CODEC.read(rs, 1), new ArrayList<>());
+            }
+            rs.getLong(BOOK_FIRST_COLUMN);
+            if (!rs.wasNull()) {
+                current[0].getBooks().add(BOOK_CODEC.read(rs, BOOK_FIRST_COLUMN));
+            }
+        });
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
+    }
 }
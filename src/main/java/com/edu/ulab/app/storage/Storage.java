@@ -1,11 +1,256 @@
 package com.edu.ulab.app.storage;
 
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotUniqueException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Потокобезопасное хранилище пользователей и книг в памяти.
+ * <p>
+ * Хранит сущности {@link Person} и {@link Book}, сохранённые экземпляры не изменяются —
+ * обновление заменяет запись целиком. Связь пользователь → книги поддерживается
+ * вторичным индексом, все изменения индекса выполняются внутри {@code compute}
+ * по ключу пользователя, поэтому операции над книгами одного пользователя атомарны.
+ */
+@Component
 public class Storage {
-    //todo создать хранилище в котором будут содержаться данные
-    // сделать абстракции через которые можно будет производить операции с хранилищем
-    // продумать логику поиска и сохранения
-    // продумать возможные ошибки
-    // учесть, что при сохранеии юзера или книги, должен генерироваться идентификатор
-    // продумать что у узера может быть много книг и нужно создать эту связь
-    // так же учесть, что методы хранилища принимают друго тип данных - учесть это в абстракции
+    private final AtomicLong idSequence = new AtomicLong();
+
+    // Упорядочены по ID, чтобы страница пользователей начиналась с нужного ID без обхода всех
+    private final NavigableMap<Long, Person> users = new ConcurrentSkipListMap<>();
+    private final Map<Long, Book> books = new ConcurrentHashMap<>();
+    private final Map<String, Long> userIdsByTitle = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> bookIdsByUserId = new ConcurrentHashMap<>();
+
+    public long nextId() {
+        return idSequence.incrementAndGet();
+    }
+
+    public Person saveUser(Person person) {
+        long id = nextId();
+        person.setId(id);
+        reserveTitle(person.getTitle(), id);
+        bookIdsByUserId.compute(id, (userId, bookIds) -> {
+            users.put(userId, person);
+            return ConcurrentHashMap.newKeySet();
+        });
+        return person;
+    }
+
+    /**
+     * Заменяет пользователя, версия {@code person} должна быть на 1 больше сохранённой.
+     *
+     * @throws OptimisticLockingFailureException если пользователя уже заменили
+     */
+    public Optional<Person> updateUser(Person person) {
+        Long id = person.getId();
+        Person[] previous = new Person[1];
+        bookIdsByUserId.computeIfPresent(id, (userId, bookIds) -> {
+            previous[0] = users.get(userId);
+            if (previous[0].getVersion() + 1 != person.getVersion()) {
+                throw new OptimisticLockingFailureException("User with ID=" + userId + " was modified concurrently");
+            }
+            if (!Objects.equals(previous[0].getTitle(), person.getTitle())) {
+                reserveTitle(person.getTitle(), userId);
+                releaseTitle(previous[0].getTitle(), userId);
+            }
+            users.put(userId, person);
+            return bookIds;
+        });
+        return previous[0] == null ? Optional.empty() : Optional.of(person);
+    }
+
+    public Optional<Person> findUserById(long id) {
+        return Optional.ofNullable(users.get(id));
+    }
+
+    /**
+     * @return идентификаторы пользователей по возрастанию на момент вызова
+     */
+    public long[] findAllUserIds() {
+        return users.keySet().stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    /**
+     * @return пользователи с ID больше {@code afterId} по возрастанию ID; поток ленивый
+     * и видит изменения, сделанные во время обхода
+     */
+    public Stream<Person> findUsersAfter(long afterId) {
+        return users.tailMap(afterId, false).values().stream();
+    }
+
+    public boolean deleteUserById(long id) {
+        Person[] removed = new Person[1];
+        bookIdsByUserId.computeIfPresent(id, (userId, bookIds) -> {
+            bookIds.forEach(books::remove);
+            removed[0] = users.remove(userId);
+            releaseTitle(removed[0].getTitle(), userId);
+            return null;
+        });
+        return removed[0] != null;
+    }
+
+    public Book saveBook(Book book) {
+        long userId = book.getPerson().getId();
+        Set<Long> userBooks = bookIdsByUserId.computeIfPresent(userId, (key, bookIds) -> {
+            long id = nextId();
+            book.setId(id);
+            books.put(id, book);
+            bookIds.add(id);
+            return bookIds;
+        });
+        if (userBooks == null) {
+            throw new NotFoundException("User with ID=" + userId + " not found!");
+        }
+        return book;
+    }
+
+    /**
+     * Заменяет книгу, версия {@code book} должна быть на 1 больше сохранённой. При смене владельца
+     * книга сначала снимается с прежнего пользователя, поэтому его параллельное удаление
+     * не заденет уже перенесённую книгу.
+     *
+     * @return {@link Optional#empty()}, если книги или её пользователя уже нет
+     * @throws NotFoundException если нет нового владельца
+     * @throws OptimisticLockingFailureException если книгу уже заменили
+     */
+    public Optional<Book> updateBook(Book book) {
+        long id = book.getId();
+        Book existBook = books.get(id);
+        if (existBook == null) {
+            return Optional.empty();
+        }
+
+        long previousUserId = existBook.getPerson().getId();
+        long userId = book.getPerson().getId();
+        boolean[] updated = new boolean[1];
+        if (previousUserId == userId) {
+            bookIdsByUserId.computeIfPresent(userId, (key, bookIds) -> {
+                if (bookIds.contains(id)) {
+                    checkVersion(books.get(id), book);
+                    updated[0] = books.replace(id, book) != null;
+                }
+                return bookIds;
+            });
+            return updated[0] ? Optional.of(book) : Optional.empty();
+        }
+
+        if (!bookIdsByUserId.containsKey(userId)) {
+            throw new NotFoundException("User with ID=" + userId + " not found!");
+        }
+        bookIdsByUserId.computeIfPresent(previousUserId, (key, bookIds) -> {
+            if (bookIds.contains(id)) {
+                checkVersion(books.get(id), book);
+                updated[0] = bookIds.remove(id);
+            }
+            return bookIds;
+        });
+        if (!updated[0]) {
+            return Optional.empty();
+        }
+        Set<Long> userBooks = bookIdsByUserId.computeIfPresent(userId, (key, bookIds) -> {
+            books.put(id, book);
+            bookIds.add(id);
+            return bookIds;
+        });
+        if (userBooks == null) {
+            // новый владелец удалён после проверки: книга возвращается прежнему или удаляется вместе с ним
+            Set<Long> previousBooks = bookIdsByUserId.computeIfPresent(previousUserId, (key, bookIds) -> {
+                bookIds.add(id);
+                return bookIds;
+            });
+            if (previousBooks == null) {
+                books.remove(id);
+            }
+            throw new NotFoundException("User with ID=" + userId + " not found!");
+        }
+        return Optional.of(book);
+    }
+
+    public Optional<Book> findBookById(long id) {
+        return Optional.ofNullable(books.get(id));
+    }
+
+    public boolean deleteBookById(long id) {
+        Book book = books.get(id);
+        if (book == null) {
+            return false;
+        }
+        Book[] removed = new Book[1];
+        bookIdsByUserId.computeIfPresent(book.getPerson().getId(), (userId, bookIds) -> {
+            removed[0] = books.remove(id);
+            bookIds.remove(id);
+            return bookIds;
+        });
+        return removed[0] != null;
+    }
+
+    /**
+     * @return книги пользователя или {@link Optional#empty()}, если пользователя нет
+     */
+    public Optional<List<Book>> findBooksByUserId(long userId) {
+        Set<Long> bookIds = bookIdsByUserId.get(userId);
+        if (bookIds == null) {
+            return Optional.empty();
+        }
+        List<Book> userBooks = new ArrayList<>(bookIds.size());
+        for (Long bookId : bookIds) {
+            Book book = books.get(bookId);
+            if (book != null) {
+                userBooks.add(book);
+            }
+        }
+        return Optional.of(userBooks);
+    }
+
+    /**
+     * @return {@code false}, если пользователя нет
+     */
+    public boolean deleteBooksByUserId(long userId) {
+        Set<Long> userBooks = bookIdsByUserId.computeIfPresent(userId, (key, bookIds) -> {
+            bookIds.forEach(books::remove);
+            bookIds.clear();
+            return bookIds;
+        });
+        return userBooks != null;
+    }
+
+    private static void checkVersion(Book previous, Book book) {
+        if (previous.getVersion() + 1 != book.getVersion()) {
+            throw new OptimisticLockingFailureException("Book with ID=" + book.getId() + " was modified concurrently");
+        }
+    }
+
+    private void reserveTitle(String title, long userId) {
+        if (title == null) {
+            return;
+        }
+        Long ownerId = userIdsByTitle.putIfAbsent(title, userId);
+        if (ownerId != null && ownerId != userId) {
+            throw new NotUniqueException("User with title=" + title + " already exists!");
+        }
+    }
+
+    private void releaseTitle(String title, long userId) {
+        if (title != null) {
+            userIdsByTitle.remove(title, userId);
+        }
+    }
 }
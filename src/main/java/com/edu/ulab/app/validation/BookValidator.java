@@ -1,6 +1,7 @@
 package com.edu.ulab.app.validation;
 
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.BookPatchDto;
 
 public class BookValidator {
     public static boolean isValidBook(BookDto bookDto){
@@ -22,4 +23,13 @@ public class BookValidator {
 
         return validTitle && validAuthor && validPageCount;
     }
+
+    // Проверяются только заданные поля, хотя бы одно должно быть задано
+    public static boolean isValidBookPatch(BookPatchDto patch) {
+        boolean changed = patch.getTitle() != null || patch.getAuthor() != null || patch.getPageCount() != null;
+        boolean validTitle = patch.getTitle() == null || !patch.getTitle().isBlank();
+        boolean validAuthor = patch.getAuthor() == null || !patch.getAuthor().isBlank();
+        boolean validPageCount = patch.getPageCount() == null || patch.getPageCount() > 0;
+        return changed && validTitle && validAuthor && validPageCount;
+    }
 }
@@ -1,6 +1,7 @@
 package com.edu.ulab.app.validation;
 
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserPatchDto;
 
 public class UserValidator {
     public static boolean isValidUser(UserDto userDto){
@@ -12,4 +13,13 @@ public class UserValidator {
         }
         return valid;
     }
+
+    // Проверяются только заданные поля, хотя бы одно должно быть задано
+    public static boolean isValidUserPatch(UserPatchDto patch) {
+        boolean changed = patch.getFullName() != null || patch.getTitle() != null || patch.getAge() != null;
+        boolean validFullName = patch.getFullName() == null || !patch.getFullName().isBlank();
+        boolean validTitle = patch.getTitle() == null || !patch.getTitle().isBlank();
+        boolean validAge = patch.getAge() == null || patch.getAge() > 0;
+        return changed && validFullName && validTitle && validAge;
+    }
 }
@@ -0,0 +1,76 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.exception.PreconditionFailedException;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Ожидаемая версия из заголовка {@code If-Match} (RFC 9110, 13.1.1).
+ * <p>
+ * ETag этого API - версия строки в кавычках. {@code If-Match} сравнивает теги строго,
+ * поэтому слабые теги {@code W/"..."} и теги не из этого API не совпадают ни с одной версией.
+ */
+final class ETagVersion {
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETagVersion() {
+    }
+
+    /**
+     * @param ifMatch значение {@code If-Match}, несколько заголовков склеены через запятую
+     * @return ожидаемая версия или {@code null}, если заголовка нет или он равен {@code *}
+     * @throws PreconditionFailedException если ни один тег не может совпасть с версией
+     * @throws NotValidException если заголовок не список entity-tag или в нём разные версии
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+        Set<Long> versions = new TreeSet<>();
+        int position = 0;
+        while (position < ifMatch.length()) {
+            char next = ifMatch.charAt(position);
+            if (next == ',' || isWhitespace(next)) {
+                position++;
+                continue;
+            }
+            boolean weak = ifMatch.startsWith(WEAK_PREFIX, position);
+            int open = weak ? position + WEAK_PREFIX.length() : position;
+            int close = open < ifMatch.length() && ifMatch.charAt(open) == '"' ? ifMatch.indexOf('"', open + 1) : -1;
+            if (close < 0) {
+                throw notValid(ifMatch);
+            }
+            String opaqueTag = ifMatch.substring(open + 1, close);
+            // после тега допустимы только пробелы до запятой или конца списка
+            position = close + 1;
+            while (position < ifMatch.length() && isWhitespace(ifMatch.charAt(position))) {
+                position++;
+            }
+            if (position < ifMatch.length() && ifMatch.charAt(position) != ',') {
+                throw notValid(ifMatch);
+            }
+            if (!weak && opaqueTag.matches("\\d{1,18}")) {
+                versions.add(Long.parseLong(opaqueTag));
+            }
+        }
+        if (versions.isEmpty()) {
+            throw new PreconditionFailedException("If-Match has no strong ETag returned by this API: " + ifMatch);
+        }
+        // условный UPDATE сравнивает с одной версией
+        if (versions.size() > 1) {
+            throw new NotValidException("If-Match must not list different versions: " + ifMatch);
+        }
+        return versions.iterator().next();
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static NotValidException notValid(String ifMatch) {
+        return new NotValidException("If-Match must be * or a list of entity tags: " + ifMatch);
+    }
+}
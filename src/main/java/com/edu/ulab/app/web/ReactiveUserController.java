@@ -0,0 +1,130 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.facade.ReactiveUserDataFacade;
+import com.edu.ulab.app.web.constant.WebConstant;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserBooksBatchResponse;
+import com.edu.ulab.app.web.response.UserPageResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.constraints.Pattern;
+import java.util.List;
+
+import static com.edu.ulab.app.web.constant.WebConstant.REQUEST_ID_PATTERN;
+import static com.edu.ulab.app.web.constant.WebConstant.RQID;
+
+/**
+ * Неблокирующая версия {@link UserController} поверх R2DBC.
+ */
+@Slf4j
+@RestController
+@RequestMapping(value = WebConstant.VERSION_2_URL + "/user",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+public class ReactiveUserController {
+    private final ReactiveUserDataFacade userDataFacade;
+
+    public ReactiveUserController(ReactiveUserDataFacade userDataFacade) {
+        this.userDataFacade = userDataFacade;
+    }
+
+    @PostMapping(value = "/create")
+    @Operation(summary = "Create user book row.",
+            responses = {
+                    @ApiResponse(description = "User book",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserBookResponse.class)))})
+    public Mono<ResponseEntity<UserBookResponse>> createUserWithBooks(
+            @RequestBody UserBookRequest request,
+            @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) {
+        RequestId.checked(requestId);
+        return userDataFacade.createUserWithBooks(request)
+                .doOnNext(response -> log.debug("Response with created user and his books: {}", response))
+                .map(UserController::withETag);
+    }
+
+    @Operation(summary = "Update user with books.",
+            responses = {
+                    @ApiResponse(description = "User book",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserBookResponse.class)))})
+    @PutMapping(value = "/update/{userId}")
+    public Mono<ResponseEntity<UserBookResponse>> updateUserWithBooks(
+            @RequestBody UserBookRequest request,
+            @PathVariable Long userId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return userDataFacade.updateUserWithBooks(request, userId, ETagVersion.expectedVersion(ifMatch))
+                .doOnNext(response -> log.debug("Response with updated user and his books: {}", response))
+                .map(UserController::withETag);
+    }
+
+    @Operation(summary = "Get user with books.",
+            responses = {
+                    @ApiResponse(description = "User book",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserBookResponse.class)))})
+    @GetMapping(value = "/get/{userId}")
+    public Mono<ResponseEntity<UserBookResponse>> getUserWithBooks(@PathVariable Long userId) {
+        return userDataFacade.getUserWithBooks(userId)
+                .doOnNext(response -> log.debug("Response with user and his books: {}", response))
+                .map(UserController::withETag);
+    }
+
+    @Operation(summary = "Get many users with books.",
+            responses = {
+                    @ApiResponse(description = "Found users with books and missing ids",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserBooksBatchResponse.class)))})
+    @PostMapping(value = "/get-many")
+    public Mono<UserBooksBatchResponse> getUsersWithBooks(@RequestBody List<Long> userIds) {
+        return userDataFacade.getUsersWithBooks(userIds)
+                .doOnNext(response -> log.info("Response with {} users, missing ids: {}",
+                        response.getUsers().size(), response.getMissingIds()));
+    }
+
+    @Operation(summary = "List users with books, keyset paginated.",
+            responses = {
+                    @ApiResponse(description = "Page of users",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserPageResponse.class)))})
+    @GetMapping(value = "/list")
+    public Mono<UserPageResponse> getUsersPage(@RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "20") int limit,
+                                               @RequestParam(required = false) String title,
+                                               @RequestParam(required = false) Integer minAge,
+                                               @RequestParam(required = false) Integer maxAge) {
+        return userDataFacade.getUsersPage(new UserFilter(title, minAge, maxAge), cursor, limit)
+                .doOnNext(response -> log.info("Response with page of {} users", response.getUsers().size()));
+    }
+
+    @Operation(summary = "Export all users with books as NDJSON stream.",
+            responses = {
+                    @ApiResponse(description = "User with books per line",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = UserWithBooksDto.class)))})
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserWithBooksDto> exportUsersWithBooks() {
+        return userDataFacade.exportUsersWithBooks();
+    }
+
+    @Operation(summary = "Delete user with his books.",
+            responses = {
+                    @ApiResponse(description = "Delete user")})
+    @DeleteMapping(value = "/delete/{userId}")
+    public Mono<Void> deleteUserWithBooks(@PathVariable Long userId) {
+        return userDataFacade.deleteUserWithBooks(userId)
+                .doOnSuccess(ignored -> log.info("Deleted user and his books:  userId {}", userId));
+    }
+}
@@ -0,0 +1,30 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.exception.NotValidException;
+
+import java.util.regex.Pattern;
+
+import static com.edu.ulab.app.web.constant.WebConstant.REQUEST_ID_PATTERN;
+import static com.edu.ulab.app.web.constant.WebConstant.RQID;
+
+/**
+ * Проверка заголовка {@code rqid}. Провайдера Bean Validation в приложении нет, поэтому
+ * {@code @Pattern} на параметре только описывает формат в OpenAPI, а проверяет его этот класс.
+ */
+final class RequestId {
+    private static final Pattern PATTERN = Pattern.compile(REQUEST_ID_PATTERN);
+
+    private RequestId() {
+    }
+
+    /**
+     * @return {@code requestId} без изменений
+     * @throws NotValidException если значение не подходит под {@link com.edu.ulab.app.web.constant.WebConstant#REQUEST_ID_PATTERN}
+     */
+    static String checked(String requestId) {
+        if (!PATTERN.matcher(requestId).matches()) {
+            throw new NotValidException(RQID + " must be 1 to 64 letters, digits, '_' or '-'");
+        }
+        return requestId;
+    }
+}
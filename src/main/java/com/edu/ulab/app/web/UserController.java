@@ -1,18 +1,34 @@
 package com.edu.ulab.app.web;
 
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.facade.AsyncUserDataFacade;
 import com.edu.ulab.app.facade.UserDataFacade;
 import com.edu.ulab.app.web.constant.WebConstant;
+import com.edu.ulab.app.web.request.BookPatchRequest;
 import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserPatchRequest;
+import com.edu.ulab.app.web.response.ImportBatchResponse;
 import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserBooksBatchResponse;
+import com.edu.ulab.app.web.response.UserPageResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.Pattern;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.edu.ulab.app.web.constant.WebConstant.REQUEST_ID_PATTERN;
 import static com.edu.ulab.app.web.constant.WebConstant.RQID;
@@ -23,9 +39,11 @@ import static com.edu.ulab.app.web.constant.WebConstant.RQID;
         produces = MediaType.APPLICATION_JSON_VALUE)
 public class UserController {
     private final UserDataFacade userDataFacade;
+    private final AsyncUserDataFacade asyncUserDataFacade;
 
-    public UserController(UserDataFacade userDataFacade) {
+    public UserController(UserDataFacade userDataFacade, AsyncUserDataFacade asyncUserDataFacade) {
         this.userDataFacade = userDataFacade;
+        this.asyncUserDataFacade = asyncUserDataFacade;
     }
 
     @PostMapping(value = "/create")
@@ -34,11 +52,12 @@ public class UserController {
                     @ApiResponse(description = "User book",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
-    public UserBookResponse createUserWithBooks(@RequestBody UserBookRequest request,
-                                                @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) {
-        UserBookResponse response = userDataFacade.createUserWithBooks(request);
-        log.info("Response with created user and his books: {}", response);
-        return response;
+    public CompletableFuture<ResponseEntity<UserBookResponse>> createUserWithBooks(
+            @RequestBody UserBookRequest request,
+            @RequestHeader(RQID) @Pattern(regexp = REQUEST_ID_PATTERN) final String requestId) {
+        return asyncUserDataFacade.createUserWithBooks(request, RequestId.checked(requestId))
+                .whenComplete((response, e) -> log.debug("Response with created user and his books: {}", response))
+                .thenApply(UserController::withETag);
     }
 
     @Operation(summary = "Update user with books.",
@@ -47,10 +66,48 @@ public class UserController {
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
     @PutMapping(value = "/update/{userId}")
-    public UserBookResponse updateUserWithBooks(@RequestBody UserBookRequest request, @PathVariable Long userId) {
-        UserBookResponse response = userDataFacade.updateUserWithBooks(request, userId);
-        log.info("Response with updated user and his books: {}", response);
-        return response;
+    public CompletableFuture<ResponseEntity<UserBookResponse>> updateUserWithBooks(
+            @RequestBody UserBookRequest request,
+            @PathVariable Long userId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return asyncUserDataFacade.updateUserWithBooks(request, userId, ETagVersion.expectedVersion(ifMatch))
+                .whenComplete((response, e) -> log.debug("Response with updated user and his books: {}", response))
+                .thenApply(UserController::withETag);
+    }
+
+    @Operation(summary = "Patch given user fields, books are not changed.",
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "New user version in ETag")})
+    @PatchMapping(value = "/patch/{userId}")
+    public CompletableFuture<ResponseEntity<Void>> patchUser(
+            @RequestBody UserPatchRequest request,
+            @PathVariable Long userId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return asyncUserDataFacade.patchUser(request, userId, ETagVersion.expectedVersion(ifMatch))
+                .thenApply(version -> {
+                    log.info("Patched user {}, version {}", userId, version);
+                    return ResponseEntity.noContent().eTag(String.valueOf(version)).build();
+                });
+    }
+
+    // Чтение возвращает только идентификаторы книг без версий, поэтому ETag книги
+    // получается лишь из ответа на PATCH и годится для If-Match следующего PATCH этой книги
+    @Operation(summary = "Patch given book fields.",
+            description = "Book versions are not returned by read endpoints: the ETag of a response "
+                    + "is only meant for If-Match of the next patch of the same book.",
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "New book version in ETag")})
+    @PatchMapping(value = "/patch/{userId}/book/{bookId}")
+    public CompletableFuture<ResponseEntity<Void>> patchBook(
+            @RequestBody BookPatchRequest request,
+            @PathVariable Long userId,
+            @PathVariable Long bookId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return asyncUserDataFacade.patchBook(request, userId, bookId, ETagVersion.expectedVersion(ifMatch))
+                .thenApply(version -> {
+                    log.info("Patched book {} of user {}, version {}", bookId, userId, version);
+                    return ResponseEntity.noContent().eTag(String.valueOf(version)).build();
+                });
     }
 
     @Operation(summary = "Get user with books.",
@@ -59,18 +116,83 @@ public class UserController {
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = UserBookResponse.class)))})
     @GetMapping(value = "/get/{userId}")
-    public UserBookResponse getUserWithBooks(@PathVariable Long userId) {
-        UserBookResponse response = userDataFacade.getUserWithBooks(userId);
-        log.info("Response with user and his books: {}", response);
-        return response;
+    public CompletableFuture<ResponseEntity<UserBookResponse>> getUserWithBooks(@PathVariable Long userId) {
+        return asyncUserDataFacade.getUserWithBooks(userId)
+                .whenComplete((response, e) -> log.debug("Response with user and his books: {}", response))
+                .thenApply(UserController::withETag);
+    }
+
+    @Operation(summary = "Get many users with books.",
+            responses = {
+                    @ApiResponse(description = "Found users with books and missing ids",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserBooksBatchResponse.class)))})
+    @PostMapping(value = "/get-many")
+    public CompletableFuture<UserBooksBatchResponse> getUsersWithBooks(@RequestBody List<Long> userIds) {
+        return asyncUserDataFacade.getUsersWithBooks(userIds)
+                .thenApply(response -> {
+                    log.info("Response with {} users, missing ids: {}",
+                            response.getUsers().size(), response.getMissingIds());
+                    return response;
+                });
+    }
+
+    @Operation(summary = "List users with books, keyset paginated.",
+            responses = {
+                    @ApiResponse(description = "Page of users",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = UserPageResponse.class)))})
+    @GetMapping(value = "/list")
+    public CompletableFuture<UserPageResponse> getUsersPage(@RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "20") int limit,
+                                                            @RequestParam(required = false) String title,
+                                                            @RequestParam(required = false) Integer minAge,
+                                                            @RequestParam(required = false) Integer maxAge) {
+        return asyncUserDataFacade.getUsersPage(new UserFilter(title, minAge, maxAge), cursor, limit)
+                .thenApply(response -> {
+                    log.info("Response with page of {} users", response.getUsers().size());
+                    return response;
+                });
+    }
+
+    @Operation(summary = "Import users with books from NDJSON stream.",
+            responses = {
+                    @ApiResponse(description = "Import result per batch, the last line has errorMessage if import stopped",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = ImportBatchResponse.class)))})
+    @PostMapping(value = "/import",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody importUsersWithBooks(HttpServletRequest request) throws IOException {
+        InputStream input = request.getInputStream();
+        return output -> userDataFacade.importUsersWithBooks(input, output);
+    }
+
+    @Operation(summary = "Export all users with books as NDJSON stream.",
+            responses = {
+                    @ApiResponse(description = "User with books per line",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = UserWithBooksDto.class)))})
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody exportUsersWithBooks() {
+        return userDataFacade::exportUsersWithBooks;
     }
 
     @Operation(summary = "Delete user with his books.",
             responses = {
                     @ApiResponse(description = "Delete user")})
     @DeleteMapping(value = "/delete/{userId}")
-    public void deleteUserWithBooks(@PathVariable Long userId) {
-        userDataFacade.deleteUserWithBooks(userId);
-        log.info("Deleted user and his books:  userId {}", userId);
+    public CompletableFuture<Void> deleteUserWithBooks(@PathVariable Long userId) {
+        return asyncUserDataFacade.deleteUserWithBooks(userId)
+                .thenRun(() -> log.info("Deleted user and his books:  userId {}", userId));
+    }
+
+    // ETag - версия пользователя, If-Match с ней делает обновление условным
+    static ResponseEntity<UserBookResponse> withETag(UserBookResponse response) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (response.getVersion() != null) {
+            builder.eTag(String.valueOf(response.getVersion()));
+        }
+        return builder.body(response);
     }
 }
@@ -1,30 +1,89 @@
 package com.edu.ulab.app.web.filter;
 
+import com.edu.ulab.app.logging.RequestBufferingAppender;
+import com.edu.ulab.app.logging.RequestBufferingAppender.RequestBuffer;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.time.Duration;
 
 @Slf4j
 @Component
 public class HttpRequestFilter extends OncePerRequestFilter {
+    // Диагностика запроса выводится, если он упал или выполнялся дольше порога
+    @Value("${app.logging.slow-request-threshold:500ms}")
+    private Duration slowRequestThreshold;
+
     @Override
     protected void doFilterInternal(final HttpServletRequest request,
                                     final HttpServletResponse response,
                                     final FilterChain filterChain) throws ServletException, IOException {
         String requestId = request.getHeader("rqid");
         MDC.put("requestId", requestId);
-        log.info("RequestId : {}", requestId);
+        RequestBufferingAppender.begin();
+        log.debug("RequestId : {}", requestId);
+        long start = System.nanoTime();
+        boolean failed = true;
         try {
             filterChain.doFilter(request, response);
+            failed = false;
         } finally {
+            RequestBuffer buffer = RequestBufferingAppender.detach();
+            if (!failed && request.isAsyncStarted()) {
+                // Асинхронный запрос завершается в другом потоке, итог подводится по его окончании
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        MDC.put("requestId", requestId);
+                        try {
+                            complete(request, response, start, false, buffer);
+                        } finally {
+                            MDC.remove("requestId");
+                        }
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                complete(request, response, start, failed, buffer);
+            }
             MDC.remove("requestId");
         }
     }
+
+    private void complete(HttpServletRequest request, HttpServletResponse response,
+                          long start, boolean failed, RequestBuffer buffer) {
+        long elapsedNanos = System.nanoTime() - start;
+        boolean unsuccessful = failed || response.getStatus() >= 400;
+        boolean slow = elapsedNanos > slowRequestThreshold.toNanos();
+        if (unsuccessful || slow) {
+            log.warn("{} {} {} in {} ms, buffered diagnostics follow",
+                    request.getMethod(), request.getRequestURI(), unsuccessful ? "failed" : "was slow",
+                    elapsedNanos / 1_000_000);
+        }
+        int dropped = RequestBufferingAppender.end(buffer, unsuccessful || slow);
+        if (dropped > 0 && (unsuccessful || slow)) {
+            log.warn("{} earliest diagnostic lines of the request were dropped", dropped);
+        }
+    }
 }
@@ -0,0 +1,72 @@
+package com.edu.ulab.app.web.filter;
+
+import com.edu.ulab.app.datasource.QueryGuard;
+import com.edu.ulab.app.datasource.QueryGuard.RequestQueries;
+import org.slf4j.MDC;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Открывает учёт обращений к базе на время HTTP-запроса, см. {@link QueryGuard}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.query-guard", name = "enabled", havingValue = "true")
+public class QueryGuardFilter extends OncePerRequestFilter {
+    private final QueryGuard queryGuard;
+
+    public QueryGuardFilter(QueryGuard queryGuard) {
+        this.queryGuard = queryGuard;
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request,
+                                    final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        RequestQueries queries = queryGuard.begin(() -> endpointOf(request));
+        MDC.put(QueryGuard.MDC_KEY, queries.key());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(QueryGuard.MDC_KEY);
+            if (request.isAsyncStarted()) {
+                // onComplete вызывается и после ошибки или тайм-аута асинхронного запроса
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        queryGuard.end(queries);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                queryGuard.end(queries);
+            }
+        }
+    }
+
+    // Шаблон пути, а не сам путь, чтобы бюджеты и теги метрик не зависели от идентификаторов
+    private static String endpointOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern == null ? "unmapped" : pattern);
+    }
+}
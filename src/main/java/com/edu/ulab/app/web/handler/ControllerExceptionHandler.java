@@ -1,9 +1,15 @@
 package com.edu.ulab.app.web.handler;
 
+import com.edu.ulab.app.exception.IdempotencyKeyReusedException;
 import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import com.edu.ulab.app.exception.QueryBudgetExceededException;
 import com.edu.ulab.app.web.response.BaseWebResponse;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -21,6 +27,50 @@ public class ControllerExceptionHandler {
                 .body(new BaseWebResponse(createErrorMessage(exc)));
     }
 
+    @ExceptionHandler(NotValidException.class)
+    public ResponseEntity<BaseWebResponse> handleNotValidException(@NonNull final NotValidException exc) {
+        log.error(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new BaseWebResponse(createErrorMessage(exc)));
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<BaseWebResponse> handlePreconditionFailedException(@NonNull final PreconditionFailedException exc) {
+        log.warn(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .body(new BaseWebResponse(exc.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<BaseWebResponse> handleIdempotencyKeyReusedException(@NonNull final IdempotencyKeyReusedException exc) {
+        log.warn(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(new BaseWebResponse(exc.getMessage()));
+    }
+
+    // Повторы при конфликте версий исчерпаны
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<BaseWebResponse> handleOptimisticLockingFailureException(@NonNull final OptimisticLockingFailureException exc) {
+        log.warn(ExceptionHandlerUtils.buildErrorMessage(exc));
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new BaseWebResponse("Concurrent update, try again"));
+    }
+
+    // Бюджет обращений к базе задаёт сервер, клиент повтором запроса его не исправит
+    @ExceptionHandler(QueryBudgetExceededException.class)
+    public ResponseEntity<BaseWebResponse> handleQueryBudgetExceededException(@NonNull final QueryBudgetExceededException exc) {
+        log.error(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new BaseWebResponse("Request exceeded its database statement budget"));
+    }
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<BaseWebResponse> handleTaskRejectedException(@NonNull final TaskRejectedException exc) {
+        log.error(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new BaseWebResponse("Too many concurrent requests, try again later"));
+    }
+
     private String createErrorMessage(Exception exception) {
         final String message = exception.getMessage();
         log.error(ExceptionHandlerUtils.buildErrorMessage(exception));
@@ -0,0 +1,10 @@
+package com.edu.ulab.app.web.request;
+
+import lombok.Data;
+
+@Data
+public class BookPatchRequest {
+    private String title;
+    private String author;
+    private Long pageCount;
+}
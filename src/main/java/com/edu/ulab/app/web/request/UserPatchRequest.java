@@ -0,0 +1,10 @@
+package com.edu.ulab.app.web.request;
+
+import lombok.Data;
+
+@Data
+public class UserPatchRequest {
+    private String fullName;
+    private String title;
+    private Integer age;
+}
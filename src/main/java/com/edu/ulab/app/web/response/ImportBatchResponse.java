@@ -0,0 +1,24 @@
+package com.edu.ulab.app.web.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.List;
+
+@Data
+@Builder
+@Jacksonized
+public class ImportBatchResponse {
+    private int batch;
+    private long firstRecord;
+    private int userCount;
+    private int bookCount;
+    private long totalRecords;
+    private long recordsPerSecond;
+    private List<UserBookResponse> users;
+    // Только в последней строке прерванного импорта: пачка с firstRecord не записана
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String errorMessage;
+}
@@ -1,13 +1,19 @@
 package com.edu.ulab.app.web.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Builder;
 import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
 
 import java.util.List;
 
 @Data
 @Builder
+@Jacksonized
 public class UserBookResponse {
     private Long userId;
     private List<Long> booksIdList;
+    // Версия пользователя, передаётся заголовком ETag, а не в теле
+    @JsonIgnore
+    private Long version;
 }
@@ -1,7 +1,16 @@
 package com.edu.ulab.app.web.response;
 
+import lombok.Builder;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
+@Builder
 public class UserResponse {
+    private Long id;
+    private String fullName;
+    private String title;
+    private int age;
+    private List<Long> booksIdList;
 }
@@ -0,0 +1,50 @@
+package com.edu.ulab.app.writebehind;
+
+import com.edu.ulab.app.writebehind.WriteBehindLog.LogRecord;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Просмотр и возврат в очередь записей журнала ошибок {@link UserBookWriteBehind}:
+ * {@code GET /actuator/deadletters} и {@code POST /actuator/deadletters}.
+ */
+@Component
+@Endpoint(id = "deadletters")
+@ConditionalOnProperty(prefix = "app.write-behind", name = "enabled", havingValue = "true")
+public class DeadLetterEndpoint {
+    private static final int DEFAULT_LIMIT = 100;
+
+    private final UserBookWriteBehind writeBehind;
+
+    public DeadLetterEndpoint(UserBookWriteBehind writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    @ReadOperation
+    public List<DeadLetter> deadLetters(@Nullable Integer limit) {
+        return writeBehind.readDeadLetters(limit == null ? DEFAULT_LIMIT : limit).stream()
+                .map(DeadLetter::of)
+                .toList();
+    }
+
+    @WriteOperation
+    public int replay() throws IOException {
+        return writeBehind.replayDeadLetters();
+    }
+
+    public record DeadLetter(long lsn, Instant appendedAt, String payload) {
+        static DeadLetter of(LogRecord record) {
+            return new DeadLetter(record.lsn(), Instant.ofEpochMilli(record.appendedAtMillis()),
+                    new String(record.payload(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.edu.ulab.app.writebehind;
+
+import com.edu.ulab.app.bulk.UserBookBatchWriter;
+import com.edu.ulab.app.config.WriteBehindProperties;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.validation.BookValidator;
+import com.edu.ulab.app.validation.UserValidator;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.writebehind.WriteBehindLog.LogRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отложенная запись создаваемых пользователей с книгами.
+ * <p>
+ * Запрос проверяется, получает идентификаторы из последовательности {@code sequence}
+ * и добавляется в {@link WriteBehindLog}; ответ отправляется после сброса журнала на диск.
+ * Фоновый поток пачками переносит записи в базу через {@link UserBookBatchWriter},
+ * как при импорте. Записи, оставшиеся в журнале после перезапуска, переносятся тем же
+ * потоком; часть из них могла попасть в базу до сбоя, такие пользователи пропускаются.
+ * <p>
+ * Клиент уже получил ответ, поэтому запись, которую база отклонила или которую не удалось
+ * прочитать, не теряется и не задерживает очередь: она переносится в отдельный журнал
+ * {@code dead-letter} в том же каталоге, откуда её можно прочитать или вернуть в очередь
+ * через {@link #replayDeadLetters()}. В журнале остаются только пачки, упавшие из-за
+ * временной недоступности базы.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.write-behind", name = "enabled", havingValue = "true")
+public class UserBookWriteBehind {
+    public static final String METRIC_PREFIX = "ulab.write-behind";
+    static final String DEAD_LETTER_DIRECTORY = "dead-letter";
+
+    private final WriteBehindProperties properties;
+    private final ObjectMapper objectMapper;
+    private final UserMapper userMapper;
+    private final BookMapper bookMapper;
+    private final PooledIdAllocator idAllocator;
+    private final UserBookBatchWriter batchWriter;
+    private final WriteBehindLog writeBehindLog;
+    private final WriteBehindLog deadLetterLog;
+    private final ScheduledExecutorService flusher;
+
+    private final Timer ackTimer;
+    private final Timer flushTimer;
+    private final Counter rejectedCounter;
+
+    public UserBookWriteBehind(WriteBehindProperties properties,
+                               ObjectMapper objectMapper,
+                               UserMapper userMapper,
+                               BookMapper bookMapper,
+                               PooledIdAllocator idAllocator,
+                               UserBookBatchWriter batchWriter,
+                               MeterRegistry meterRegistry) throws IOException {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.userMapper = userMapper;
+        this.bookMapper = bookMapper;
+        this.idAllocator = idAllocator;
+        this.batchWriter = batchWriter;
+        this.writeBehindLog = WriteBehindLog.open(properties.getDirectory(),
+                Math.toIntExact(properties.getSegmentSize().toBytes()), properties.getMaxSegments());
+        this.deadLetterLog = WriteBehindLog.open(properties.getDirectory().resolve(DEAD_LETTER_DIRECTORY),
+                Math.toIntExact(properties.getSegmentSize().toBytes()), properties.getMaxSegments());
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("write-behind-"));
+
+        Gauge.builder(METRIC_PREFIX + ".log.depth", writeBehindLog, WriteBehindLog::pendingRecords)
+                .description("Records waiting to be flushed to the database")
+                .baseUnit("records")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".log.size", writeBehindLog, WriteBehindLog::pendingBytes)
+                .description("Bytes of records waiting to be flushed to the database")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".dead-letters", deadLetterLog, WriteBehindLog::pendingRecords)
+                .description("Records moved out of the queue because they could not be written")
+                .baseUnit("records")
+                .register(meterRegistry);
+        TimeGauge.builder(METRIC_PREFIX + ".flush.lag", writeBehindLog, TimeUnit.MILLISECONDS, this::flushLagMillis)
+                .description("Age of the oldest record waiting to be flushed")
+                .register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".syncs", writeBehindLog, WriteBehindLog::syncCount)
+                .description("Group commits of the log to disk")
+                .register(meterRegistry);
+        this.ackTimer = Timer.builder(METRIC_PREFIX + ".ack")
+                .description("Time to append a record and sync it to disk")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder(METRIC_PREFIX + ".flush")
+                .description("Time to flush one batch to the database")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder(METRIC_PREFIX + ".rejected")
+                .description("Records the database refused or that could not be read, moved to dead letters")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        long intervalMillis = properties.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        flusher.shutdown();
+        if (!flusher.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Write-behind flusher did not stop in time, {} records stay in the log",
+                    writeBehindLog.pendingRecords());
+        }
+        writeBehindLog.close();
+        deadLetterLog.close();
+    }
+
+    public UserBookResponse createUserWithBooks(UserBookRequest userBookRequest) {
+        UserDto user = userBookRequest.getUserRequest() == null
+                ? null
+                : userMapper.userRequestToUserDto(userBookRequest.getUserRequest());
+        if (user == null || !UserValidator.isValidUser(user)) {
+            throw new NotValidException("Not valid data: " + user);
+        }
+        List<BookDto> books = userBookRequest.getBookRequests() == null ? List.of() : userBookRequest.getBookRequests()
+                .stream()
+                .filter(Objects::nonNull)
+                .map(this::toValidBook)
+                .toList();
+
+        long[] ids = idAllocator.nextIds(1 + books.size());
+        user.setId(ids[0]);
+        List<Long> bookIds = new ArrayList<>(books.size());
+        for (int i = 0; i < books.size(); i++) {
+            BookDto book = books.get(i);
+            book.setId(ids[i + 1]);
+            book.setUserId(user.getId());
+            bookIds.add(book.getId());
+        }
+
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(new UserWithBooksDto(user, books));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ackTimer.record(() -> writeBehindLog.awaitDurable(writeBehindLog.append(payload, System.currentTimeMillis())));
+        log.debug("Appended user {} with {} books to write-behind log", user.getId(), books.size());
+
+        return UserBookResponse.builder()
+                .userId(user.getId())
+                .booksIdList(bookIds)
+                .build();
+    }
+
+    private BookDto toValidBook(BookRequest bookRequest) {
+        BookDto book = bookMapper.bookRequestToBookDto(bookRequest);
+        if (!BookValidator.isValidBook(book)) {
+            throw new NotValidException("Not valid data: " + book);
+        }
+        return book;
+    }
+
+    /**
+     * Записи, перенесённые в журнал ошибок, в порядке переноса.
+     */
+    public List<LogRecord> readDeadLetters(int maxRecords) {
+        return deadLetterLog.read(deadLetterLog.checkpointLsn(), maxRecords);
+    }
+
+    /**
+     * Возвращает записи журнала ошибок в очередь на перенос в базу, например после
+     * исправления данных, из-за которых база их отклонила.
+     *
+     * @return число возвращённых записей
+     */
+    public synchronized int replayDeadLetters() throws IOException {
+        int replayed = 0;
+        List<LogRecord> records;
+        while (!(records = readDeadLetters(properties.getFlushBatchSize())).isEmpty()) {
+            long lsn = 0;
+            for (LogRecord record : records) {
+                lsn = writeBehindLog.append(record.payload(), record.appendedAtMillis());
+            }
+            writeBehindLog.awaitDurable(lsn);
+            deadLetterLog.checkpoint(records);
+            replayed += records.size();
+        }
+        if (replayed > 0) {
+            log.info("Returned {} dead letters to the write-behind queue", replayed);
+        }
+        return replayed;
+    }
+
+    void flush() {
+        try {
+            List<LogRecord> records;
+            while (!(records = writeBehindLog.read(writeBehindLog.checkpointLsn(), properties.getFlushBatchSize()))
+                    .isEmpty()) {
+                List<LogRecord> batch = records;
+                flushTimer.recordCallable(() -> {
+                    write(batch);
+                    return null;
+                });
+            }
+        } catch (Exception e) {
+            // база недоступна: пачка останется в журнале и будет повторена на следующем проходе
+            log.error("Write-behind flush failed, {} records wait in the log", writeBehindLog.pendingRecords(), e);
+        }
+    }
+
+    private void write(List<LogRecord> records) throws IOException {
+        try {
+            List<UserWithBooksDto> entries = new ArrayList<>(records.size());
+            for (LogRecord record : records) {
+                entries.add(readEntry(record));
+            }
+            // записи прошлого запуска могли попасть в базу до того, как checkpoint был обновлён
+            if (records.get(0).lsn() < writeBehindLog.recoveredLsn()) {
+                Set<Long> existingIds = batchWriter.findExistingUserIds(
+                        entries.stream().map(entry -> entry.getUser().getId()).toList());
+                entries.removeIf(entry -> existingIds.contains(entry.getUser().getId()));
+            }
+            if (!entries.isEmpty()) {
+                batchWriter.write(entries.stream().map(UserWithBooksDto::getUser).toList(),
+                        entries.stream().flatMap(entry -> entry.getBooks().stream()).toList());
+                log.info("Flushed {} users from write-behind log", entries.size());
+            }
+            writeBehindLog.checkpoint(records);
+            return;
+        } catch (RuntimeException e) {
+            if (isRetryable(e)) {
+                throw e;
+            }
+            // одна запись не должна задерживать остальные: пачка повторяется по одной записи
+            log.warn("Write-behind batch of {} records failed, retrying one by one", records.size(), e);
+        }
+        for (LogRecord record : records) {
+            writeOne(record);
+            writeBehindLog.checkpoint(List.of(record));
+        }
+    }
+
+    private void writeOne(LogRecord record) {
+        try {
+            UserWithBooksDto entry = readEntry(record);
+            if (record.lsn() < writeBehindLog.recoveredLsn()
+                    && !batchWriter.findExistingUserIds(List.of(entry.getUser().getId())).isEmpty()) {
+                return;
+            }
+            batchWriter.write(List.of(entry.getUser()), entry.getBooks());
+        } catch (RuntimeException e) {
+            if (isRetryable(e)) {
+                throw e;
+            }
+            rejectedCounter.increment();
+            deadLetterLog.awaitDurable(deadLetterLog.append(record.payload(), record.appendedAtMillis()));
+            log.error("Write-behind record at {} moved to dead letters: {}", record.lsn(),
+                    new String(record.payload(), StandardCharsets.UTF_8), e);
+        }
+    }
+
+    private UserWithBooksDto readEntry(LogRecord record) {
+        try {
+            return objectMapper.readValue(record.payload(), UserWithBooksDto.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Недоступность базы проходит сама, остальные ошибки повторятся при каждой попытке
+    private static boolean isRetryable(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    private double flushLagMillis(WriteBehindLog writeBehindLog) {
+        long oldest = writeBehindLog.oldestPendingAppendedAt();
+        return oldest == 0 ? 0 : Math.max(System.currentTimeMillis() - oldest, 0);
+    }
+}
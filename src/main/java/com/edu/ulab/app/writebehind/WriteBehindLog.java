@@ -0,0 +1,438 @@
+package com.edu.ulab.app.writebehind;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи из отображённых в память сегментов.
+ * <p>
+ * Запись состоит из длины данных (int), CRC32 метки времени и данных (int),
+ * метки времени добавления (long) и самих данных. Нулевая длина или нехватка места
+ * до конца сегмента означают переход к следующему сегменту. Позиция в журнале (LSN) —
+ * номер сегмента в старших 32 битах и смещение в младших, поэтому позиции сравниваются как числа.
+ * <p>
+ * {@link #awaitDurable(long)} реализует групповую фиксацию: один из ожидающих потоков
+ * сбрасывает сегмент на диск за всех, кто успел добавить запись к этому моменту.
+ * Файл {@code checkpoint} хранит позицию, до которой записи уже перенесены в базу;
+ * при открытии журнала записи после неё проверяются по CRC, хвост с повреждённой
+ * записью отбрасывается.
+ */
+@Slf4j
+public class WriteBehindLog implements Closeable {
+    static final int RECORD_HEADER_SIZE = 16;
+    private static final int CHECKPOINT_SIZE = 12;
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final NavigableMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+    private final FileChannel checkpointChannel;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private boolean syncing;
+
+    private volatile long writeLsn;
+    private volatile long durableLsn;
+    private volatile long checkpointLsn;
+    private long recoveredLsn;
+    private final AtomicLong pendingRecords = new AtomicLong();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong syncCount = new AtomicLong();
+
+    private WriteBehindLog(Path directory, int segmentSize, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    public static WriteBehindLog open(Path directory, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize <= RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must be greater than " + RECORD_HEADER_SIZE);
+        }
+        Files.createDirectories(directory);
+        WriteBehindLog writeBehindLog = new WriteBehindLog(directory, segmentSize, maxSegments);
+        try {
+            writeBehindLog.recover();
+        } catch (IOException | RuntimeException e) {
+            writeBehindLog.checkpointChannel.close();
+            throw e;
+        }
+        return writeBehindLog;
+    }
+
+    /**
+     * Добавляет запись без ожидания записи на диск.
+     *
+     * @return позиция сразу после записи, её передают в {@link #awaitDurable(long)}
+     * @throws TaskRejectedException если журнал занял все {@code maxSegments} сегментов
+     */
+    public long append(byte[] payload, long appendedAtMillis) {
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        if (payload.length == 0 || recordSize > segmentSize) {
+            throw new IllegalArgumentException("Record of " + recordSize + " bytes does not fit segment of "
+                    + segmentSize + " bytes");
+        }
+        int checksum = checksum(appendedAtMillis, payload);
+
+        appendLock.lock();
+        try {
+            long segment = segment(writeLsn);
+            MappedByteBuffer buffer = segments.get(segment);
+            int offset = offset(writeLsn);
+            if (offset + recordSize > buffer.capacity()) {
+                segment = rollSegment(segment, buffer);
+                buffer = segments.get(segment);
+                offset = 0;
+            }
+            // длина пишется последней: запись с ненулевой длиной всегда заполнена целиком
+            buffer.putInt(offset + 4, checksum);
+            buffer.putLong(offset + 8, appendedAtMillis);
+            buffer.put(offset + RECORD_HEADER_SIZE, payload);
+            buffer.putInt(offset, payload.length);
+
+            pendingRecords.incrementAndGet();
+            pendingBytes.addAndGet(recordSize);
+            writeLsn = lsn(segment, offset + recordSize);
+            return writeLsn;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Ждёт, пока журнал до позиции {@code lsn} не окажется на диске.
+     */
+    public void awaitDurable(long lsn) {
+        syncLock.lock();
+        try {
+            while (durableLsn < lsn) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long target;
+                MappedByteBuffer buffer;
+                appendLock.lock();
+                try {
+                    target = writeLsn;
+                    buffer = segments.get(segment(target));
+                } finally {
+                    appendLock.unlock();
+                }
+
+                syncLock.unlock();
+                boolean forced = false;
+                try {
+                    // предыдущие сегменты сброшены при переходе к этому
+                    buffer.force();
+                    forced = true;
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    if (forced) {
+                        durableLsn = Math.max(durableLsn, target);
+                        syncCount.incrementAndGet();
+                    }
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Читает записи, уже сброшенные на диск, начиная с позиции {@code fromLsn}.
+     */
+    public List<LogRecord> read(long fromLsn, int maxRecords) {
+        List<LogRecord> records = new ArrayList<>(Math.min(maxRecords, 1024));
+        long lsn = fromLsn;
+        long limit = durableLsn;
+        while (records.size() < maxRecords && lsn < limit) {
+            LogRecord record = readRecord(lsn);
+            if (record == null) {
+                lsn = lsn(segment(lsn) + 1, 0);
+                continue;
+            }
+            if (record.checksum() != checksum(record.appendedAtMillis(), record.payload())) {
+                throw new IllegalStateException("Write-behind log is corrupted at segment " + segment(lsn)
+                        + ", offset " + offset(lsn));
+            }
+            records.add(record);
+            lsn = record.nextLsn();
+        }
+        return records;
+    }
+
+    /**
+     * Отмечает записи перенесёнными в базу и удаляет сегменты, которые больше не нужны.
+     */
+    public void checkpoint(List<LogRecord> flushedRecords) throws IOException {
+        if (flushedRecords.isEmpty()) {
+            return;
+        }
+        long lsn = flushedRecords.get(flushedRecords.size() - 1).nextLsn();
+        ByteBuffer checkpoint = ByteBuffer.allocate(CHECKPOINT_SIZE)
+                .putLong(lsn)
+                .putInt(checksum(lsn, new byte[0]))
+                .flip();
+        checkpointChannel.write(checkpoint, 0);
+        checkpointChannel.force(false);
+        checkpointLsn = lsn;
+
+        long bytes = 0;
+        for (LogRecord record : flushedRecords) {
+            bytes += RECORD_HEADER_SIZE + record.payload().length;
+        }
+        pendingRecords.addAndGet(-flushedRecords.size());
+        pendingBytes.addAndGet(-bytes);
+
+        for (Long segment : segments.headMap(segment(lsn)).keySet()) {
+            segments.remove(segment);
+            Files.deleteIfExists(segmentPath(segment));
+        }
+    }
+
+    public long checkpointLsn() {
+        return checkpointLsn;
+    }
+
+    /**
+     * @return позиция конца записей, найденных в журнале при открытии
+     */
+    public long recoveredLsn() {
+        return recoveredLsn;
+    }
+
+    public long pendingRecords() {
+        return pendingRecords.get();
+    }
+
+    public long pendingBytes() {
+        return pendingBytes.get();
+    }
+
+    public long syncCount() {
+        return syncCount.get();
+    }
+
+    /**
+     * @return метка времени самой старой не перенесённой в базу записи или 0, если таких нет
+     */
+    public long oldestPendingAppendedAt() {
+        long lsn = checkpointLsn;
+        while (lsn < writeLsn) {
+            LogRecord record = readRecord(lsn);
+            if (record != null) {
+                return record.appendedAtMillis();
+            }
+            lsn = lsn(segment(lsn) + 1, 0);
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            MappedByteBuffer buffer = segments.get(segment(writeLsn));
+            if (buffer != null) {
+                buffer.force();
+            }
+            checkpointChannel.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        NavigableSet<Long> existingSegments = new TreeSet<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .forEach(existingSegments::add);
+        }
+
+        long checkpoint = readCheckpoint(existingSegments);
+        for (Long segment : existingSegments) {
+            if (segment < segment(checkpoint)) {
+                Files.delete(segmentPath(segment));
+            } else {
+                segments.put(segment, mapSegment(segment));
+            }
+        }
+        if (segments.isEmpty()) {
+            long segment = Math.max(segment(checkpoint), 1);
+            segments.put(segment, createSegment(segment));
+            checkpoint = lsn(segment, 0);
+        } else if (!segments.containsKey(segment(checkpoint))) {
+            checkpoint = lsn(segments.firstKey(), 0);
+        }
+
+        long lsn = checkpoint;
+        long records = 0;
+        long bytes = 0;
+        while (true) {
+            LogRecord record = readRecord(lsn);
+            if (record == null) {
+                if (segments.containsKey(segment(lsn) + 1)) {
+                    lsn = lsn(segment(lsn) + 1, 0);
+                    continue;
+                }
+                break;
+            }
+            if (record.checksum() != checksum(record.appendedAtMillis(), record.payload())) {
+                log.warn("Write-behind log has a torn record at segment {}, offset {}, dropping the tail",
+                        segment(lsn), offset(lsn));
+                truncate(lsn);
+                break;
+            }
+            records++;
+            bytes += RECORD_HEADER_SIZE + record.payload().length;
+            lsn = record.nextLsn();
+        }
+
+        checkpointLsn = checkpoint;
+        recoveredLsn = lsn;
+        writeLsn = lsn;
+        durableLsn = lsn;
+        pendingRecords.set(records);
+        pendingBytes.set(bytes);
+        if (records > 0) {
+            log.info("Write-behind log recovered {} records ({} bytes) to replay", records, bytes);
+        }
+    }
+
+    private long readCheckpoint(NavigableSet<Long> existingSegments) throws IOException {
+        ByteBuffer checkpoint = ByteBuffer.allocate(CHECKPOINT_SIZE);
+        if (checkpointChannel.read(checkpoint, 0) == CHECKPOINT_SIZE) {
+            long lsn = checkpoint.getLong(0);
+            if (checkpoint.getInt(8) == checksum(lsn, new byte[0])) {
+                return lsn;
+            }
+            log.warn("Write-behind checkpoint is corrupted, replaying all segments");
+        }
+        return existingSegments.isEmpty() ? lsn(1, 0) : lsn(existingSegments.first(), 0);
+    }
+
+    // Обнуляет сегмент после повреждённой записи и удаляет следующие сегменты
+    private void truncate(long lsn) throws IOException {
+        MappedByteBuffer buffer = segments.get(segment(lsn));
+        for (int offset = offset(lsn); offset < buffer.capacity(); offset++) {
+            buffer.put(offset, (byte) 0);
+        }
+        buffer.force();
+        for (Long segment : segments.tailMap(segment(lsn), false).keySet()) {
+            segments.remove(segment);
+            Files.deleteIfExists(segmentPath(segment));
+        }
+    }
+
+    private LogRecord readRecord(long lsn) {
+        MappedByteBuffer buffer = segments.get(segment(lsn));
+        int offset = offset(lsn);
+        if (buffer == null || offset + RECORD_HEADER_SIZE > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > buffer.capacity() - offset - RECORD_HEADER_SIZE) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(offset + RECORD_HEADER_SIZE, payload);
+        return new LogRecord(lsn, lsn(segment(lsn), offset + RECORD_HEADER_SIZE + length),
+                buffer.getLong(offset + 8), buffer.getInt(offset + 4), payload);
+    }
+
+    private long rollSegment(long segment, MappedByteBuffer buffer) {
+        if (segments.size() >= maxSegments) {
+            throw new TaskRejectedException("Write-behind log is full");
+        }
+        try {
+            buffer.force();
+            MappedByteBuffer next = createSegment(segment + 1);
+            segments.put(segment + 1, next);
+            return segment + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MappedByteBuffer createSegment(long segment) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        // новый файл должен пережить сбой вместе с записью в каталоге
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        }
+        return buffer;
+    }
+
+    private MappedByteBuffer mapSegment(long segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%016d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    private static int checksum(long appendedAtMillis, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, appendedAtMillis));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    static long lsn(long segment, int offset) {
+        return segment << 32 | offset;
+    }
+
+    static long segment(long lsn) {
+        return lsn >>> 32;
+    }
+
+    static int offset(long lsn) {
+        return (int) lsn;
+    }
+
+    /**
+     * Запись журнала: позиция, позиция следующей записи, метка времени добавления и данные.
+     */
+    public record LogRecord(long lsn, long nextLsn, long appendedAtMillis, int checksum, byte[] payload) {
+    }
+}
@@ -0,0 +1,3 @@
+-- Страница WHERE id > ? AND age BETWEEN ? AND ? ORDER BY id LIMIT ?: при узком диапазоне возраста строки
+-- выбираются по индексу, а курсор по id проверяется в нём же; при широком планировщик идёт по первичному ключу
+CREATE INDEX idx_ulab_edu_person_age_id on ulab_edu.person (age, id);
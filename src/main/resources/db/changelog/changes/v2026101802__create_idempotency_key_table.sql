@@ -0,0 +1,18 @@
+create table ulab_edu.idempotency_key
+(
+    request_id   varchar(64)  not null,
+    request_hash varchar(64)  not null,
+    response     text         not null,
+    version      bigint,
+    created_at   timestamp    not null,
+    constraint pk_ulab_edu_idempotency_key_request_id primary key (request_id)
+);
+
+CREATE INDEX idx_ulab_edu_idempotency_key_created_at on ulab_edu.idempotency_key (created_at);
+
+comment on table ulab_edu.idempotency_key is 'Ответы на запросы создания по заголовку rqid';
+comment on column ulab_edu.idempotency_key.request_id is 'Значение заголовка rqid';
+comment on column ulab_edu.idempotency_key.request_hash is 'SHA-256 тела запроса в hex';
+comment on column ulab_edu.idempotency_key.response is 'Ответ в JSON';
+comment on column ulab_edu.idempotency_key.version is 'Версия созданного пользователя, ETag ответа';
+comment on column ulab_edu.idempotency_key.created_at is 'Время первого выполнения';
@@ -14,5 +14,5 @@ CREATE TABLE IF NOT EXISTS BOOK
     TITLE VARCHAR (255),
     AUTHOR VARCHAR (255),
     PAGE_COUNT INTEGER,
-    USER_ID BIGINT
+    PERSON_ID BIGINT
 );
@@ -0,0 +1,132 @@
+package com.edu.ulab.app.bulk;
+
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.web.response.ImportBatchResponse;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование потокового импорта {@link UserBookImporter}.
+ */
+@DisplayName("Testing NDJSON import.")
+public class UserBookImporterTest {
+    private static final String VALID_RECORD = "{\"userRequest\":{\"fullName\":\"Test User\",\"title\":\"reader\",\"age\":20}," +
+            "\"bookRequests\":[{\"title\":\"book\",\"author\":\"author\",\"pageCount\":100}]}";
+    private static final String INVALID_RECORD = "{\"userRequest\":{\"fullName\":\"\",\"title\":\"reader\",\"age\":20}}";
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    UserBookBatchWriter batchWriter;
+    UserBookImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        AtomicLong nextId = new AtomicLong(100);
+        PooledIdAllocator idAllocator = mock(PooledIdAllocator.class);
+        when(idAllocator.nextIds(anyInt())).thenAnswer(invocation ->
+                LongStream.range(0, invocation.<Integer>getArgument(0)).map(i -> nextId.getAndIncrement()).toArray());
+        batchWriter = mock(UserBookBatchWriter.class);
+        importer = new UserBookImporter(objectMapper, Mappers.getMapper(UserMapper.class),
+                Mappers.getMapper(BookMapper.class), idAllocator, batchWriter);
+        ReflectionTestUtils.setField(importer, "batchSize", 2);
+    }
+
+    @Test
+    @DisplayName("Каждая пачка пишется отдельной строкой с идентификаторами")
+    void importBatches_Test() throws IOException {
+        //when
+        List<ImportBatchResponse> lines = importLines(VALID_RECORD, VALID_RECORD, VALID_RECORD);
+
+        //then
+        assertThat(lines).extracting(ImportBatchResponse::getBatch).containsExactly(1, 2);
+        assertThat(lines).extracting(ImportBatchResponse::getFirstRecord).containsExactly(0L, 2L);
+        assertThat(lines).extracting(ImportBatchResponse::getTotalRecords).containsExactly(2L, 3L);
+        assertThat(lines).extracting(ImportBatchResponse::getErrorMessage).containsOnlyNulls();
+        assertThat(lines.get(0).getUsers())
+                .extracting(UserBookResponse::getUserId, UserBookResponse::getBooksIdList)
+                .containsExactly(
+                        tuple(100L, List.of(101L)),
+                        tuple(102L, List.of(103L)));
+        verify(batchWriter, times(2)).write(anyList(), anyList());
+    }
+
+    @Test
+    @DisplayName("Невалидная запись останавливает импорт строкой с ошибкой")
+    void invalidRecord_Test() throws IOException {
+        //when
+        List<ImportBatchResponse> lines = importLines(VALID_RECORD, VALID_RECORD, VALID_RECORD, INVALID_RECORD, VALID_RECORD);
+
+        //then
+        assertThat(lines).hasSize(2);
+        ImportBatchResponse error = lines.get(1);
+        assertThat(error.getBatch()).isEqualTo(2);
+        assertThat(error.getFirstRecord()).isEqualTo(2L);
+        assertThat(error.getErrorMessage()).contains("record 3");
+        verify(batchWriter, times(1)).write(anyList(), anyList());
+    }
+
+    @Test
+    @DisplayName("Обрыв JSON посреди потока завершается строкой с ошибкой")
+    void malformedJson_Test() throws IOException {
+        //when
+        List<ImportBatchResponse> lines = importLines(VALID_RECORD, VALID_RECORD, "{\"userRequest\":");
+
+        //then
+        assertThat(lines).extracting(ImportBatchResponse::getErrorMessage)
+                .first().isNull();
+        assertThat(lines.get(lines.size() - 1).getErrorMessage()).isNotBlank();
+        assertThat(lines.get(lines.size() - 1).getFirstRecord()).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("Ошибка записи в базу завершает поток строкой с ошибкой")
+    void writeFailure_Test() throws IOException {
+        //given
+        doThrow(new DataIntegrityViolationException("duplicate title"))
+                .when(batchWriter).write(anyList(), anyList());
+
+        //when
+        List<ImportBatchResponse> lines = importLines(VALID_RECORD);
+
+        //then
+        assertThat(lines).singleElement().satisfies(line -> {
+            assertThat(line.getBatch()).isEqualTo(1);
+            assertThat(line.getFirstRecord()).isZero();
+            assertThat(line.getErrorMessage()).isEqualTo("duplicate title");
+        });
+    }
+
+    private List<ImportBatchResponse> importLines(String... records) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        importer.importUsersWithBooks(
+                new ByteArrayInputStream(String.join("\n", records).getBytes(StandardCharsets.UTF_8)), output);
+        return objectMapper.readerFor(ImportBatchResponse.class)
+                .<ImportBatchResponse>readValues(output.toByteArray())
+                .readAll();
+    }
+}
@@ -0,0 +1,116 @@
+package com.edu.ulab.app.cache;
+
+import com.edu.ulab.app.config.IdempotencyProperties;
+import com.edu.ulab.app.exception.IdempotencyKeyReusedException;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты кэша ответов {@link IdempotentResponseCache}.
+ */
+@DisplayName("Testing idempotent response cache.")
+public class IdempotentResponseCacheTest {
+    private static final String HASH = "hash";
+
+    IdempotentResponseCache idempotentResponseCache;
+    AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        idempotentResponseCache = new IdempotentResponseCache(new IdempotencyProperties(), new SimpleMeterRegistry());
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Повтор запроса возвращает первый ответ без выполнения")
+    void repeat_Test() {
+        //when
+        UserBookResponse first = idempotentResponseCache.execute("rq-1", HASH, () -> create(1L)).join();
+        UserBookResponse second = idempotentResponseCache.execute("rq-1", HASH, () -> create(2L)).join();
+        UserBookResponse other = idempotentResponseCache.execute("rq-2", HASH, () -> create(3L)).join();
+
+        //then
+        assertThat(second).isEqualTo(first);
+        assertThat(second.getUserId()).isEqualTo(1L);
+        assertThat(other.getUserId()).isEqualTo(3L);
+        assertThat(executions.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Повтор во время выполнения ждёт первый запрос")
+    void concurrentRepeat_Test() {
+        //given
+        CompletableFuture<UserBookResponse> inFlight = new CompletableFuture<>();
+        CompletableFuture<UserBookResponse> first = idempotentResponseCache.execute("rq-1", HASH, () -> {
+            executions.incrementAndGet();
+            return inFlight;
+        });
+
+        //when
+        CompletableFuture<UserBookResponse> second = idempotentResponseCache.execute("rq-1", HASH, () -> create(2L));
+
+        //then
+        assertThat(second).isNotDone();
+        inFlight.complete(response(1L));
+        assertThat(second.join().getUserId()).isEqualTo(1L);
+        assertThat(first.join().getUserId()).isEqualTo(1L);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Ошибка не запоминается, повтор выполняется заново")
+    void failure_Test() {
+        //given
+        CompletableFuture<UserBookResponse> failed = idempotentResponseCache.execute("rq-1", HASH,
+                () -> CompletableFuture.failedFuture(new NotValidException("Not valid data")));
+
+        //when
+        UserBookResponse retried = idempotentResponseCache.execute("rq-1", HASH, () -> create(2L)).join();
+
+        //then
+        assertThatThrownBy(failed::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(NotValidException.class);
+        assertThat(retried.getUserId()).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("Повтор rqid с другим телом запроса отклоняется без выполнения")
+    void reusedKey_Test() {
+        //given
+        idempotentResponseCache.execute("rq-1", HASH, () -> create(1L)).join();
+
+        //when
+        CompletableFuture<UserBookResponse> reused = idempotentResponseCache.execute("rq-1", "other", () -> create(2L));
+
+        //then
+        assertThatThrownBy(reused::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IdempotencyKeyReusedException.class);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    private CompletableFuture<UserBookResponse> create(long userId) {
+        executions.incrementAndGet();
+        return CompletableFuture.completedFuture(response(userId));
+    }
+
+    private static UserBookResponse response(long userId) {
+        return UserBookResponse.builder()
+                .userId(userId)
+                .booksIdList(List.of(userId * 10))
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.edu.ulab.app.cache;
+
+import com.edu.ulab.app.config.UserBookCacheProperties;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+/**
+ * Тесты кэша {@link UserBookCache}.
+ */
+@DisplayName("Testing user book cache.")
+public class UserBookCacheTest {
+    SimpleMeterRegistry meterRegistry;
+    UserBookCache userBookCache;
+    AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userBookCache = new UserBookCache(new UserBookCacheProperties(), meterRegistry);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Повторное чтение берётся из кэша")
+    void getTwice_Test() {
+        //when
+        UserBookResponse first = userBookCache.get(1L, this::load);
+        UserBookResponse second = userBookCache.get(1L, this::load);
+
+        //then
+        assertThat(first).isEqualTo(second);
+        assertThat(second.getBooksIdList()).containsExactly(10L, 11L);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Инвалидация удаляет только запись пользователя")
+    void invalidate_Test() {
+        //given
+        userBookCache.get(1L, this::load);
+        userBookCache.get(2L, this::load);
+
+        //when
+        userBookCache.invalidate(1L);
+        userBookCache.get(1L, this::load);
+        userBookCache.get(2L, this::load);
+
+        //then
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Ошибка загрузки не кэшируется")
+    void notFound_Test() {
+        assertThatThrownBy(() -> userBookCache.get(1L, userId -> {
+            loads.incrementAndGet();
+            throw new NotFoundException("User with ID=" + userId + " not found!");
+        })).isInstanceOf(NotFoundException.class);
+
+        userBookCache.get(1L, this::load);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    private UserBookResponse load(long userId) {
+        loads.incrementAndGet();
+        return UserBookResponse.builder()
+                .userId(userId)
+                .booksIdList(List.of(userId * 10, userId * 10 + 1))
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.edu.ulab.app.config;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * База H2 в режиме PostgreSQL со схемой из всех changeset'ов Liquibase,
+ * для тестов JDBC-сервисов без Docker.
+ */
+public final class H2ChangesetDatabase implements AutoCloseable {
+    private static final String CHANGESETS = "classpath:db/changelog/changes/*.sql";
+
+    private final SingleConnectionDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public H2ChangesetDatabase(String name) {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", "sa", "", true);
+        try (Connection connection = dataSource.getConnection()) {
+            Resource[] changesets = new PathMatchingResourcePatternResolver().getResources(CHANGESETS);
+            // includeAll выполняет changeset'ы в порядке имён файлов
+            Arrays.sort(changesets, Comparator.comparing(Resource::getFilename));
+            for (Resource changeset : changesets) {
+                ScriptUtils.executeSqlScript(connection, changeset);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // как search_path в PostgreSQL: таблицы в ulab_edu, последовательность sequence в public
+        jdbcTemplate.execute("SET SCHEMA_SEARCH_PATH public, ulab_edu");
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    @Override
+    public void close() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.destroy();
+    }
+}
@@ -0,0 +1,63 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import org.hibernate.cache.spi.RegionFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты регионов кеша второго уровня из {@link HibernateCacheConfig}.
+ */
+@DisplayName("Testing Hibernate cache regions.")
+public class HibernateCacheConfigTest {
+
+    @Test
+    @DisplayName("Регионы создаются с размером и временем жизни по умолчанию или своими")
+    void regions_Test() {
+        //given
+        HibernateCacheProperties properties = new HibernateCacheProperties();
+        HibernateCacheProperties.Region books = new HibernateCacheProperties.Region();
+        books.setMaxSize(500L);
+        properties.setRegions(Map.of(Person.BOOKS_CACHE_REGION, books));
+
+        //when
+        try (CacheManager cacheManager = new HibernateCacheConfig().hibernateCacheManager(properties)) {
+            //then
+            assertThat(cacheManager.getCacheNames()).containsAll(HibernateCacheConfig.REGIONS);
+            assertThat(configuration(cacheManager, Book.CACHE_REGION).getMaximumSize())
+                    .isEqualTo(OptionalLong.of(10_000));
+            assertThat(configuration(cacheManager, Person.BOOKS_CACHE_REGION).getMaximumSize())
+                    .isEqualTo(OptionalLong.of(500));
+            assertThat(configuration(cacheManager, Person.BOOKS_CACHE_REGION).getExpireAfterWrite())
+                    .isEqualTo(OptionalLong.of(Duration.ofMinutes(10).toNanos()));
+            assertThat(configuration(cacheManager,
+                    RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME).getMaximumSize())
+                    .isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Каждый контекст получает свои регионы")
+    void separateManagers_Test() {
+        HibernateCacheProperties properties = new HibernateCacheProperties();
+        try (CacheManager first = new HibernateCacheConfig().hibernateCacheManager(properties);
+             CacheManager second = new HibernateCacheConfig().hibernateCacheManager(properties)) {
+            assertThat(second).isNotSameAs(first);
+            assertThat(second.getCacheNames()).containsAll(HibernateCacheConfig.REGIONS);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CaffeineConfiguration<Object, Object> configuration(CacheManager cacheManager, String region) {
+        return cacheManager.getCache(region).getConfiguration(CaffeineConfiguration.class);
+    }
+}
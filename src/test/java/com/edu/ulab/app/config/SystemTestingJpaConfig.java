@@ -2,10 +2,13 @@ package com.edu.ulab.app.config;
 
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 @EntityScan("com.edu.ulab.app.entity")
 @EnableJpaRepositories(basePackages = {"com.edu.ulab.app.repository"})
-@ComponentScan({"com.edu.ulab.app.repository"})
+@ComponentScan(value = "com.edu.ulab.app.repository",
+        excludeFilters = @ComponentScan.Filter(type = FilterType.REGEX,
+                pattern = "com\\.edu\\.ulab\\.app\\.repository\\.r2dbc\\..*"))
 public class SystemTestingJpaConfig {
 }
@@ -0,0 +1,159 @@
+package com.edu.ulab.app.datasource;
+
+import com.edu.ulab.app.config.QueryGuardProperties;
+import com.edu.ulab.app.datasource.QueryGuard.RequestQueries;
+import com.edu.ulab.app.exception.QueryBudgetExceededException;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты учёта обращений к базе {@link QueryGuard}.
+ */
+@DisplayName("Testing query guard.")
+public class QueryGuardTest {
+    private static final String ENDPOINT = "GET /api/v1/user/get/{userId}";
+
+    SingleConnectionDataSource targetDataSource;
+    SimpleMeterRegistry meterRegistry;
+    QueryGuardProperties properties;
+    QueryGuard queryGuard;
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        targetDataSource = new SingleConnectionDataSource("jdbc:h2:mem:query-guard", "sa", "", true);
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new QueryGuardProperties();
+        properties.setRepeatThreshold(3);
+        properties.setDefaultBudget(5);
+        queryGuard = new QueryGuard(properties, meterRegistry);
+        jdbcTemplate = new JdbcTemplate(ProxyDataSourceBuilder.create(targetDataSource)
+                .listener(queryGuard)
+                .build());
+        jdbcTemplate.execute("CREATE TABLE PERSON (ID BIGINT PRIMARY KEY, TITLE VARCHAR(50))");
+        jdbcTemplate.batchUpdate("INSERT INTO PERSON (ID, TITLE) VALUES (?, ?)",
+                List.of(new Object[]{1L, "a"}, new Object[]{2L, "b"}, new Object[]{3L, "c"}));
+    }
+
+    @AfterEach
+    void tearDown() {
+        MDC.remove(QueryGuard.MDC_KEY);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        targetDataSource.destroy();
+    }
+
+    @Test
+    @DisplayName("Форма запроса не зависит от литералов, пробелов и длины списков")
+    void shape_Test() {
+        assertThat(QueryGuard.shapeOf("SELECT ID FROM PERSON\n  WHERE ID IN (?, ?, ?) AND TITLE = 'it''s' LIMIT 10"))
+                .isEqualTo("SELECT ID FROM PERSON WHERE ID IN (?...) AND TITLE = ? LIMIT ?");
+        assertThat(QueryGuard.shapeOf("INSERT INTO BOOK(ID, PERSON_ID) VALUES (?,?),(?,?),(?,?)"))
+                .isEqualTo(QueryGuard.shapeOf("INSERT INTO BOOK(ID, PERSON_ID) VALUES (?,?),(?,?)"));
+        assertThat(QueryGuard.shapeOf("select person0_.id as id1_1_ from ulab_edu.person person0_"))
+                .isEqualTo("select person0_.id as id1_1_ from ulab_edu.person person0_");
+    }
+
+    @Test
+    @DisplayName("Повтор одного запроса отмечается как N+1 один раз за HTTP-запрос")
+    void repeated_Test() {
+        //given
+        RequestQueries queries = begin();
+
+        //when
+        for (long id = 1; id <= 3; id++) {
+            jdbcTemplate.queryForObject("SELECT TITLE FROM PERSON WHERE ID = ?", String.class, id);
+        }
+        jdbcTemplate.queryForObject("SELECT TITLE FROM PERSON WHERE ID = 1", String.class);
+        queryGuard.end(queries);
+
+        //then
+        assertThat(queries.statements()).isEqualTo(4);
+        assertThat(meterRegistry.get(QueryGuard.REPEATED_COUNTER_NAME).tag("endpoint", ENDPOINT).counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get(QueryGuard.STATEMENTS_PER_REQUEST_NAME).tag("endpoint", ENDPOINT)
+                .summary().totalAmount()).isEqualTo(4);
+        assertThat(meterRegistry.get(QueryGuard.STATEMENT_TIMER_NAME)
+                .tag("statement", "SELECT TITLE FROM PERSON WHERE ID = ?").timer().count()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("В режиме FAIL обращения сверх бюджета точки входа отклоняются")
+    void failOverBudget_Test() {
+        //given
+        properties.setAction(QueryGuardProperties.Action.FAIL);
+        properties.setBudgets(Map.of(ENDPOINT, 2));
+        RequestQueries queries = begin();
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PERSON", Long.class);
+        jdbcTemplate.batchUpdate("UPDATE PERSON SET TITLE = ? WHERE ID = ?",
+                List.of(new Object[]{"x", 1L}, new Object[]{"y", 2L}));
+
+        //then
+        assertThatThrownBy(() -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PERSON", Long.class))
+                .isInstanceOf(QueryBudgetExceededException.class)
+                .hasMessage(ENDPOINT + " exceeded its budget of 2 statements");
+        assertThat(meterRegistry.get(QueryGuard.BUDGET_EXCEEDED_COUNTER_NAME).counter().count()).isEqualTo(1);
+
+        //when
+        queryGuard.end(queries);
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PERSON", Long.class);
+
+        //then
+        assertThat(queries.statements()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Одновременные запросы учитываются раздельно, сводка точки входа создаётся один раз")
+    void separateRequests_Test() {
+        //given
+        AtomicInteger summaryRegistrations = new AtomicInteger();
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public Meter.Id map(Meter.Id id) {
+                if (id.getName().equals(QueryGuard.STATEMENTS_PER_REQUEST_NAME)) {
+                    summaryRegistrations.incrementAndGet();
+                }
+                return id;
+            }
+        });
+        RequestQueries first = begin();
+        RequestQueries second = begin();
+
+        //when
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PERSON", Long.class);
+        MDC.put(QueryGuard.MDC_KEY, first.key());
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PERSON", Long.class);
+        queryGuard.end(first);
+        queryGuard.end(second);
+        queryGuard.end(second);
+
+        //then
+        assertThat(first.key()).isNotEqualTo(second.key());
+        assertThat(first.statements()).isEqualTo(1);
+        assertThat(second.statements()).isEqualTo(1);
+        assertThat(meterRegistry.get(QueryGuard.STATEMENTS_PER_REQUEST_NAME).tag("endpoint", ENDPOINT)
+                .summary().count()).isEqualTo(2);
+        assertThat(summaryRegistrations.get()).isEqualTo(1);
+    }
+
+    private RequestQueries begin() {
+        RequestQueries queries = queryGuard.begin(() -> ENDPOINT);
+        MDC.put(QueryGuard.MDC_KEY, queries.key());
+        return queries;
+    }
+}
@@ -0,0 +1,211 @@
+package com.edu.ulab.app.facade;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.edu.ulab.app.cache.IdempotentResponseCache;
+import com.edu.ulab.app.cache.UserBookCache;
+import com.edu.ulab.app.config.AsyncConfig;
+import com.edu.ulab.app.config.IdempotencyProperties;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.IdempotencyKeyReusedException;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.logging.RequestBufferingAppender;
+import com.edu.ulab.app.logging.RequestBufferingAppender.RequestBuffer;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserBooksBatchResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты асинхронного фасада {@link AsyncUserDataFacade}.
+ */
+@DisplayName("Testing async user data facade.")
+public class AsyncUserDataFacadeTest {
+    UserDataFacade userDataFacade;
+    UserService userService;
+    BookService bookService;
+    UserBookCache userBookCache;
+    ExecutorService executor;
+    AsyncUserDataFacade asyncUserDataFacade;
+
+    @BeforeEach
+    void setUp() {
+        userDataFacade = mock(UserDataFacade.class);
+        userService = mock(UserService.class);
+        bookService = mock(BookService.class);
+        userBookCache = mock(UserBookCache.class);
+        when(userDataFacade.getUserService()).thenReturn(userService);
+        when(userDataFacade.getBookService()).thenReturn(bookService);
+        executor = Executors.newFixedThreadPool(2);
+        asyncUserDataFacade = new AsyncUserDataFacade(userDataFacade, userBookCache,
+                new IdempotentResponseCache(new IdempotencyProperties(), new SimpleMeterRegistry()), new ObjectMapper(), executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Пользователи и книги запрашиваются параллельно")
+    void getUsersWithBooks_Test() throws Exception {
+        //given
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        when(userService.getUsersByIds(anyCollection())).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            assertThat(bothStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            return List.of(new UserDto(1L, "Test User", "reader", 20));
+        });
+        when(bookService.getBookIdsByUserIds(anyCollection())).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            assertThat(bothStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            return Map.of(1L, List.of(10L, 11L), 2L, List.of(12L));
+        });
+
+        //when
+        UserBooksBatchResponse response = asyncUserDataFacade.getUsersWithBooks(List.of(1L, 2L))
+                .get(5, TimeUnit.SECONDS);
+
+        //then
+        assertThat(response.getUsers()).containsExactly(UserBookResponse.builder()
+                .userId(1L)
+                .booksIdList(List.of(10L, 11L))
+                .build());
+        assertThat(response.getMissingIds()).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Ответ из кэша возвращается без обращения к базе")
+    void getCachedUserWithBooks_Test() {
+        //given
+        UserBookResponse cached = UserBookResponse.builder()
+                .userId(1L)
+                .booksIdList(List.of(10L))
+                .build();
+        when(userBookCache.getIfPresent(1L)).thenReturn(Optional.of(cached));
+
+        //when
+        UserBookResponse response = asyncUserDataFacade.getUserWithBooks(1L).join();
+
+        //then
+        assertThat(response).isEqualTo(cached);
+        verify(userDataFacade, never()).getUserWithBooks(anyLong());
+    }
+
+    @Test
+    @DisplayName("Повтор создания с тем же rqid не обращается к фасаду")
+    void createUserWithBooksRepeated_Test() {
+        //given
+        UserBookRequest request = new UserBookRequest();
+        when(userDataFacade.createUserWithBooks(eq(request), eq("rq-1"), anyString())).thenReturn(UserBookResponse.builder()
+                .userId(1L)
+                .booksIdList(List.of(10L))
+                .build());
+
+        //when
+        UserBookResponse first = asyncUserDataFacade.createUserWithBooks(request, "rq-1").join();
+        UserBookResponse second = asyncUserDataFacade.createUserWithBooks(request, "rq-1").join();
+
+        //then
+        assertThat(second).isEqualTo(first);
+        verify(userDataFacade, times(1)).createUserWithBooks(eq(request), eq("rq-1"), anyString());
+    }
+
+    @Test
+    @DisplayName("Тот же rqid с другим телом запроса отклоняется")
+    void createUserWithBooksReused_Test() {
+        //given
+        UserBookRequest request = new UserBookRequest();
+        UserBookRequest otherRequest = new UserBookRequest();
+        otherRequest.setBookRequests(List.of());
+        when(userDataFacade.createUserWithBooks(eq(request), eq("rq-1"), anyString())).thenReturn(UserBookResponse.builder()
+                .userId(1L)
+                .booksIdList(List.of(10L))
+                .build());
+        asyncUserDataFacade.createUserWithBooks(request, "rq-1").join();
+
+        //when
+        CompletableFuture<UserBookResponse> reused = asyncUserDataFacade.createUserWithBooks(otherRequest, "rq-1");
+
+        //then
+        assertThatThrownBy(reused::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IdempotencyKeyReusedException.class);
+        verify(userDataFacade, never()).createUserWithBooks(eq(otherRequest), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Диагностика упавшего запроса из потоков db-* выводится вместе с буфером запроса")
+    void dbThreadDiagnostics_Test() {
+        //given
+        LoggerContext context = new LoggerContext();
+        ListAppender<ILoggingEvent> output = new ListAppender<>();
+        output.setContext(context);
+        output.start();
+        RequestBufferingAppender appender = new RequestBufferingAppender();
+        appender.setContext(context);
+        appender.addAppender(output);
+        appender.start();
+        Logger logger = context.getLogger("test");
+        logger.setLevel(Level.DEBUG);
+        logger.addAppender(appender);
+
+        ThreadPoolTaskExecutor dbExecutor = new AsyncConfig().dbExecutor(1, 10);
+        dbExecutor.initialize();
+        AsyncUserDataFacade dbFacade = new AsyncUserDataFacade(userDataFacade, userBookCache,
+                new IdempotentResponseCache(new IdempotencyProperties(), new SimpleMeterRegistry()), new ObjectMapper(),
+                dbExecutor);
+        when(userDataFacade.getUserWithBooks(1L)).thenAnswer(invocation -> {
+            logger.debug("reading user {}", 1L);
+            logger.info("user {} not found", 1L);
+            throw new NotFoundException("User with ID=1 not found!");
+        });
+
+        try {
+            //when
+            RequestBufferingAppender.begin();
+            CompletableFuture<UserBookResponse> response = dbFacade.getUserWithBooks(1L);
+            RequestBuffer buffer = RequestBufferingAppender.detach();
+            assertThatThrownBy(response::join).hasCauseInstanceOf(NotFoundException.class);
+            List<ILoggingEvent> beforeEnd = List.copyOf(output.list);
+            RequestBufferingAppender.end(buffer, true);
+
+            //then
+            assertThat(beforeEnd).isEmpty();
+            assertThat(output.list).extracting(ILoggingEvent::getFormattedMessage)
+                    .containsExactly("reading user 1", "user 1 not found");
+            assertThat(output.list).extracting(ILoggingEvent::getThreadName).allMatch(name -> name.startsWith("db-"));
+        } finally {
+            dbExecutor.shutdown();
+            appender.stop();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.dto.BookDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование сопоставления книг {@link BookSetDiff}.
+ */
+@DisplayName("Testing book set reconciliation.")
+public class BookSetDiffTest {
+
+    @Test
+    @DisplayName("Неизменённые книги сохраняют идентификаторы, лишние удаляются, новые вставляются")
+    void diff_Test() {
+        //given
+        List<BookDto> storedBooks = List.of(
+                new BookDto(1L, 7L, "Nose", "Gogol", 200),
+                new BookDto(2L, 7L, "Mummy", "Aaron", 500, 4L),
+                new BookDto(3L, 7L, "Dead Souls", "Gogol", 400));
+
+        BookDto same = new BookDto(null, 7L, "Nose", "Gogol", 200);
+        BookDto changed = new BookDto(null, 7L, "Mummy", "Aaron", 550);
+        BookDto added = new BookDto(null, 7L, "Viy", "Gogol", 100);
+
+        //when
+        BookSetDiff diff = BookSetDiff.of(storedBooks, List.of(same, changed, added));
+
+        //then
+        assertThat(same.getId()).isEqualTo(1L);
+        assertThat(changed.getId()).isEqualTo(2L);
+        assertThat(changed.getVersion()).isEqualTo(4L);
+        assertThat(diff.getBooksToUpdate()).containsExactly(changed);
+        assertThat(diff.getBooksToInsert()).containsExactly(added);
+        assertThat(diff.getBookIdsToDelete()).containsExactly(3L);
+    }
+
+    @Test
+    @DisplayName("Одинаковый набор книг не требует изменений")
+    void noChanges_Test() {
+        //given
+        List<BookDto> storedBooks = List.of(
+                new BookDto(1L, 7L, "Nose", "Gogol", 200),
+                new BookDto(2L, 7L, "Nose", "Gogol", 200));
+
+        //when
+        BookSetDiff diff = BookSetDiff.of(storedBooks, List.of(
+                new BookDto(null, 7L, "Nose", "Gogol", 200),
+                new BookDto(null, 7L, "Nose", "Gogol", 200)));
+
+        //then
+        assertThat(diff.getBooksToInsert()).isEmpty();
+        assertThat(diff.getBooksToUpdate()).isEmpty();
+        assertThat(diff.getBookIdsToDelete()).isEmpty();
+    }
+}
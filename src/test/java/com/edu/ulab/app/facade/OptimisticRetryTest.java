@@ -0,0 +1,137 @@
+package com.edu.ulab.app.facade;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты повторов при конфликте версий {@link OptimisticRetry}.
+ */
+@DisplayName("Testing optimistic retry.")
+public class OptimisticRetryTest {
+    SimpleMeterRegistry meterRegistry;
+    OptimisticRetry retry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        retry = new OptimisticRetry(3, Duration.ZERO, Duration.ZERO, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Конфликт повторяется до первой успешной попытки")
+    void retried_Test() {
+        //given
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        String result = retry.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("conflict");
+            }
+            return "updated";
+        });
+
+        //then
+        assertThat(result).isEqualTo("updated");
+        assertThat(attempts).hasValue(3);
+        assertThat(conflicts("retried")).isEqualTo(2);
+        assertThat(conflicts("exhausted")).isZero();
+    }
+
+    @Test
+    @DisplayName("После последней попытки конфликт пробрасывается")
+    void exhausted_Test() {
+        //given
+        AtomicInteger attempts = new AtomicInteger();
+
+        //then
+        assertThatThrownBy(() -> retry.execute(() -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("conflict");
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(attempts).hasValue(3);
+        assertThat(conflicts("retried")).isEqualTo(2);
+        assertThat(conflicts("exhausted")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Неблокирующий повтор подписывается заново до исчерпания попыток")
+    void reactiveExhausted_Test() {
+        //given
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> conflict = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new OptimisticLockingFailureException("conflict"));
+        });
+
+        //then
+        assertThatThrownBy(() -> retry.execute(conflict).block())
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(attempts).hasValue(3);
+        assertThat(conflicts("retried")).isEqualTo(2);
+        assertThat(conflicts("exhausted")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Неблокирующий повтор возвращает результат первой попытки без конфликта")
+    void reactiveRetried_Test() {
+        //given
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> update = Mono.defer(() -> attempts.incrementAndGet() < 2
+                ? Mono.error(new OptimisticLockingFailureException("conflict"))
+                : Mono.just("updated"));
+
+        //when
+        String result = retry.execute(update).block();
+
+        //then
+        assertThat(result).isEqualTo("updated");
+        assertThat(attempts).hasValue(2);
+        assertThat(conflicts("retried")).isEqualTo(1);
+        assertThat(conflicts("exhausted")).isZero();
+    }
+
+    @Test
+    @DisplayName("Прочие ошибки не повторяются")
+    void otherFailure_Test() {
+        //given
+        AtomicInteger attempts = new AtomicInteger();
+
+        //then
+        assertThatThrownBy(() -> retry.execute(() -> {
+            attempts.incrementAndGet();
+            throw new DataIntegrityViolationException("duplicate");
+        })).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(attempts).hasValue(1);
+        assertThat(conflicts("retried")).isZero();
+    }
+
+    @Test
+    @DisplayName("Ожидание перед повтором растёт вдвое и ограничено сверху")
+    void delay_Test() {
+        //given
+        OptimisticRetry backoff = new OptimisticRetry(5, Duration.ofNanos(10), Duration.ofNanos(25), meterRegistry);
+
+        //then
+        for (int i = 0; i < 100; i++) {
+            assertThat(backoff.delayNanos(1)).isBetween(0L, 10L);
+            assertThat(backoff.delayNanos(2)).isBetween(0L, 20L);
+            assertThat(backoff.delayNanos(4)).isBetween(0L, 25L);
+        }
+    }
+
+    private double conflicts(String outcome) {
+        return meterRegistry.get(OptimisticRetry.CONFLICTS_COUNTER_NAME).tag("outcome", outcome).counter().count();
+    }
+}
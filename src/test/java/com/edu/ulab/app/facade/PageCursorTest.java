@@ -0,0 +1,52 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.exception.NotValidException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование курсора keyset-пагинации {@link PageCursor}.
+ */
+@DisplayName("Testing page cursor.")
+public class PageCursorTest {
+
+    @Test
+    @DisplayName("Курсор возвращает закодированный ID")
+    void roundTrip_Test() {
+        //when
+        String cursor = PageCursor.encode(Long.MAX_VALUE);
+
+        //then
+        assertThat(cursor).doesNotContain("=", "+", "/");
+        assertThat(PageCursor.decode(cursor)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    @DisplayName("Без курсора страница начинается с начала")
+    void empty_Test() {
+        assertThat(PageCursor.decode(null)).isNull();
+        assertThat(PageCursor.decode(" ")).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"not base64!", "u:abc", "x:10"})
+    @DisplayName("Испорченный курсор отклоняется")
+    void invalid_Test(String value) {
+        //given
+        String cursor = value.contains(":")
+                ? Base64.getUrlEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8))
+                : value;
+
+        //then
+        assertThatThrownBy(() -> PageCursor.decode(cursor))
+                .isInstanceOf(NotValidException.class);
+    }
+}
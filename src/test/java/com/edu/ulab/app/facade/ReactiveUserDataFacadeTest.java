@@ -0,0 +1,275 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.cache.UserBookCache;
+import com.edu.ulab.app.config.R2dbcConfig;
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.r2dbc.R2dbcSequenceRepository;
+import com.edu.ulab.app.service.impl.BookServiceImplR2dbc;
+import com.edu.ulab.app.service.impl.UserServiceImplR2dbc;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserBooksBatchResponse;
+import com.edu.ulab.app.web.response.UserPageResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ConnectionFactoryInitializer;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты {@link ReactiveUserDataFacade} на встроенной H2 через R2DBC.
+ */
+@ActiveProfiles("test")
+@DataR2dbcTest(properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-facade?options=DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+        "spring.sql.init.mode=never"})
+@Import({ReactiveUserDataFacade.class, UserServiceImplR2dbc.class, BookServiceImplR2dbc.class,
+        R2dbcSequenceRepository.class, UserMapperImpl.class, BookMapperImpl.class, OptimisticRetry.class,
+        ReactiveUserDataFacadeTest.Config.class})
+@DisplayName("Testing reactive user data facade.")
+public class ReactiveUserDataFacadeTest {
+    @Autowired
+    ReactiveUserDataFacade userDataFacade;
+
+    @Autowired
+    DatabaseClient databaseClient;
+
+    @MockBean
+    UserBookCache userBookCache;
+
+    @MockBean
+    EntityManagerFactory entityManagerFactory;
+
+    Cache hibernateCache;
+
+    @BeforeEach
+    void setUp() {
+        javax.persistence.Cache cache = mock(javax.persistence.Cache.class);
+        hibernateCache = mock(Cache.class);
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        when(cache.unwrap(Cache.class)).thenReturn(hibernateCache);
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ConnectionFactoryInitializer schemaInitializer(ConnectionFactory connectionFactory) {
+            ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
+            initializer.setConnectionFactory(connectionFactory);
+            initializer.setDatabasePopulator(new ResourceDatabasePopulator(new ClassPathResource("sql/r2dbc/schema.sql")));
+            return initializer;
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean(R2dbcConfig.R2DBC_TRANSACTIONAL_OPERATOR)
+        TransactionalOperator r2dbcTransactionalOperator(ReactiveTransactionManager transactionManager) {
+            return TransactionalOperator.create(transactionManager);
+        }
+    }
+
+    @Test
+    @DisplayName("Создание и чтение пользователя с книгами")
+    void createAndGet_Test() {
+        //when
+        UserBookResponse created = userDataFacade.createUserWithBooks(request("create", "Book 1", "Book 2")).block();
+        UserBookResponse found = userDataFacade.getUserWithBooks(created.getUserId()).block();
+
+        //then
+        assertThat(created.getBooksIdList()).hasSize(2);
+        assertThat(created.getVersion()).isZero();
+        assertThat(found).isEqualTo(created);
+    }
+
+    @Test
+    @DisplayName("Обновление заменяет набор книг и сбрасывает кэш")
+    void update_Test() {
+        //given
+        UserBookResponse created = userDataFacade.createUserWithBooks(request("update", "Book 1", "Book 2")).block();
+
+        //when
+        UserBookResponse updated = userDataFacade.updateUserWithBooks(request("update", "Book 2", "Book 3"),
+                created.getUserId()).block();
+
+        //then
+        assertThat(updated.getBooksIdList()).hasSize(2);
+        assertThat(updated.getBooksIdList().get(0)).isEqualTo(created.getBooksIdList().get(1));
+        assertThat(updated.getVersion()).isEqualTo(1L);
+        assertThat(userDataFacade.getUserWithBooks(created.getUserId()).block().getBooksIdList())
+                .containsExactlyInAnyOrderElementsOf(updated.getBooksIdList());
+        verify(userBookCache).invalidate(created.getUserId());
+        verifyHibernateCacheEvicted(created.getUserId());
+    }
+
+    @Test
+    @DisplayName("Обновление по текущей версии из If-Match проходит, по устаревшей отклоняется")
+    void updateIfMatch_Test() {
+        //given
+        UserBookResponse created = userDataFacade.createUserWithBooks(request("if-match", "Book 1")).block();
+        UserBookRequest changedBook = request("if-match", "Book 1");
+        changedBook.getBookRequests().get(0).setPageCount(200);
+
+        //when
+        UserBookResponse updated = userDataFacade.updateUserWithBooks(changedBook,
+                created.getUserId(), created.getVersion()).block();
+
+        //then
+        assertThat(updated.getVersion()).isEqualTo(created.getVersion() + 1);
+        assertThat(updated.getBooksIdList()).isEqualTo(created.getBooksIdList());
+        assertThat(bookVersion(created.getBooksIdList().get(0))).isEqualTo(1L);
+        assertThatThrownBy(() -> userDataFacade.updateUserWithBooks(request("if-match-stale"),
+                created.getUserId(), created.getVersion()).block())
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThat(userDataFacade.getUserWithBooks(created.getUserId()).block().getVersion())
+                .isEqualTo(updated.getVersion());
+    }
+
+    @Test
+    @DisplayName("Добавленные при обновлении книги возвращаются с выданными идентификаторами")
+    void updateAddsBooks_Test() {
+        //given
+        UserBookResponse created = userDataFacade.createUserWithBooks(request("add-books", "Book 1")).block();
+
+        //when
+        UserBookResponse updated = userDataFacade.updateUserWithBooks(request("add-books", "Book 1", "Book 2", "Book 3"),
+                created.getUserId()).block();
+
+        //then
+        assertThat(updated.getBooksIdList()).hasSize(3).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(updated.getBooksIdList().get(0)).isEqualTo(created.getBooksIdList().get(0));
+        assertThat(userDataFacade.getUserWithBooks(created.getUserId()).block().getBooksIdList())
+                .containsExactlyInAnyOrderElementsOf(updated.getBooksIdList());
+    }
+
+    @Test
+    @DisplayName("Обновление без If-Match удалённого пользователя не найдено")
+    void updateDeleted_Test() {
+        //given
+        UserBookResponse created = userDataFacade.createUserWithBooks(request("update-deleted")).block();
+        userDataFacade.deleteUserWithBooks(created.getUserId()).block();
+
+        //then
+        assertThatThrownBy(() -> userDataFacade.updateUserWithBooks(request("update-deleted"),
+                created.getUserId()).block())
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Пакетное чтение, страница и выгрузка")
+    void read_Test() {
+        //given
+        UserBookResponse first = userDataFacade.createUserWithBooks(request("read-1", "Book 1")).block();
+        UserBookResponse second = userDataFacade.createUserWithBooks(request("read-2")).block();
+
+        //when
+        UserBooksBatchResponse batch = userDataFacade.getUsersWithBooks(
+                List.of(first.getUserId(), second.getUserId(), -1L)).block();
+        UserPageResponse page = userDataFacade.getUsersPage(new UserFilter("read-2", null, null), null, 10).block();
+        List<UserWithBooksDto> exported = userDataFacade.exportUsersWithBooks().collectList().block();
+
+        //then
+        assertThat(batch.getUsers())
+                .extracting(UserBookResponse::getUserId, UserBookResponse::getBooksIdList)
+                .containsExactly(
+                        tuple(first.getUserId(), first.getBooksIdList()),
+                        tuple(second.getUserId(), second.getBooksIdList()));
+        assertThat(batch.getMissingIds()).containsExactly(-1L);
+        assertThat(page.getUsers()).hasSize(1);
+        assertThat(page.getUsers().get(0).getId()).isEqualTo(second.getUserId());
+        assertThat(exported)
+                .filteredOn(userWithBooks -> userWithBooks.getUser().getId().equals(first.getUserId()))
+                .singleElement()
+                .satisfies(userWithBooks -> assertThat(userWithBooks.getBooks()).hasSize(1));
+    }
+
+    @Test
+    @DisplayName("Удаление пользователя с книгами")
+    void delete_Test() {
+        //given
+        UserBookResponse created = userDataFacade.createUserWithBooks(request("delete", "Book 1")).block();
+
+        //when
+        userDataFacade.deleteUserWithBooks(created.getUserId()).block();
+
+        //then
+        assertThatThrownBy(() -> userDataFacade.getUserWithBooks(created.getUserId()).block())
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> userDataFacade.deleteUserWithBooks(created.getUserId()).block())
+                .isInstanceOf(NotFoundException.class);
+        verifyHibernateCacheEvicted(created.getUserId());
+    }
+
+    private void verifyHibernateCacheEvicted(Long userId) {
+        verify(hibernateCache, atLeastOnce()).evictEntityData(Person.class, userId);
+        verify(hibernateCache, atLeastOnce()).evictCollectionData(Person.BOOKS_ROLE, userId);
+        verify(hibernateCache, atLeastOnce()).evictEntityData(Book.class);
+        verify(hibernateCache, atLeastOnce()).evictQueryRegion(BookRepository.BOOKS_BY_PERSON_REGION);
+    }
+
+    private Long bookVersion(Long bookId) {
+        return databaseClient.sql("SELECT version FROM ulab_edu.book WHERE id = :id")
+                .bind("id", bookId)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .block();
+    }
+
+    private static UserBookRequest request(String title, String... bookTitles) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("Test User");
+        userRequest.setTitle(title);
+        userRequest.setAge(20);
+
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(java.util.Arrays.stream(bookTitles)
+                .map(bookTitle -> {
+                    BookRequest bookRequest = new BookRequest();
+                    bookRequest.setTitle(bookTitle);
+                    bookRequest.setAuthor("Author");
+                    bookRequest.setPageCount(100);
+                    return bookRequest;
+                })
+                .toList());
+        return request;
+    }
+}
@@ -0,0 +1,88 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Тестирование потоковой выгрузки {@link UserDataFacade#exportUsersWithBooks}.
+ */
+@UnitTest
+@DisplayName("Testing NDJSON export.")
+public class UserDataFacadeExportTest {
+    @Mock
+    UserService userService;
+    @Mock
+    BookService bookService;
+    @Mock
+    ObjectProvider<Object> emptyProvider;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    UserDataFacade userDataFacade;
+
+    @BeforeEach
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void setUp() {
+        userDataFacade = new UserDataFacade(Map.of("jdbcUserService", userService),
+                Map.of("jdbcBookService", bookService), "jdbc", null, null, null, null,
+                objectMapper, null, (ObjectProvider) emptyProvider, (ObjectProvider) emptyProvider, null);
+    }
+
+    @Test
+    @DisplayName("Каждый пользователь с книгами пишется отдельной строкой")
+    void export_Test() throws IOException {
+        //given
+        UserWithBooksDto first = new UserWithBooksDto(new UserDto(1L, "First User", "first", 20),
+                List.of(new BookDto(10L, 1L, "book", "author", 100)));
+        UserWithBooksDto second = new UserWithBooksDto(new UserDto(2L, "Second User", "second", 30), List.of());
+        doAnswer(invocation -> {
+            Consumer<UserWithBooksDto> consumer = invocation.getArgument(0);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(userService).forEachUserWithBooks(any());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        //when
+        userDataFacade.exportUsersWithBooks(output);
+
+        //then
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], UserWithBooksDto.class)).isEqualTo(first);
+        assertThat(objectMapper.readValue(lines[1], UserWithBooksDto.class)).isEqualTo(second);
+    }
+
+    @Test
+    @DisplayName("Пустая база даёт пустой ответ")
+    void exportEmpty_Test() throws IOException {
+        //given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        //when
+        userDataFacade.exportUsersWithBooks(output);
+
+        //then
+        assertThat(output.toByteArray()).isEmpty();
+    }
+}
@@ -0,0 +1,60 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserBooksBatchResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Тестирование сборки ответа мультизапроса {@link UserDataFacade#getUsersWithBooks}.
+ */
+@DisplayName("Testing users with books multi-get.")
+public class UserDataFacadeMultiGetTest {
+
+    @Test
+    @DisplayName("Повторы и null удаляются с сохранением порядка")
+    void distinctUserIds_Test() {
+        //when
+        List<Long> ids = UserDataFacade.distinctUserIds(Arrays.asList(3L, null, 1L, 3L, 2L, 1L));
+
+        //then
+        assertThat(ids).containsExactly(3L, 1L, 2L);
+    }
+
+    @Test
+    @DisplayName("Слишком длинный список ID отклоняется")
+    void tooManyIds_Test() {
+        //given
+        List<Long> ids = new ArrayList<>(LongStream.rangeClosed(1, 1001).boxed().toList());
+
+        //then
+        assertThatThrownBy(() -> UserDataFacade.distinctUserIds(ids))
+                .isInstanceOf(NotValidException.class);
+    }
+
+    @Test
+    @DisplayName("Найденные пользователи идут в порядке запроса, отсутствующие перечислены отдельно")
+    void toBatchResponse_Test() {
+        //when
+        UserBooksBatchResponse response = UserDataFacade.toBatchResponse(List.of(3L, 1L, 2L), Set.of(1L, 3L),
+                Map.of(3L, List.of(30L, 31L)));
+
+        //then
+        assertThat(response.getUsers())
+                .extracting(UserBookResponse::getUserId, UserBookResponse::getBooksIdList)
+                .containsExactly(tuple(3L, List.of(30L, 31L)), tuple(1L, List.of()));
+        assertThat(response.getMissingIds()).containsExactly(2L);
+    }
+}
@@ -0,0 +1,119 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.service.impl.BookServiceImplInMemory;
+import com.edu.ulab.app.service.impl.UserServiceImplInMemory;
+import com.edu.ulab.app.storage.Storage;
+import com.edu.ulab.app.web.response.UserPageResponse;
+import com.edu.ulab.app.web.response.UserResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование keyset-пагинации {@link UserDataFacade#getUsersPage} на хранилище в памяти.
+ */
+@UnitTest
+@DisplayName("Testing users page.")
+public class UserDataFacadePageTest {
+    @Mock
+    ObjectProvider<Object> emptyProvider;
+
+    Storage storage;
+    UserDataFacade userDataFacade;
+    List<Long> userIds;
+
+    @BeforeEach
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void setUp() {
+        storage = new Storage();
+        UserMapper userMapper = Mappers.getMapper(UserMapper.class);
+        BookMapper bookMapper = Mappers.getMapper(BookMapper.class);
+        userDataFacade = new UserDataFacade(
+                Map.of("inMemoryUserService", new UserServiceImplInMemory(storage, userMapper, bookMapper)),
+                Map.of("inMemoryBookService", new BookServiceImplInMemory(storage, bookMapper)),
+                "inMemory", userMapper, bookMapper, null, null, null, null,
+                (ObjectProvider) emptyProvider, (ObjectProvider) emptyProvider, null);
+        userIds = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Person person = new Person();
+            person.setFullName("User " + i);
+            person.setTitle("title-" + i);
+            person.setAge(20 + i % 3);
+            userIds.add(storage.saveUser(person).getId());
+        }
+        Book book = new Book();
+        book.setPerson(storage.findUserById(userIds.get(1)).orElseThrow());
+        book.setTitle("book");
+        book.setAuthor("author");
+        book.setPageCount(100);
+        storage.saveBook(book);
+    }
+
+    @Test
+    @DisplayName("Страницы по курсору проходят всех пользователей по возрастанию ID без повторов")
+    void walkPages_Test() {
+        //when
+        List<UserPageResponse> pages = walk(new UserFilter(), 3);
+
+        //then
+        assertThat(pages).hasSize(3);
+        assertThat(pages).extracting(page -> page.getUsers().size()).containsExactly(3, 3, 1);
+        assertThat(pages.get(2).getNextCursor()).isNull();
+        assertThat(pages.stream().flatMap(page -> page.getUsers().stream()).map(UserResponse::getId))
+                .containsExactlyElementsOf(userIds);
+        assertThat(pages.get(0).getUsers().get(1).getBooksIdList()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Фильтр по возрасту применяется на каждой странице")
+    void filteredPages_Test() {
+        //when
+        List<UserPageResponse> pages = walk(new UserFilter(null, 21, 21), 1);
+
+        //then
+        assertThat(pages.stream().flatMap(page -> page.getUsers().stream()).map(UserResponse::getId))
+                .containsExactly(userIds.get(1), userIds.get(4));
+    }
+
+    @Test
+    @DisplayName("Пользователь, удалённый между страницами, не мешает следующей странице")
+    void deletedBetweenPages_Test() {
+        //given
+        UserPageResponse first = userDataFacade.getUsersPage(new UserFilter(), null, 2);
+        storage.deleteUserById(userIds.get(1));
+        storage.deleteUserById(userIds.get(2));
+
+        //when
+        UserPageResponse second = userDataFacade.getUsersPage(new UserFilter(), first.getNextCursor(), 2);
+
+        //then
+        assertThat(second.getUsers()).extracting(UserResponse::getId)
+                .containsExactly(userIds.get(3), userIds.get(4));
+    }
+
+    private List<UserPageResponse> walk(UserFilter filter, int limit) {
+        List<UserPageResponse> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            UserPageResponse page = userDataFacade.getUsersPage(filter, cursor, limit);
+            pages.add(page);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return pages;
+    }
+}
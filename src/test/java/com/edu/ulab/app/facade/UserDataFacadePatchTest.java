@@ -0,0 +1,133 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.cache.UserBookCache;
+import com.edu.ulab.app.config.H2ChangesetDatabase;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.repository.SequenceRepository;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import com.edu.ulab.app.web.request.BookPatchRequest;
+import com.edu.ulab.app.web.request.UserPatchRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Тестирование частичного обновления {@link UserDataFacade} на JDBC-сервисах и схеме Liquibase в H2.
+ */
+@DisplayName("Testing user and book patch.")
+public class UserDataFacadePatchTest {
+    H2ChangesetDatabase database;
+    JdbcTemplate jdbcTemplate;
+    UserBookCache userBookCache;
+    UserDataFacade userDataFacade;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        database = new H2ChangesetDatabase("facade-patch");
+        jdbcTemplate = database.jdbcTemplate();
+        PooledIdAllocator idAllocator = new PooledIdAllocator(new SequenceRepository(jdbcTemplate));
+        userBookCache = mock(UserBookCache.class);
+        userDataFacade = new UserDataFacade(
+                Map.of("jdbcUserService", new UserServiceImplTemplate(jdbcTemplate, idAllocator)),
+                Map.of("jdbcBookService", new BookServiceImplTemplate(jdbcTemplate, idAllocator)),
+                "jdbc", Mappers.getMapper(UserMapper.class), Mappers.getMapper(BookMapper.class),
+                userBookCache, null, new ObjectMapper(), null,
+                mock(ObjectProvider.class), mock(ObjectProvider.class),
+                new OptimisticRetry(3, Duration.ZERO, Duration.ZERO, new SimpleMeterRegistry()));
+        jdbcTemplate.update("INSERT INTO PERSON(ID, FULL_NAME, TITLE, AGE) VALUES (1, 'First User', 'first', 20), " +
+                "(2, 'Second User', 'second', 30)");
+        jdbcTemplate.update("INSERT INTO BOOK(ID, PERSON_ID, TITLE, AUTHOR, PAGE_COUNT) VALUES (10, 1, 'first book', 'author', 100), " +
+                "(20, 2, 'second book', 'author', 200)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    @DisplayName("Новая версия пользователя приходит сгенерированным ключом UPDATE, кеш пользователя сбрасывается")
+    void patchUser_Test() {
+        //when
+        long unconditional = userDataFacade.patchUser(userPatch("Patched User"), 1L, null);
+        long conditional = userDataFacade.patchUser(userPatch("Patched Again"), 1L, unconditional);
+
+        //then
+        assertThat(unconditional).isEqualTo(1L);
+        assertThat(conditional).isEqualTo(2L);
+        assertThat(jdbcTemplate.queryForObject("SELECT FULL_NAME FROM PERSON WHERE ID = 1", String.class))
+                .isEqualTo("Patched Again");
+        verify(userBookCache, times(2)).invalidate(1L);
+    }
+
+    @Test
+    @DisplayName("Отсутствующий пользователь не найден с If-Match и без, устаревшая версия - 412")
+    void patchUserNotFoundOrPreconditionFailed_Test() {
+        //then
+        assertThatThrownBy(() -> userDataFacade.patchUser(userPatch("Patched User"), 3L, null))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> userDataFacade.patchUser(userPatch("Patched User"), 3L, 0L))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> userDataFacade.patchUser(userPatch("Patched User"), 1L, 5L))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+
+    @Test
+    @DisplayName("Книга другого пользователя не найдена с If-Match и без, устаревшая версия - 412")
+    void patchBookNotFoundOrPreconditionFailed_Test() {
+        //then
+        assertThatThrownBy(() -> userDataFacade.patchBook(bookPatch(150L), 1L, 20L, null))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> userDataFacade.patchBook(bookPatch(150L), 1L, 20L, 0L))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> userDataFacade.patchBook(bookPatch(150L), 1L, 10L, 5L))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThat(userDataFacade.patchBook(bookPatch(150L), 1L, 10L, 0L)).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT PAGE_COUNT FROM BOOK WHERE ID = 20", Long.class))
+                .isEqualTo(200L);
+    }
+
+    @Test
+    @DisplayName("Пустое изменение отклоняется")
+    void emptyPatch_Test() {
+        //then
+        assertThatThrownBy(() -> userDataFacade.patchUser(new UserPatchRequest(), 1L, null))
+                .isInstanceOf(NotValidException.class);
+        assertThatThrownBy(() -> userDataFacade.patchBook(new BookPatchRequest(), 1L, 10L, null))
+                .isInstanceOf(NotValidException.class);
+    }
+
+    private static UserPatchRequest userPatch(String fullName) {
+        UserPatchRequest request = new UserPatchRequest();
+        request.setFullName(fullName);
+        return request;
+    }
+
+    private static BookPatchRequest bookPatch(Long pageCount) {
+        BookPatchRequest request = new BookPatchRequest();
+        request.setPageCount(pageCount);
+        return request;
+    }
+}
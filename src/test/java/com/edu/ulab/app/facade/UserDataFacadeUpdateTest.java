@@ -0,0 +1,153 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.cache.UserBookCache;
+import com.edu.ulab.app.config.H2ChangesetDatabase;
+import com.edu.ulab.app.config.HibernateCacheConfig;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.repository.SequenceRepository;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.service.impl.BookServiceImpl;
+import com.edu.ulab.app.service.impl.BookServiceImplInMemory;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserServiceImpl;
+import com.edu.ulab.app.service.impl.UserServiceImplInMemory;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import com.edu.ulab.app.storage.Storage;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Тестирование обновления пользователя с книгами {@link UserDataFacade} на каждом варианте сервисов:
+ * в памяти, JDBC и JPA на схеме Liquibase в H2.
+ */
+@ActiveProfiles("test")
+@DataJpaTest(properties = {
+        "app.storage.backend=jpa",
+        "spring.liquibase.enabled=false",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UserServiceImpl.class, BookServiceImpl.class, UserMapperImpl.class, BookMapperImpl.class,
+        PooledIdAllocator.class, SequenceRepository.class, HibernateCacheConfig.class,
+        UserDataFacadeUpdateTest.Config.class})
+@DisplayName("Testing user with books update.")
+public class UserDataFacadeUpdateTest {
+    @Autowired
+    UserServiceImpl jpaUserService;
+    @Autowired
+    BookServiceImpl jpaBookService;
+    @Autowired
+    UserMapper userMapper;
+    @Autowired
+    BookMapper bookMapper;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    PooledIdAllocator idAllocator;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @TestConfiguration
+    static class Config {
+        @Bean(destroyMethod = "close")
+        H2ChangesetDatabase database() {
+            return new H2ChangesetDatabase("facade-update");
+        }
+
+        @Bean
+        DataSource dataSource(H2ChangesetDatabase database) {
+            return database.dataSource();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"inMemory", "jdbc", "jpa"})
+    @DisplayName("Добавленные при обновлении книги возвращаются с выданными идентификаторами")
+    void updateAddsBooks_Test(String backend) {
+        //given
+        UserDataFacade userDataFacade = facade(backend);
+        UserBookResponse created = userDataFacade.createUserWithBooks(request(backend, "Book 1"));
+
+        //when
+        UserBookResponse updated = userDataFacade.updateUserWithBooks(
+                request(backend, "Book 1", "Book 2", "Book 3"), created.getUserId());
+
+        //then
+        assertThat(updated.getBooksIdList()).hasSize(3).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(updated.getBooksIdList().get(0)).isEqualTo(created.getBooksIdList().get(0));
+        assertThat(userDataFacade.getBookService().getBooksByUserId(created.getUserId()))
+                .extracting(BookDto::getId)
+                .containsExactlyInAnyOrderElementsOf(updated.getBooksIdList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private UserDataFacade facade(String backend) {
+        Storage storage = new Storage();
+        Map<String, UserService> userServices = Map.of(
+                "inMemoryUserService", new UserServiceImplInMemory(storage, userMapper, bookMapper),
+                "jdbcUserService", new UserServiceImplTemplate(jdbcTemplate, idAllocator),
+                "jpaUserService", jpaUserService);
+        Map<String, BookService> bookServices = Map.of(
+                "inMemoryBookService", new BookServiceImplInMemory(storage, bookMapper),
+                "jdbcBookService", new BookServiceImplTemplate(jdbcTemplate, idAllocator),
+                "jpaBookService", jpaBookService);
+        return new UserDataFacade(userServices, bookServices, backend, userMapper, bookMapper,
+                mock(UserBookCache.class), null, new ObjectMapper(), new TransactionTemplate(transactionManager),
+                mock(ObjectProvider.class), mock(ObjectProvider.class),
+                new OptimisticRetry(3, Duration.ZERO, Duration.ZERO, new SimpleMeterRegistry()));
+    }
+
+    private static UserBookRequest request(String title, String... bookTitles) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("Test User");
+        userRequest.setTitle(title);
+        userRequest.setAge(30);
+
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(Arrays.stream(bookTitles)
+                .map(bookTitle -> {
+                    BookRequest bookRequest = new BookRequest();
+                    bookRequest.setTitle(bookTitle);
+                    bookRequest.setAuthor("Author");
+                    bookRequest.setPageCount(100);
+                    return bookRequest;
+                })
+                .toList());
+        return request;
+    }
+}
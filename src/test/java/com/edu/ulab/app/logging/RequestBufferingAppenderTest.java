@@ -0,0 +1,144 @@
+package com.edu.ulab.app.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты буферизации диагностики запроса {@link RequestBufferingAppender}.
+ */
+@DisplayName("Testing request buffering appender.")
+public class RequestBufferingAppenderTest {
+    RequestBufferingAppender appender;
+    ListAppender<ILoggingEvent> output;
+    Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        LoggerContext context = new LoggerContext();
+        output = new ListAppender<>();
+        output.setContext(context);
+        output.start();
+
+        appender = new RequestBufferingAppender();
+        appender.setContext(context);
+        appender.setMaxEventsPerRequest(2);
+        appender.addAppender(output);
+        appender.start();
+
+        logger = context.getLogger("test");
+        logger.setLevel(Level.DEBUG);
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestBufferingAppender.end(false);
+        appender.stop();
+        MDC.clear();
+    }
+
+    @Test
+    @DisplayName("Диагностика успешного запроса отбрасывается")
+    void discard_Test() {
+        //when
+        RequestBufferingAppender.begin();
+        logger.info("mapped {}", "user");
+        logger.debug("saved {}", "user");
+        int dropped = RequestBufferingAppender.end(false);
+
+        //then
+        assertThat(output.list).isEmpty();
+        assertThat(dropped).isZero();
+    }
+
+    @Test
+    @DisplayName("Диагностика упавшего запроса выводится с MDC на момент записи")
+    void flush_Test() {
+        //given
+        MDC.put("requestId", "rq-1");
+
+        //when
+        RequestBufferingAppender.begin();
+        logger.debug("saved {}", "user");
+        MDC.remove("requestId");
+        RequestBufferingAppender.end(true);
+
+        //then
+        assertThat(output.list).hasSize(1);
+        assertThat(output.list.get(0).getFormattedMessage()).isEqualTo("saved user");
+        assertThat(output.list.get(0).getMDCPropertyMap()).containsEntry("requestId", "rq-1");
+    }
+
+    @Test
+    @DisplayName("WARN выводится сразу, переполнение вытесняет старые записи")
+    void warnAndOverflow_Test() {
+        //when
+        RequestBufferingAppender.begin();
+        logger.info("first");
+        logger.warn("warning");
+        logger.info("second");
+        logger.info("third");
+
+        //then
+        assertThat(output.list).extracting(ILoggingEvent::getFormattedMessage).containsExactly("warning");
+        assertThat(RequestBufferingAppender.end(true)).isEqualTo(1);
+        assertThat(output.list).extracting(ILoggingEvent::getFormattedMessage)
+                .containsExactly("warning", "second", "third");
+    }
+
+    @Test
+    @DisplayName("Вне запроса INFO выводится сразу, DEBUG отбрасывается")
+    void outsideRequest_Test() {
+        //when
+        logger.debug("debug");
+        logger.info("info");
+
+        //then
+        assertThat(output.list).extracting(ILoggingEvent::getFormattedMessage).containsExactly("info");
+    }
+
+    @Test
+    @DisplayName("Сообщение успешного запроса не форматируется, упавшего - форматируется при выводе")
+    void deferredFormat_Test() {
+        //given
+        CountingArgument discarded = new CountingArgument();
+        CountingArgument flushed = new CountingArgument();
+
+        //when
+        RequestBufferingAppender.begin();
+        logger.debug("saved {}", discarded);
+        RequestBufferingAppender.end(false);
+        RequestBufferingAppender.begin();
+        logger.debug("saved {}", flushed);
+        int formattedBeforeFlush = flushed.formatted;
+        RequestBufferingAppender.end(true);
+
+        //then
+        assertThat(discarded.formatted).isZero();
+        assertThat(formattedBeforeFlush).isZero();
+        assertThat(output.list).hasSize(1);
+        assertThat(output.list.get(0).getFormattedMessage()).isEqualTo("saved user");
+        assertThat(flushed.formatted).isEqualTo(1);
+        assertThat(output.list.get(0).getThreadName()).isEqualTo(Thread.currentThread().getName());
+    }
+
+    private static class CountingArgument {
+        int formatted;
+
+        @Override
+        public String toString() {
+            formatted++;
+            return "user";
+        }
+    }
+}
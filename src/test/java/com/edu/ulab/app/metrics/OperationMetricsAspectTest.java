@@ -0,0 +1,104 @@
+package com.edu.ulab.app.metrics;
+
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.service.impl.UserServiceImplInMemory;
+import com.edu.ulab.app.storage.Storage;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+/**
+ * Тесты метрик {@link OperationMetricsAspect}.
+ */
+@DisplayName("Testing operation metrics aspect.")
+public class OperationMetricsAspectTest {
+    SimpleMeterRegistry meterRegistry;
+    UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new UserServiceImplInMemory(
+                new Storage(), Mappers.getMapper(UserMapper.class), Mappers.getMapper(BookMapper.class)));
+        proxyFactory.addAspect(new OperationMetricsAspect(meterRegistry, "jdbc"));
+        userService = proxyFactory.getProxy();
+    }
+
+    @Test
+    @DisplayName("Успешный вызов помечается backend сервиса и outcome=success")
+    void success_Test() {
+        //when
+        userService.createUser(new UserDto(null, "Test User", "reader", 20));
+
+        //then
+        Timer timer = meterRegistry.find(OperationMetricsAspect.TIMER_NAME)
+                .tags("class", "UserServiceImplInMemory", "method", "createUser",
+                        "backend", "inMemory", "outcome", "success", "exception", "none")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(meterRegistry.find(OperationMetricsAspect.ERRORS_COUNTER_NAME).counter()).isNull();
+    }
+
+    @Test
+    @DisplayName("NotFoundException учитывается как outcome=not_found")
+    void notFound_Test() {
+        //when
+        assertThatThrownBy(() -> userService.getUserById(1L))
+                .isInstanceOf(NotFoundException.class);
+
+        //then
+        Timer timer = meterRegistry.find(OperationMetricsAspect.TIMER_NAME)
+                .tags("method", "getUserById", "outcome", "not_found", "exception", "NotFoundException")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(meterRegistry.get(OperationMetricsAspect.ERRORS_COUNTER_NAME)
+                .tags("method", "getUserById", "outcome", "not_found")
+                .counter()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Повторные вызовы берут таймер из кеша без повторной регистрации")
+    void cachedMeters_Test() {
+        //given
+        AtomicInteger registrations = new AtomicInteger();
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public Meter.Id map(Meter.Id id) {
+                registrations.incrementAndGet();
+                return id;
+            }
+        });
+
+        //when
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> userService.getUserById(1L))
+                    .isInstanceOf(NotFoundException.class);
+        }
+
+        //then
+        assertThat(meterRegistry.get(OperationMetricsAspect.TIMER_NAME)
+                .tags("method", "getUserById", "outcome", "not_found")
+                .timer()
+                .count()).isEqualTo(3);
+        // таймер и счётчик ошибок регистрируются по одному разу
+        assertThat(registrations).hasValue(2);
+    }
+}
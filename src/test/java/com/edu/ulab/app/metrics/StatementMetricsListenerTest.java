@@ -0,0 +1,65 @@
+package com.edu.ulab.app.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты метрик SQL-запросов {@link StatementMetricsListener}.
+ */
+@DisplayName("Testing statement metrics.")
+public class StatementMetricsListenerTest {
+    SimpleMeterRegistry meterRegistry;
+    StatementMetricsListener listener;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        listener = new StatementMetricsListener(meterRegistry, "jdbc");
+    }
+
+    @Test
+    @DisplayName("Вид запроса определяется по первому слову без учёта регистра")
+    void statementOf_Test() {
+        assertThat(StatementMetricsListener.statementOf("  SELECT ID FROM PERSON")).isEqualTo("select");
+        assertThat(StatementMetricsListener.statementOf("insert into book values (?)")).isEqualTo("insert");
+        assertThat(StatementMetricsListener.statementOf("Update book set title = ?")).isEqualTo("update");
+        assertThat(StatementMetricsListener.statementOf("DELETE FROM BOOK")).isEqualTo("delete");
+        assertThat(StatementMetricsListener.statementOf("COPY book FROM STDIN")).isEqualTo("other");
+    }
+
+    @Test
+    @DisplayName("Время пишется в таймер вида запроса и результата")
+    void afterQuery_Test() {
+        //given
+        ExecutionInfo success = new ExecutionInfo();
+        success.setSuccess(true);
+        success.setElapsedTime(5);
+        ExecutionInfo failure = new ExecutionInfo();
+        failure.setSuccess(false);
+        failure.setElapsedTime(7);
+
+        //when
+        listener.afterQuery(success, List.of(new QueryInfo("select 1")));
+        listener.afterQuery(success, List.of(new QueryInfo("select 2")));
+        listener.afterQuery(failure, List.of(new QueryInfo("update person set age = 1")));
+
+        //then
+        assertThat(meterRegistry.get(StatementMetricsListener.TIMER_NAME)
+                .tags("statement", "select", "backend", "jdbc", "outcome", "success")
+                .timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isEqualTo(10);
+        assertThat(meterRegistry.get(StatementMetricsListener.TIMER_NAME)
+                .tags("statement", "update", "outcome", "error")
+                .timer()
+                .count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,89 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.H2ChangesetDatabase;
+import com.edu.ulab.app.config.IdempotencyProperties;
+import com.edu.ulab.app.exception.IdempotencyKeyReusedException;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тестирование {@link IdempotencyKeyRepository} на схеме Liquibase в H2.
+ */
+@DisplayName("Testing idempotency key repository.")
+public class IdempotencyKeyRepositoryTest {
+    H2ChangesetDatabase database;
+    JdbcTemplate jdbcTemplate;
+    IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @BeforeEach
+    void setUp() {
+        database = new H2ChangesetDatabase("idempotency-key");
+        jdbcTemplate = database.jdbcTemplate();
+        idempotencyKeyRepository = new IdempotencyKeyRepository(jdbcTemplate, new ObjectMapper(),
+                new IdempotencyProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    @DisplayName("Ответ возвращается для того же тела и отклоняется для другого")
+    void findResponse_Test() {
+        //given
+        UserBookResponse response = UserBookResponse.builder()
+                .userId(1L)
+                .booksIdList(List.of(10L))
+                .build();
+        idempotencyKeyRepository.save("rq-1", "hash", response);
+
+        //then
+        assertThat(idempotencyKeyRepository.findResponse("rq-1", "hash")).contains(response);
+        assertThat(idempotencyKeyRepository.findResponse("rq-2", "hash")).isEmpty();
+        assertThatThrownBy(() -> idempotencyKeyRepository.findResponse("rq-1", "other"))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+    }
+
+    @Test
+    @DisplayName("Повтор получает версию пользователя, которой нет в JSON ответа")
+    void findResponseVersion_Test() {
+        //given
+        idempotencyKeyRepository.save("rq-1", "hash", UserBookResponse.builder()
+                .userId(1L)
+                .booksIdList(List.of(10L))
+                .version(0L)
+                .build());
+
+        //when
+        UserBookResponse response = idempotencyKeyRepository.findResponse("rq-1", "hash").orElseThrow();
+
+        //then
+        assertThat(response.getVersion()).isEqualTo(0L);
+        assertThat(jdbcTemplate.queryForObject("SELECT RESPONSE FROM IDEMPOTENCY_KEY WHERE REQUEST_ID = 'rq-1'",
+                String.class)).doesNotContain("version");
+    }
+
+    @Test
+    @DisplayName("Ключ без хэша тела запроса не сохраняется")
+    void requestHashRequired_Test() {
+        //then
+        assertThatThrownBy(() -> jdbcTemplate.update(
+                "INSERT INTO IDEMPOTENCY_KEY(REQUEST_ID, RESPONSE, CREATED_AT) VALUES (?, ?, ?)",
+                "rq-1", "{\"userId\":1,\"booksIdList\":[10]}", Timestamp.from(Instant.now())))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+}
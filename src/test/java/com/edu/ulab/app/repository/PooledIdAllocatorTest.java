@@ -0,0 +1,124 @@
+package com.edu.ulab.app.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты выдачи идентификаторов {@link PooledIdAllocator}.
+ */
+@DisplayName("Testing pooled id allocator.")
+public class PooledIdAllocatorTest {
+    SequenceRepository sequenceRepository;
+    AtomicLong sequence;
+    PooledIdAllocator idAllocator;
+
+    @BeforeEach
+    void setUp() {
+        sequence = new AtomicLong();
+        sequenceRepository = mock(SequenceRepository.class);
+        when(sequenceRepository.nextHiValues(anyInt())).thenAnswer(invocation -> {
+            int count = invocation.getArgument(0);
+            return LongStream.range(0, count).mapToObj(i -> sequence.getAndIncrement()).toList();
+        });
+        when(sequenceRepository.nextIds(anyInt())).thenCallRealMethod();
+        idAllocator = new PooledIdAllocator(sequenceRepository);
+    }
+
+    @Test
+    @DisplayName("Идентификаторы нарезаются из значения последовательности как в JPA")
+    void hiLo_Test() {
+        //given
+        sequence.set(5);
+
+        //when
+        long first = idAllocator.nextId();
+        long[] next = idAllocator.nextIds(99);
+        long afterBlock = idAllocator.nextId();
+
+        //then
+        assertThat(first).isEqualTo(500);
+        assertThat(next).containsExactly(LongStream.rangeClosed(501, 599).toArray());
+        assertThat(afterBlock).isEqualTo(600);
+        verify(sequenceRepository, times(2)).nextHiValues(1);
+    }
+
+    @Test
+    @DisplayName("Для hi = 0 идентификатор 0 не выдаётся")
+    void zeroHi_Test() {
+        //when
+        long[] ids = idAllocator.nextIds(100);
+
+        //then
+        assertThat(ids[0]).isEqualTo(1);
+        assertThat(ids).doesNotHaveDuplicates().doesNotContain(0L);
+    }
+
+    @Test
+    @DisplayName("Большой запрос дополняется блоками за одно обращение к последовательности")
+    void largeRequest_Test() {
+        //given
+        sequence.set(1);
+        long first = idAllocator.nextId();
+
+        //when
+        long[] ids = idAllocator.nextIds(250);
+
+        //then
+        assertThat(first).isEqualTo(100);
+        assertThat(ids).containsExactly(LongStream.rangeClosed(101, 350).toArray());
+        assertThat(idAllocator.nextId()).isEqualTo(400);
+        verify(sequenceRepository).nextHiValues(2);
+    }
+
+    @Test
+    @DisplayName("Параллельная выдача не повторяет идентификаторы")
+    void concurrent_Test() throws Exception {
+        //given
+        int threads = 8;
+        int idsPerThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Callable<long[]>> tasks = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int batch = thread + 1;
+            tasks.add(() -> {
+                long[] ids = new long[idsPerThread];
+                for (int filled = 0; filled < idsPerThread; filled += batch) {
+                    long[] next = idAllocator.nextIds(Math.min(batch, idsPerThread - filled));
+                    System.arraycopy(next, 0, ids, filled, next.length);
+                }
+                return ids;
+            });
+        }
+
+        //when
+        Set<Long> allIds = new HashSet<>();
+        try {
+            for (Future<long[]> future : executor.invokeAll(tasks)) {
+                Arrays.stream(future.get()).forEach(allIds::add);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        //then
+        assertThat(allIds).hasSize(threads * idsPerThread).doesNotContain(0L);
+        assertThat(sequence.get()).isLessThan(threads * idsPerThread / 10L);
+    }
+}
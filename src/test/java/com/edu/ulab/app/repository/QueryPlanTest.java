@@ -0,0 +1,278 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Планы запросов {@link UserRepository}, {@link BookRepository} и JDBC-сервисов
+ * на наборе данных реалистичного размера.
+ * <p>
+ * Запросы, выполненные при вызове метода, перехватываются на уровне DataSource и повторяются
+ * как {@code EXPLAIN (FORMAT JSON)} с теми же параметрами. Тест падает, если план читает
+ * таблицу целиком или его оценка стоимости превышает {@link #COST_BUDGET}. Полная выгрузка
+ * пользователей читает таблицы целиком намеренно, для неё проверяется только план.
+ */
+@SystemJpaTest
+@Testcontainers(disabledWithoutDocker = true)
+@Import(QueryPlanTest.QueryCaptureConfig.class)
+@Sql("classpath:sql/1_clear_schema.sql")
+@DisplayName("Testing query plans.")
+public class QueryPlanTest {
+    private static final int USERS = 20_000;
+    private static final int BOOKS = 100_000;
+    private static final double COST_BUDGET = 500;
+    private static final Set<String> TABLES = Set.of("person", "book");
+
+    @Autowired
+    QueryCapture queryCapture;
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    TestEntityManager entityManager;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    BookRepository bookRepository;
+
+    JdbcTemplate jdbcTemplate;
+    UserServiceImplTemplate userService;
+    BookServiceImplTemplate bookService;
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        PooledIdAllocator idAllocator = new PooledIdAllocator(new SequenceRepository(jdbcTemplate));
+        userService = new UserServiceImplTemplate(jdbcTemplate, idAllocator);
+        bookService = new BookServiceImplTemplate(jdbcTemplate, idAllocator);
+
+        jdbcTemplate.update("INSERT INTO ulab_edu.person (id, full_name, title, age) " +
+                "SELECT g, 'User ' || g, 'title-' || g, 18 + g % 60 FROM generate_series(1, ?) g", USERS);
+        jdbcTemplate.update("INSERT INTO ulab_edu.book (id, person_id, title, author, page_count) " +
+                "SELECT g, 1 + g % ?, 'Book ' || g, 'Author ' || g % 500, 100 + g % 900 " +
+                "FROM generate_series(1, ?) g", USERS, BOOKS);
+        // ANALYZE учитывает строки, вставленные в текущей транзакции
+        jdbcTemplate.execute("ANALYZE ulab_edu.person");
+        jdbcTemplate.execute("ANALYZE ulab_edu.book");
+        // JDBC-сервисы обращаются к таблицам без схемы
+        jdbcTemplate.execute("SET LOCAL search_path TO ulab_edu, public");
+    }
+
+    @Test
+    @DisplayName("Запросы UserRepository читают таблицы по индексам")
+    void userRepository_Test() {
+        assertPlans(() -> {
+            userRepository.findById(100L);
+            userRepository.findByIdForUpdate(101L);
+            userRepository.findBookIdsById(102L);
+            userRepository.existsByTitle("title-103");
+            userRepository.getByTitle("title-104");
+            userRepository.findPage(new UserFilter(), 0L, 20);
+            userRepository.findPage(new UserFilter("title-105", null, null), 0L, 20);
+            userRepository.findPage(new UserFilter(null, 30, 31), 1000L, 20);
+            userRepository.findPage(new UserFilter(null, 30, 30), 1000L, 20);
+        });
+    }
+
+    @Test
+    @DisplayName("Запросы BookRepository читают таблицы по индексам")
+    void bookRepository_Test() {
+        assertPlans(() -> {
+            bookRepository.findById(200L);
+            bookRepository.findByIdForUpdate(201L);
+            bookRepository.findAllByPersonId(202L);
+            bookRepository.findBookIdsByPersonIdIn(List.of(203L, 204L, 205L));
+            bookRepository.deleteAllByIdIn(List.of(206L, 207L));
+            bookRepository.deleteByPersonId(208L);
+            entityManager.flush();
+        });
+    }
+
+    @Test
+    @DisplayName("Запросы JDBC-сервиса пользователей читают таблицы по индексам")
+    void userServiceTemplate_Test() {
+        assertPlans(() -> {
+            userService.getUserById(300L);
+            userService.getUsersByIds(List.of(301L, 302L, 303L));
+            userService.getUsersPage(new UserFilter(), null, 20);
+            userService.getUsersPage(new UserFilter("title-304", null, null), null, 20);
+            userService.getUsersPage(new UserFilter(null, 30, 31), 1000L, 20);
+            userService.getUsersPage(new UserFilter(null, 30, 30), 1000L, 20);
+            userService.getUserBookIds(305L);
+            userService.updateUser(new UserDto(306L, "Updated User", "title-306", 40, 0L));
+            userService.deleteUserById(307L);
+        });
+    }
+
+    @Test
+    @DisplayName("Запросы JDBC-сервиса книг читают таблицы по индексам")
+    void bookServiceTemplate_Test() {
+        assertPlans(() -> {
+            bookService.getBookById(400L);
+            bookService.getBooksByUserId(401L);
+            bookService.getBookIdsByUserIds(List.of(402L, 403L, 404L));
+            bookService.updateBooks(List.of(new BookDto(405L, 405L, "Updated Book", "Author", 300, 0L)));
+            bookService.deleteBooksByIds(List.of(406L, 407L));
+            bookService.deleteBooksByUserId(408L);
+        });
+    }
+
+    @Test
+    @DisplayName("Полная выгрузка пользователей с книгами получает план")
+    void export_Test() {
+        //when
+        List<CapturedQuery> queries = queryCapture.capture(() -> {
+            try (Stream<?> rows = userRepository.streamAllWithBooks()) {
+                rows.findFirst();
+            }
+            userService.forEachUserWithBooks(user -> {
+            });
+        });
+
+        //then
+        assertThat(queries).hasSize(2);
+        queries.forEach(query -> assertThat(explain(query).path("Node Type").asText())
+                .as(query.sql())
+                .isNotEmpty());
+    }
+
+    private void assertPlans(Runnable calls) {
+        //when
+        List<CapturedQuery> queries = queryCapture.capture(calls);
+
+        //then
+        assertThat(queries).isNotEmpty();
+        for (CapturedQuery query : queries) {
+            JsonNode plan = explain(query);
+            List<String> scannedTables = new ArrayList<>();
+            collectSeqScans(plan, scannedTables);
+            assertThat(scannedTables)
+                    .as("Seq Scan in plan of %s%n%s", query.sql(), plan.toPrettyString())
+                    .doesNotContainAnyElementsOf(TABLES);
+            assertThat(plan.path("Total Cost").asDouble())
+                    .as("Cost of %s%n%s", query.sql(), plan.toPrettyString())
+                    .isLessThanOrEqualTo(COST_BUDGET);
+        }
+    }
+
+    private JsonNode explain(CapturedQuery query) {
+        return jdbcTemplate.execute((ConnectionCallback<JsonNode>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + query.sql())) {
+                for (ParameterSetOperation parameter : query.parameters()) {
+                    parameter.getMethod().invoke(ps, parameter.getArgs());
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return objectMapper.readTree(rs.getString(1)).get(0).get("Plan");
+                }
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Cannot bind parameters of " + query.sql(), e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void collectSeqScans(JsonNode plan, List<String> scannedTables) {
+        if ("Seq Scan".equals(plan.path("Node Type").asText())) {
+            scannedTables.add(plan.path("Relation Name").asText());
+        }
+        plan.path("Plans").forEach(child -> collectSeqScans(child, scannedTables));
+    }
+
+    record CapturedQuery(String sql, List<ParameterSetOperation> parameters) {
+    }
+
+    /**
+     * Оборачивает DataSource контекста и запоминает запросы, выполненные внутри {@link #capture}.
+     * Для пакетных запросов запоминается первый набор параметров.
+     */
+    static class QueryCapture implements BeanPostProcessor, QueryExecutionListener {
+        private final List<CapturedQuery> queries = new CopyOnWriteArrayList<>();
+        private volatile boolean capturing;
+
+        List<CapturedQuery> capture(Runnable calls) {
+            queries.clear();
+            capturing = true;
+            try {
+                calls.run();
+            } finally {
+                capturing = false;
+            }
+            return List.copyOf(queries);
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource) {
+                return ProxyDataSourceBuilder.create(dataSource)
+                        .name("Plan-Capture")
+                        .listener(this)
+                        .build();
+            }
+            return bean;
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            if (!capturing) {
+                return;
+            }
+            for (QueryInfo queryInfo : queryInfoList) {
+                List<List<ParameterSetOperation>> parameters = queryInfo.getParametersList();
+                queries.add(new CapturedQuery(queryInfo.getQuery(),
+                        parameters.isEmpty() ? List.of() : parameters.get(0)));
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class QueryCaptureConfig {
+        @Bean
+        static QueryCapture queryCapture() {
+            return new QueryCapture();
+        }
+    }
+}
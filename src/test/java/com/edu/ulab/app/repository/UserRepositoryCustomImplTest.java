@@ -0,0 +1,54 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.UnitTest;
+import com.edu.ulab.app.repository.projection.UserBookRow;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование запросов {@link UserRepositoryCustomImpl} без базы.
+ */
+@UnitTest
+@DisplayName("Testing custom user repository queries.")
+public class UserRepositoryCustomImplTest {
+    @InjectMocks
+    UserRepositoryCustomImpl userRepository;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    TypedQuery<UserBookRow> query;
+
+    @Test
+    @DisplayName("Выгрузка читает курсор пачками по app.export.fetch-size")
+    void streamAllWithBooksFetchSize_Test() {
+        //given
+        ReflectionTestUtils.setField(userRepository, "exportFetchSize", 250);
+        when(entityManager.createQuery(anyString(), eq(UserBookRow.class))).thenReturn(query);
+        when(query.setHint(HINT_FETCH_SIZE, 250)).thenReturn(query);
+        when(query.getResultStream()).thenReturn(Stream.empty());
+
+        //when
+        try (Stream<UserBookRow> rows = userRepository.streamAllWithBooks()) {
+
+            //then
+            assertThat(rows).isEmpty();
+        }
+        verify(query).setHint(HINT_FETCH_SIZE, 250);
+    }
+}
@@ -2,6 +2,7 @@ package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.config.SystemJpaTest;
 import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.repository.projection.UserVersionBookId;
 import com.vladmihalcea.sql.SQLStatementCountValidator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,6 +11,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.List;
+
 import static com.vladmihalcea.sql.SQLStatementCountValidator.*;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -120,4 +123,25 @@ public class UserRepositoryTest {
         assertDeleteCount(0);
     }
 
+    @DisplayName("Получить идентификаторы книг юзера одним запросом")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+          "classpath:sql/2_insert_person_data.sql",
+          "classpath:sql/3_insert_book_data.sql"
+    })
+    void findBookIds_thenAssertDmlCount() {
+        //Given
+
+        //When
+        List<UserVersionBookId> result = userRepository.findBookIdsById(1001L);
+
+        //Then
+        assertThat(result).extracting(UserVersionBookId::getBookId).containsExactly(2002L, 3003L);
+        assertSelectCount(1);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
+
 }
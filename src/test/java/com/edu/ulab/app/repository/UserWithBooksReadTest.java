@@ -0,0 +1,98 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.dto.UserBookIdsDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.service.impl.UserServiceImpl;
+import com.vladmihalcea.sql.SQLStatementCountValidator;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.vladmihalcea.sql.SQLStatementCountValidator.assertSelectCount;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Чтение пользователя с книгами на JPA одним запросом.
+ */
+@SystemJpaTest
+@Testcontainers(disabledWithoutDocker = true)
+@Sql({"classpath:sql/1_clear_schema.sql",
+        "classpath:sql/2_insert_person_data.sql",
+        "classpath:sql/3_insert_book_data.sql"
+})
+@DisplayName("Testing user with books read path.")
+public class UserWithBooksReadTest {
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    BookRepository bookRepository;
+    @Autowired
+    TestEntityManager entityManager;
+
+    UserServiceImpl userService;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserServiceImpl(userRepository, null);
+        SQLStatementCountValidator.reset();
+    }
+
+    @Test
+    @DisplayName("Книги пользователя для сравнения при обновлении читаются одним select без пользователя")
+    void findBooksByPerson_Test() {
+        //when
+        List<Book> books = bookRepository.findAllByPersonId(1001L);
+
+        //then
+        assertThat(books)
+                .extracting(Book::getId)
+                .containsExactlyInAnyOrder(2002L, 3003L);
+        assertThat(books)
+                .extracting(book -> book.getPerson().getId())
+                .containsOnly(1001L);
+        assertSelectCount(1);
+    }
+
+    @Test
+    @DisplayName("Идентификаторы книг для getUserWithBooks читаются одним select без сущностей")
+    void getUserBookIds_Test() {
+        //when
+        UserBookIdsDto userBookIds = userService.getUserBookIds(1001L);
+
+        //then
+        assertThat(userBookIds.getBookIds()).containsExactly(2002L, 3003L);
+        assertThat(userBookIds.getVersion()).isZero();
+        assertSelectCount(1);
+        assertThat(managedEntities()).isZero();
+    }
+
+    @Test
+    @DisplayName("Выгрузка пользователей с книгами идёт одним select без сущностей")
+    void forEachUserWithBooks_Test() {
+        //given
+        List<UserWithBooksDto> users = new ArrayList<>();
+
+        //when
+        userService.forEachUserWithBooks(users::add);
+
+        //then
+        assertThat(users).hasSize(1);
+        assertThat(users.get(0).getBooks()).hasSize(2);
+        assertSelectCount(1);
+        assertThat(managedEntities()).isZero();
+    }
+
+    private int managedEntities() {
+        return entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount();
+    }
+}
@@ -0,0 +1,123 @@
+package com.edu.ulab.app.repository;
+
+import com.edu.ulab.app.config.H2ChangesetDatabase;
+import com.edu.ulab.app.config.HibernateCacheConfig;
+import com.edu.ulab.app.dto.UserBookIdsDto;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.service.impl.UserServiceImpl;
+import com.vladmihalcea.sql.SQLStatementCountValidator;
+import net.ttddyy.dsproxy.listener.DataSourceQueryCountListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.vladmihalcea.sql.SQLStatementCountValidator.assertSelectCount;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Число запросов при чтении пользователя с книгами на JPA, на схеме Liquibase в H2.
+ * В отличие от {@link UserWithBooksReadTest} не требует Docker.
+ */
+@ActiveProfiles("test")
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({HibernateCacheConfig.class, UserWithBooksSelectCountTest.Config.class})
+@DisplayName("Testing user with books select count.")
+public class UserWithBooksSelectCountTest {
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    BookRepository bookRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    TestEntityManager entityManager;
+
+    UserServiceImpl userService;
+
+    @TestConfiguration
+    static class Config {
+        @Bean(destroyMethod = "close")
+        H2ChangesetDatabase database() {
+            return new H2ChangesetDatabase("user-with-books-select-count");
+        }
+
+        @Bean
+        DataSource dataSource(H2ChangesetDatabase database) {
+            return ProxyDataSourceBuilder
+                    .create(database.dataSource())
+                    .listener(new DataSourceQueryCountListener())
+                    .build();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserServiceImpl(userRepository, null);
+        jdbcTemplate.update("INSERT INTO PERSON(ID, FULL_NAME, TITLE, AGE) VALUES (1001, 'default user', 'reader', 55)");
+        jdbcTemplate.update("INSERT INTO BOOK(ID, PERSON_ID, TITLE, AUTHOR, PAGE_COUNT) " +
+                "VALUES (2002, 1001, 'default book', 'author', 5500), (3003, 1001, 'more default book', 'author', 6655)");
+        SQLStatementCountValidator.reset();
+    }
+
+    @Test
+    @DisplayName("Идентификаторы книг для getUserWithBooks читаются одним select без сущностей")
+    void getUserBookIds_Test() {
+        //when
+        UserBookIdsDto userBookIds = userService.getUserBookIds(1001L);
+
+        //then
+        assertThat(userBookIds.getBookIds()).containsExactly(2002L, 3003L);
+        assertSelectCount(1);
+        assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount())
+                .isZero();
+    }
+
+    @Test
+    @DisplayName("Книги пользователя для сравнения при обновлении читаются одним select без пользователя")
+    void findBooksByPerson_Test() {
+        //when
+        List<Book> books = bookRepository.findAllByPersonId(1001L);
+
+        //then
+        assertThat(books)
+                .extracting(book -> book.getPerson().getId())
+                .containsOnly(1001L);
+        assertSelectCount(1);
+    }
+
+    @Test
+    @DisplayName("Выгрузка пользователей с книгами идёт одним select")
+    void forEachUserWithBooks_Test() {
+        //given
+        List<UserWithBooksDto> users = new ArrayList<>();
+
+        //when
+        userService.forEachUserWithBooks(users::add);
+
+        //then
+        assertThat(users).hasSize(1);
+        assertThat(users.get(0).getBooks()).hasSize(2);
+        assertSelectCount(1);
+    }
+}
@@ -0,0 +1,197 @@
+package com.edu.ulab.app.repository.codec;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.BookPatchDto;
+import com.edu.ulab.app.dto.UserDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Проверка кодеков строк на схеме, которую создают changeset'ы Liquibase.
+ * <p>
+ * Changeset'ы выполняются на H2 в режиме PostgreSQL, поэтому переименование столбца
+ * в схеме без правки кодека ломает сборку.
+ */
+@DisplayName("Testing row codecs against Liquibase schema.")
+public class RowCodecSchemaTest {
+    private static final List<String> CHANGESETS = List.of(
+            "db/changelog/changes/v2022062201__create_person_table.sql",
+            "db/changelog/changes/v2022062301__create_book_table.sql",
+            "db/changelog/changes/v2026101804__add_person_book_version.sql");
+
+    SingleConnectionDataSource dataSource;
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:row-codec;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", "sa", "", true);
+        try (Connection connection = dataSource.getConnection()) {
+            for (String changeset : CHANGESETS) {
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource(changeset));
+            }
+        }
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("SET SCHEMA ulab_edu");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.destroy();
+    }
+
+    @Test
+    @DisplayName("Столбцы кодека пользователя есть в схеме и читаются по номерам")
+    void userCodec_Test() {
+        //given
+        UserRowCodec codec = UserRowCodec.INSTANCE;
+        UserDto user = new UserDto(1L, "Test User", "reader", 20);
+
+        //when
+        jdbcTemplate.update(codec.insertSql(1), ps -> codec.bind(ps, 1, user));
+        user.setAge(21);
+        user.setVersion(0L);
+        jdbcTemplate.update(codec.updateSql(), ps -> codec.bindUpdate(ps, user));
+        List<UserDto> users = jdbcTemplate.query(codec.selectSql() + " WHERE ID = ?", codec.rowMapper(), 1L);
+
+        //then
+        assertThat(users).containsExactly(user);
+        assertThat(users.get(0).getVersion()).isEqualTo(1L);
+        assertThat(notNullColumns("person")).isSubsetOf(codec.columns());
+    }
+
+    @Test
+    @DisplayName("Столбцы кодека книги есть в схеме и читаются по номерам")
+    void bookCodec_Test() {
+        //given
+        BookRowCodec codec = BookRowCodec.INSTANCE;
+        BookDto first = new BookDto(1L, 10L, "Book 1", "Author", 100);
+        BookDto second = new BookDto(2L, 10L, "Book 2", "Author", 200);
+
+        //when
+        jdbcTemplate.update(codec.insertSql(2), ps -> codec.bind(ps, codec.bind(ps, 1, first), second));
+        second.setPageCount(250);
+        second.setVersion(0L);
+        jdbcTemplate.update(codec.updateSql(), ps -> codec.bindUpdate(ps, second));
+        List<BookDto> books = jdbcTemplate.query(codec.selectSql() + " WHERE PERSON_ID = ? ORDER BY ID",
+                codec.rowMapper(), 10L);
+
+        //then
+        assertThat(books).containsExactly(first, second);
+        assertThat(books).extracting(BookDto::getVersion).containsExactly(0L, 1L);
+        assertThat(notNullColumns("book")).isSubsetOf(codec.columns());
+    }
+
+    @Test
+    @DisplayName("Обновление по устаревшей версии не меняет строку и отклоняется")
+    void staleVersion_Test() {
+        //given
+        UserRowCodec codec = UserRowCodec.INSTANCE;
+        UserDto user = new UserDto(1L, "Test User", "reader", 20, 0L);
+        jdbcTemplate.update(codec.insertSql(1), ps -> codec.bind(ps, 1, user));
+        UserDto first = new UserDto(1L, "First Writer", "reader", 20, 0L);
+        UserDto second = new UserDto(1L, "Second Writer", "reader", 20, 0L);
+
+        //when
+        int firstUpdated = jdbcTemplate.update(codec.updateSql(), ps -> codec.bindUpdate(ps, first));
+        int secondUpdated = jdbcTemplate.update(codec.updateSql(), ps -> codec.bindUpdate(ps, second));
+
+        //then
+        codec.checkUpdated(firstUpdated, first);
+        assertThatThrownBy(() -> codec.checkUpdated(secondUpdated, second))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(jdbcTemplate.query(codec.selectSql() + " WHERE ID = ?", codec.rowMapper(), 1L))
+                .extracting(UserDto::getFullName, UserDto::getVersion)
+                .containsExactly(tuple("First Writer", 1L));
+    }
+
+    @Test
+    @DisplayName("Частичное обновление меняет только заданные столбцы и возвращает новую версию")
+    void patch_Test() {
+        //given
+        UserRowCodec userCodec = UserRowCodec.INSTANCE;
+        BookRowCodec codec = BookRowCodec.INSTANCE;
+        UserDto user = new UserDto(1L, "Test User", "reader", 20);
+        jdbcTemplate.update(userCodec.insertSql(1), ps -> userCodec.bind(ps, 1, user));
+        BookDto book = new BookDto(10L, 1L, "First Book", "First Author", 100);
+        jdbcTemplate.update(codec.insertSql(1), ps -> codec.bind(ps, 1, book));
+        Map<String, Object> values = codec.patchValues(new BookPatchDto(10L, 1L, null, null, 250L, null));
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(RowCodec.ID_COLUMN, 10L);
+        keys.put("PERSON_ID", 1L);
+        keys.put(RowCodec.VERSION_COLUMN, 0L);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        //when
+        int updated = jdbcTemplate.update(codec.patchStatement(values, keys), keyHolder);
+        int stale = jdbcTemplate.update(codec.patchStatement(values, keys), new GeneratedKeyHolder());
+        keys.put(RowCodec.VERSION_COLUMN, 1L);
+        keys.put("PERSON_ID", 2L);
+        int otherUser = jdbcTemplate.update(codec.patchStatement(values, keys), new GeneratedKeyHolder());
+
+        //then
+        assertThat(codec.patchSql(values.keySet(), keys.keySet()))
+                .isEqualTo("UPDATE BOOK SET PAGE_COUNT = ?, VERSION = VERSION + 1 WHERE ID = ? AND PERSON_ID = ? AND VERSION = ?");
+        assertThat(updated).isEqualTo(1);
+        assertThat(keyHolder.getKey()).isEqualTo(1L);
+        assertThat(stale).isZero();
+        assertThat(otherUser).isZero();
+        assertThat(jdbcTemplate.query(codec.selectSql() + " WHERE ID = ?", codec.rowMapper(), 10L))
+                .extracting(BookDto::getTitle, BookDto::getPageCount, BookDto::getVersion)
+                .containsExactly(tuple("First Book", 250L, 1L));
+        assertThatThrownBy(() -> codec.patchSql(List.of("ID"), keys.keySet()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Кодеки читают строку соединения со смещением")
+    void joinedRow_Test() {
+        //given
+        UserRowCodec userCodec = UserRowCodec.INSTANCE;
+        BookRowCodec bookCodec = BookRowCodec.INSTANCE;
+        UserDto user = new UserDto(1L, "Test User", "reader", 20);
+        BookDto book = new BookDto(2L, 1L, "Book", "Author", 100);
+        jdbcTemplate.update(userCodec.insertSql(1), ps -> userCodec.bind(ps, 1, user));
+        jdbcTemplate.update(bookCodec.insertSql(1), ps -> bookCodec.bind(ps, 1, book));
+
+        //when
+        List<BookDto> books = jdbcTemplate.query(
+                "SELECT " + userCodec.columnList("P") + ", " + bookCodec.columnList("B")
+                        + " FROM PERSON P JOIN BOOK B ON B.PERSON_ID = P.ID",
+                (rs, rowNum) -> {
+                    assertThat(userCodec.read(rs, 1)).isEqualTo(user);
+                    return bookCodec.read(rs, userCodec.columns().size() + 1);
+                });
+
+        //then
+        assertThat(books).containsExactly(book);
+    }
+
+    // Столбцы, без которых INSERT кодека не пройдёт
+    private List<String> notNullColumns(String table) {
+        return jdbcTemplate.queryForList("SELECT UPPER(COLUMN_NAME) FROM INFORMATION_SCHEMA.COLUMNS " +
+                        "WHERE TABLE_SCHEMA = 'ulab_edu' AND TABLE_NAME = ? AND IS_NULLABLE = 'NO' " +
+                        "AND COLUMN_DEFAULT IS NULL",
+                String.class, table);
+    }
+}
@@ -0,0 +1,81 @@
+package com.edu.ulab.app.repository.r2dbc;
+
+import io.r2dbc.spi.ConnectionFactories;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты выдачи идентификаторов {@link R2dbcSequenceRepository} на встроенной H2 через R2DBC.
+ */
+@DisplayName("Testing reactive sequence repository.")
+public class R2dbcSequenceRepositoryTest {
+    DatabaseClient databaseClient;
+    R2dbcSequenceRepository sequenceRepository;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient = DatabaseClient.create(ConnectionFactories.get(
+                "r2dbc:h2:mem:///r2dbc-sequence?options=DB_CLOSE_DELAY=-1;MODE=PostgreSQL"));
+        databaseClient.sql("CREATE SEQUENCE sequence START WITH 5").then().block();
+        sequenceRepository = new R2dbcSequenceRepository(databaseClient);
+    }
+
+    @AfterEach
+    void tearDown() {
+        databaseClient.sql("DROP SEQUENCE sequence").then().block();
+    }
+
+    @Test
+    @DisplayName("Блок переживает вызовы, последовательность читается раз на блок")
+    void blockReuse_Test() {
+        //when
+        long[] first = sequenceRepository.nextIds(1).block();
+        long[] next = sequenceRepository.nextIds(99).block();
+        long[] afterBlock = sequenceRepository.nextIds(1).block();
+
+        //then
+        assertThat(first).containsExactly(500);
+        assertThat(next).containsExactly(LongStream.rangeClosed(501, 599).toArray());
+        assertThat(afterBlock).containsExactly(600);
+        assertThat(currentValue()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("Большой запрос дополняется своими блоками")
+    void largeRequest_Test() {
+        //given
+        long[] first = sequenceRepository.nextIds(1).block();
+
+        //when
+        long[] ids = sequenceRepository.nextIds(250).block();
+
+        //then
+        assertThat(first).containsExactly(500);
+        assertThat(ids).containsExactly(LongStream.rangeClosed(501, 750).toArray());
+        assertThat(sequenceRepository.nextIds(1).block()).containsExactly(800);
+    }
+
+    @Test
+    @DisplayName("Без подписки идентификаторы не расходуются")
+    void lazy_Test() {
+        //when
+        sequenceRepository.nextIds(1);
+
+        //then
+        assertThat(sequenceRepository.nextIds(1).block()).containsExactly(500);
+    }
+
+    private long currentValue() {
+        return databaseClient.sql("SELECT nextval('sequence')")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .block() - 1;
+    }
+}
@@ -0,0 +1,97 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.config.H2ChangesetDatabase;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.repository.SequenceRepository;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Тестирование {@link BookServiceImplTemplate} на схеме Liquibase в H2.
+ */
+@DisplayName("Testing JDBC book functionality.")
+public class BookServiceImplTemplateTest {
+    H2ChangesetDatabase database;
+    JdbcTemplate jdbcTemplate;
+    BookServiceImplTemplate bookService;
+    Long userId;
+
+    @BeforeEach
+    void setUp() {
+        database = new H2ChangesetDatabase("jdbc-book-service");
+        jdbcTemplate = database.jdbcTemplate();
+        PooledIdAllocator idAllocator = new PooledIdAllocator(new SequenceRepository(jdbcTemplate));
+        bookService = new BookServiceImplTemplate(jdbcTemplate, idAllocator);
+        userId = new UserServiceImplTemplate(jdbcTemplate, idAllocator)
+                .createUser(new UserDto(null, "Test User", "reader", 20))
+                .getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    @DisplayName("Книги вставляются многострочными INSERT, в том числе больше одного запроса")
+    void createBooks_Test() {
+        //given
+        List<BookDto> bookDtos = IntStream.range(0, 1201)
+                .mapToObj(i -> new BookDto(null, userId, "title " + i, "author", 100 + i))
+                .toList();
+
+        //when
+        List<BookDto> created = bookService.createBooks(bookDtos);
+
+        //then
+        assertThat(created).extracting(BookDto::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(bookService.getBooksByUserId(userId))
+                .hasSize(1201)
+                .extracting(BookDto::getId, BookDto::getTitle, BookDto::getVersion)
+                .containsAll(created.stream()
+                        .map(book -> tuple(book.getId(), book.getTitle(), 0L))
+                        .toList());
+    }
+
+    @Test
+    @DisplayName("Идентификаторы книг нескольких пользователей читаются одним запросом по возрастанию")
+    void getBookIdsByUserIds_Test() {
+        //given
+        List<BookDto> created = bookService.createBooks(List.of(
+                new BookDto(null, userId, "second", "author", 200),
+                new BookDto(null, userId, "first", "author", 100)));
+        long userWithoutBooks = userId + 1000;
+
+        //when
+        Map<Long, List<Long>> bookIds = bookService.getBookIdsByUserIds(List.of(userId, userWithoutBooks));
+
+        //then
+        assertThat(bookIds).containsOnlyKeys(userId);
+        assertThat(bookIds.get(userId)).containsExactly(created.get(0).getId(), created.get(1).getId());
+    }
+
+    @Test
+    @DisplayName("Пустой список не обращается к базе")
+    void createBooksEmpty_Test() {
+        //when
+        List<BookDto> created = bookService.createBooks(List.of());
+
+        //then
+        assertThat(created).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM BOOK", Long.class)).isZero();
+    }
+}
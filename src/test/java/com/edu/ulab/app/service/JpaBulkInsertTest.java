@@ -0,0 +1,85 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.config.SystemJpaTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.repository.SequenceRepository;
+import com.edu.ulab.app.service.impl.BookServiceImpl;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Массовое создание книг на JPA: persist пачками и JDBC-батч для больших списков.
+ */
+@SystemJpaTest
+@Testcontainers(disabledWithoutDocker = true)
+@Sql({"classpath:sql/1_clear_schema.sql",
+        "classpath:sql/2_insert_person_data.sql"
+})
+@DisplayName("Testing JPA bulk insert.")
+public class JpaBulkInsertTest {
+    // ниже порога список сохраняется через persist, от порога — JDBC-батчем
+    private static final int THRESHOLD = 5;
+
+    @Autowired
+    BookRepository bookRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    TestEntityManager entityManager;
+
+    BookServiceImpl bookService;
+
+    @BeforeEach
+    void setUp() {
+        PooledIdAllocator idAllocator = new PooledIdAllocator(new SequenceRepository(jdbcTemplate));
+        bookService = new BookServiceImpl(bookRepository, Mappers.getMapper(BookMapper.class), idAllocator);
+        ReflectionTestUtils.setField(bookService, "entityManager", entityManager.getEntityManager());
+        ReflectionTestUtils.setField(bookService, "batchSize", 2);
+        ReflectionTestUtils.setField(bookService, "statelessInsertThreshold", THRESHOLD);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {THRESHOLD - 1, THRESHOLD + 2})
+    @DisplayName("Книги сохраняются с выданными идентификаторами, контекст персистентности пуст")
+    void createBooks_Test(int count) {
+        //given
+        List<BookDto> bookDtos = IntStream.range(0, count)
+                .mapToObj(i -> new BookDto(null, 1001L, "title " + i, "author", 100 + i))
+                .toList();
+
+        //when
+        List<BookDto> created = bookService.createBooks(bookDtos);
+
+        //then
+        assertThat(created).extracting(BookDto::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(created).extracting(BookDto::getVersion).containsOnly(0L);
+        assertThat(managedEntities()).isZero();
+        assertThat(bookRepository.findAllByPersonId(1001L))
+                .extracting(Book::getId)
+                .containsExactlyInAnyOrderElementsOf(created.stream().map(BookDto::getId).toList());
+    }
+
+    private int managedEntities() {
+        return entityManager.getEntityManager().unwrap(Session.class)
+                .getStatistics().getEntityCount();
+    }
+}
@@ -0,0 +1,159 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.config.H2ChangesetDatabase;
+import com.edu.ulab.app.config.HibernateCacheConfig;
+import com.edu.ulab.app.dto.BookPatchDto;
+import com.edu.ulab.app.dto.UserPatchDto;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.mapper.BookMapperImpl;
+import com.edu.ulab.app.mapper.UserMapperImpl;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.repository.SequenceRepository;
+import com.edu.ulab.app.repository.UserRepository;
+import com.edu.ulab.app.service.impl.BookServiceImpl;
+import com.edu.ulab.app.service.impl.UserServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.Cache;
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Частичное обновление JPA-сервисов на схеме Liquibase в H2: новая версия возвращается
+ * сгенерированным ключом, из кеша второго уровня сбрасывается только изменённая сущность.
+ */
+@ActiveProfiles("test")
+@DataJpaTest(properties = {
+        "app.storage.backend=jpa",
+        "spring.liquibase.enabled=false",
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UserServiceImpl.class, BookServiceImpl.class, UserMapperImpl.class, BookMapperImpl.class,
+        PooledIdAllocator.class, SequenceRepository.class, HibernateCacheConfig.class, JpaPatchTest.Config.class})
+@DisplayName("Testing JPA patch.")
+public class JpaPatchTest {
+    @Autowired
+    UserServiceImpl userService;
+    @Autowired
+    BookServiceImpl bookService;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    TestEntityManager entityManager;
+
+    @TestConfiguration
+    static class Config {
+        @Bean(destroyMethod = "close")
+        H2ChangesetDatabase database() {
+            return new H2ChangesetDatabase("jpa-patch");
+        }
+
+        @Bean
+        DataSource dataSource(H2ChangesetDatabase database) {
+            return database.dataSource();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO PERSON(ID, FULL_NAME, TITLE, AGE) VALUES (1, 'First User', 'first', 20), " +
+                "(2, 'Second User', 'second', 30)");
+        jdbcTemplate.update("INSERT INTO BOOK(ID, PERSON_ID, TITLE, AUTHOR, PAGE_COUNT) VALUES (10, 1, 'first book', 'author', 100), " +
+                "(20, 2, 'second book', 'author', 200)");
+    }
+
+    @Test
+    @DisplayName("Новая версия пользователя возвращается тем же UPDATE, с ожидаемой версией и без неё")
+    void patchUser_Test() {
+        //when
+        long unconditional = userService.patchUser(new UserPatchDto(1L, "Patched User", null, null, null));
+        long conditional = userService.patchUser(new UserPatchDto(1L, null, null, 21, unconditional));
+
+        //then
+        assertThat(unconditional).isEqualTo(1L);
+        assertThat(conditional).isEqualTo(2L);
+        assertThat(jdbcTemplate.queryForMap("SELECT FULL_NAME, TITLE, AGE, VERSION FROM PERSON WHERE ID = 1"))
+                .containsEntry("full_name", "Patched User")
+                .containsEntry("title", "first")
+                .containsEntry("age", 21)
+                .containsEntry("version", 2L);
+    }
+
+    @Test
+    @DisplayName("Отсутствующий пользователь не найден, устаревшая версия - конфликт")
+    void patchUserNotFoundOrConflict_Test() {
+        //then
+        assertThatThrownBy(() -> userService.patchUser(new UserPatchDto(3L, "Patched User", null, null, null)))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> userService.patchUser(new UserPatchDto(3L, "Patched User", null, null, 0L)))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> userService.patchUser(new UserPatchDto(1L, "Patched User", null, null, 5L)))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    @DisplayName("Книга другого пользователя не найдена, своя обновляется с новой версией")
+    void patchBook_Test() {
+        //then
+        assertThatThrownBy(() -> bookService.patchBook(new BookPatchDto(20L, 1L, "patched", null, null, null)))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> bookService.patchBook(new BookPatchDto(20L, 1L, "patched", null, null, 0L)))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> bookService.patchBook(new BookPatchDto(10L, 1L, "patched", null, null, 5L)))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(bookService.patchBook(new BookPatchDto(10L, 1L, null, null, 150L, 0L))).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT TITLE FROM BOOK WHERE ID = 20", String.class))
+                .isEqualTo("second book");
+    }
+
+    @Test
+    @DisplayName("Пустое изменение отклоняется")
+    void emptyPatch_Test() {
+        //then
+        assertThatThrownBy(() -> userService.patchUser(new UserPatchDto(1L, null, null, null, null)))
+                .isInstanceOf(NotValidException.class);
+        assertThatThrownBy(() -> bookService.patchBook(new BookPatchDto(10L, 1L, null, null, null, null)))
+                .isInstanceOf(NotValidException.class);
+    }
+
+    @Test
+    @DisplayName("Из кеша второго уровня сбрасывается только изменённый пользователь")
+    void evict_Test() {
+        //given
+        userRepository.findById(1L);
+        userRepository.findById(2L);
+        entityManager.clear();
+        Cache cache = entityManager.getEntityManager().getEntityManagerFactory().getCache();
+        assertThat(cache.contains(Person.class, 1L)).isTrue();
+
+        //when
+        userService.patchUser(new UserPatchDto(1L, "Patched User", null, null, null));
+
+        //then
+        assertThat(cache.contains(Person.class, 1L)).isFalse();
+        assertThat(cache.contains(Person.class, 2L)).isTrue();
+        assertThat(userRepository.findById(1L)).get()
+                .extracting(Person::getFullName)
+                .isEqualTo("Patched User");
+    }
+}
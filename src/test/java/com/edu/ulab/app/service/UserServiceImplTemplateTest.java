@@ -0,0 +1,127 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.config.H2ChangesetDatabase;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.dto.UserFilter;
+import com.edu.ulab.app.dto.UserWithBooksDto;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.repository.SequenceRepository;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестирование {@link UserServiceImplTemplate} на схеме Liquibase в H2.
+ */
+@DisplayName("Testing JDBC user functionality.")
+public class UserServiceImplTemplateTest {
+    H2ChangesetDatabase database;
+    JdbcTemplate jdbcTemplate;
+    PooledIdAllocator idAllocator;
+    UserServiceImplTemplate userService;
+
+    @BeforeEach
+    void setUp() {
+        database = new H2ChangesetDatabase("jdbc-user-service");
+        jdbcTemplate = database.jdbcTemplate();
+        idAllocator = new PooledIdAllocator(new SequenceRepository(jdbcTemplate));
+        userService = new UserServiceImplTemplate(jdbcTemplate, idAllocator);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    @DisplayName("Пользователи по списку ID читаются одним запросом, отсутствующие пропускаются")
+    void getUsersByIds_Test() {
+        //given
+        List<UserDto> created = createUsers(
+                new UserDto(null, "First User", "first", 20),
+                new UserDto(null, "Second User", "second", 30));
+        long missingId = created.get(1).getId() + 1000;
+
+        //when
+        List<UserDto> users = userService.getUsersByIds(List.of(created.get(1).getId(), missingId, created.get(0).getId()));
+
+        //then
+        assertThat(users).containsExactlyInAnyOrderElementsOf(created);
+    }
+
+    @Test
+    @DisplayName("Пустой список ID не обращается к базе")
+    void getUsersByIdsEmpty_Test() {
+        //when
+        List<UserDto> users = userService.getUsersByIds(List.of());
+
+        //then
+        assertThat(users).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Выгрузка передаёт каждого пользователя один раз с книгами по возрастанию ID")
+    void forEachUserWithBooks_Test() {
+        //given
+        ReflectionTestUtils.setField(userService, "exportFetchSize", 2);
+        List<UserDto> created = createUsers(
+                new UserDto(null, "First User", "first", 20),
+                new UserDto(null, "Second User", "second", 30),
+                new UserDto(null, "Third User", "third", 40));
+        List<BookDto> books = new BookServiceImplTemplate(jdbcTemplate, idAllocator).createBooks(List.of(
+                new BookDto(null, created.get(0).getId(), "first book", "author", 100),
+                new BookDto(null, created.get(2).getId(), "second book", "author", 200),
+                new BookDto(null, created.get(0).getId(), "third book", "author", 300)));
+        List<UserWithBooksDto> exported = new ArrayList<>();
+
+        //when
+        userService.forEachUserWithBooks(exported::add);
+
+        //then
+        assertThat(exported).extracting(UserWithBooksDto::getUser).containsExactlyElementsOf(created);
+        assertThat(exported.get(0).getBooks()).containsExactly(books.get(0), books.get(2));
+        assertThat(exported.get(1).getBooks()).isEmpty();
+        assertThat(exported.get(2).getBooks()).containsExactly(books.get(1));
+    }
+
+    @Test
+    @DisplayName("Страница начинается после заданного ID и учитывает фильтры")
+    void getUsersPage_Test() {
+        //given
+        List<UserDto> created = createUsers(
+                new UserDto(null, "First User", "first", 20),
+                new UserDto(null, "Second User", "second", 30),
+                new UserDto(null, "Third User", "third", 30),
+                new UserDto(null, "Fourth User", "fourth", 40));
+
+        //when
+        List<UserDto> firstPage = userService.getUsersPage(new UserFilter(), null, 2);
+        List<UserDto> secondPage = userService.getUsersPage(new UserFilter(), firstPage.get(1).getId(), 2);
+        List<UserDto> byAge = userService.getUsersPage(new UserFilter(null, 25, 35), created.get(1).getId(), 10);
+        List<UserDto> byTitle = userService.getUsersPage(new UserFilter("fourth", null, null), null, 10);
+
+        //then
+        assertThat(firstPage).containsExactlyElementsOf(created.subList(0, 2));
+        assertThat(secondPage).containsExactlyElementsOf(created.subList(2, 4));
+        assertThat(byAge).containsExactly(created.get(2));
+        assertThat(byTitle).containsExactly(created.get(3));
+    }
+
+    private List<UserDto> createUsers(UserDto... userDtos) {
+        return Stream.of(userDtos)
+                .map(userService::createUser)
+                .toList();
+    }
+}
@@ -0,0 +1,224 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.NotUniqueException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+/**
+ * Тесты хранилища {@link Storage}.
+ */
+@DisplayName("Testing in-memory storage.")
+public class StorageTest {
+    Storage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new Storage();
+    }
+
+    @Test
+    @DisplayName("Сохранение пользователя и книг. Книги доступны по индексу пользователя")
+    void saveUserWithBooks_Test() {
+        //given
+        Person person = storage.saveUser(person("reader"));
+
+        //when
+        Book book1 = storage.saveBook(book(person.getId(), "Nose"));
+        Book book2 = storage.saveBook(book(person.getId(), "Mummy"));
+
+        //then
+        assertThat(person.getId()).isNotNull();
+        assertThat(storage.findBooksByUserId(person.getId()).orElseThrow())
+                .extracting(Book::getId)
+                .containsExactlyInAnyOrder(book1.getId(), book2.getId());
+    }
+
+    @Test
+    @DisplayName("Удаление пользователя удаляет его книги")
+    void deleteUser_Test() {
+        //given
+        Person person = storage.saveUser(person("reader"));
+        Book book = storage.saveBook(book(person.getId(), "Nose"));
+
+        //when
+        boolean deleted = storage.deleteUserById(person.getId());
+
+        //then
+        assertThat(deleted).isTrue();
+        assertThat(storage.findUserById(person.getId())).isEmpty();
+        assertThat(storage.findBookById(book.getId())).isEmpty();
+        assertThat(storage.findBooksByUserId(person.getId())).isEmpty();
+        assertThat(storage.deleteUserById(person.getId())).isFalse();
+    }
+
+    @Test
+    @DisplayName("Перенос книги к другому пользователю обновляет индекс")
+    void moveBook_Test() {
+        //given
+        Person first = storage.saveUser(person("first"));
+        Person second = storage.saveUser(person("second"));
+        Book book = storage.saveBook(book(first.getId(), "Nose"));
+
+        //when
+        Book moved = book(second.getId(), "Nose");
+        moved.setId(book.getId());
+        moved.setVersion(book.getVersion() + 1);
+        storage.updateBook(moved);
+
+        //then
+        assertThat(storage.findBooksByUserId(first.getId()).orElseThrow()).isEmpty();
+        assertThat(storage.findBooksByUserId(second.getId()).orElseThrow())
+                .extracting(Book::getId)
+                .containsExactly(book.getId());
+    }
+
+    @Test
+    @DisplayName("Ошибка - перенос книги к несуществующему пользователю оставляет её у прежнего")
+    void moveBook_FailOnUserTest() {
+        //given
+        Person first = storage.saveUser(person("first"));
+        Book book = storage.saveBook(book(first.getId(), "Nose"));
+        Book moved = book(1000L, "Nose");
+        moved.setId(book.getId());
+        moved.setVersion(book.getVersion() + 1);
+
+        //then
+        assertThatThrownBy(() -> storage.updateBook(moved))
+                .isInstanceOf(NotFoundException.class);
+        assertThat(storage.findBooksByUserId(first.getId()).orElseThrow())
+                .extracting(Book::getId)
+                .containsExactly(book.getId());
+    }
+
+    @Test
+    @DisplayName("Перенесённая книга не удаляется вместе с прежним владельцем")
+    void moveBookConcurrentDelete_Test() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 200; i++) {
+                //given
+                Person first = storage.saveUser(person("first-" + i));
+                Person second = storage.saveUser(person("second-" + i));
+                Book book = storage.saveBook(book(first.getId(), "Nose"));
+                Book moved = book(second.getId(), "Nose");
+                moved.setId(book.getId());
+                moved.setVersion(book.getVersion() + 1);
+        moved.setVersion(book.getVersion() + 1);
+
+                //when
+                Future<?> move = executor.submit(() -> storage.updateBook(moved));
+                Future<?> delete = executor.submit(() -> storage.deleteUserById(first.getId()));
+                move.get();
+                delete.get();
+
+                //then
+                boolean movedBookKept = storage.findBooksByUserId(second.getId()).orElseThrow().contains(moved);
+                assertThat(storage.findBookById(book.getId()).isPresent()).isEqualTo(movedBookKept);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Ошибка - замена книги с устаревшей версией, в том числе при переносе")
+    void updateBook_FailOnVersionTest() {
+        //given
+        Person first = storage.saveUser(person("first"));
+        Person second = storage.saveUser(person("second"));
+        Book book = storage.saveBook(book(first.getId(), "Nose"));
+        Book updated = book(first.getId(), "Overcoat");
+        updated.setId(book.getId());
+        updated.setVersion(book.getVersion() + 1);
+        storage.updateBook(updated);
+        Book stale = book(first.getId(), "Mummy");
+        stale.setId(book.getId());
+        stale.setVersion(updated.getVersion());
+        Book staleMove = book(second.getId(), "Mummy");
+        staleMove.setId(book.getId());
+        staleMove.setVersion(updated.getVersion());
+
+        //then
+        assertThatThrownBy(() -> storage.updateBook(stale))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThatThrownBy(() -> storage.updateBook(staleMove))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(storage.findBookById(book.getId()).orElseThrow().getTitle()).isEqualTo("Overcoat");
+        assertThat(storage.findBooksByUserId(first.getId()).orElseThrow())
+                .extracting(Book::getId)
+                .containsExactly(book.getId());
+    }
+
+    @Test
+    @DisplayName("Ошибка - книга для несуществующего пользователя")
+    void saveBook_FailOnUserTest() {
+        assertThatThrownBy(() -> storage.saveBook(book(1L, "Nose")))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("User with ID=1 not found!");
+    }
+
+    @Test
+    @DisplayName("Ошибка - не уникальное поле title")
+    void saveUser_FailOnTitleTest() {
+        //given
+        storage.saveUser(person("reader"));
+
+        //then
+        assertThatThrownBy(() -> storage.saveUser(person("reader")))
+                .isInstanceOf(NotUniqueException.class);
+    }
+
+    @Test
+    @DisplayName("Параллельное добавление книг одному пользователю")
+    void concurrentSaveBook_Test() throws Exception {
+        //given
+        Person person = storage.saveUser(person("reader"));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        //when
+        List<Future<Book>> futures = IntStream.range(0, 1000)
+                .mapToObj(i -> executor.submit(() -> storage.saveBook(book(person.getId(), "book " + i))))
+                .toList();
+        for (Future<Book> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then
+        assertThat(storage.findBooksByUserId(person.getId()).orElseThrow()).hasSize(1000);
+    }
+
+    private static Person person(String title) {
+        Person person = new Person();
+        person.setFullName("Test Test");
+        person.setTitle(title);
+        person.setAge(30);
+        return person;
+    }
+
+    private static Book book(Long userId, String title) {
+        Person person = new Person();
+        person.setId(userId);
+
+        Book book = new Book();
+        book.setPerson(person);
+        book.setTitle(title);
+        book.setAuthor("Gogol");
+        book.setPageCount(200);
+        return book;
+    }
+}
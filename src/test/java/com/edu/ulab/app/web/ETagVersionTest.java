@@ -0,0 +1,53 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.exception.NotValidException;
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты разбора {@code If-Match} в {@link ETagVersion}.
+ */
+@DisplayName("Testing If-Match parsing.")
+public class ETagVersionTest {
+
+    @Test
+    @DisplayName("Без заголовка и со звёздочкой версия не проверяется")
+    void any_Test() {
+        //then
+        assertThat(ETagVersion.expectedVersion(null)).isNull();
+        assertThat(ETagVersion.expectedVersion(" ")).isNull();
+        assertThat(ETagVersion.expectedVersion(" * ")).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\"7\"", " \"7\" ", "W/\"7\", \"7\"", "\"abc\",\"7\"", "\"7\" , \"7\",,"})
+    @DisplayName("Из списка берётся единственная сильная версия")
+    void strongVersion_Test(String ifMatch) {
+        //then
+        assertThat(ETagVersion.expectedVersion(ifMatch)).isEqualTo(7L);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"W/\"7\"", "\"abc\"", "W/\"7\", \"-1\""})
+    @DisplayName("Слабые и чужие теги не совпадают ни с одной версией")
+    void noStrongVersion_Test(String ifMatch) {
+        //then
+        assertThatThrownBy(() -> ETagVersion.expectedVersion(ifMatch))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"7", "\"7", "\"7\" \"8\"", "w/\"7\"", "*, \"7\"", "\"7\", \"8\""})
+    @DisplayName("Не список entity-tag или разные версии отклоняются")
+    void notValid_Test(String ifMatch) {
+        //then
+        assertThatThrownBy(() -> ETagVersion.expectedVersion(ifMatch))
+                .isInstanceOf(NotValidException.class);
+    }
+}
@@ -0,0 +1,119 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import com.edu.ulab.app.facade.ReactiveUserDataFacade;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static com.edu.ulab.app.web.constant.WebConstant.RQID;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Тесты условного обновления {@link ReactiveUserController} по {@code If-Match}.
+ */
+@WebMvcTest(ReactiveUserController.class)
+@DisplayName("Testing reactive user controller preconditions.")
+public class ReactiveUserControllerTest {
+    private static final String UPDATE_REQUEST = "{\"userRequest\":{\"fullName\":\"Test User\",\"title\":\"reader\",\"age\":20}}";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    ReactiveUserDataFacade userDataFacade;
+
+    @Test
+    @DisplayName("Версия из If-Match передаётся фасаду, новая возвращается в ETag")
+    void ifMatch_Test() throws Exception {
+        //given
+        when(userDataFacade.updateUserWithBooks(any(), eq(1L), eq(3L)))
+                .thenReturn(Mono.just(UserBookResponse.builder()
+                        .userId(1L)
+                        .booksIdList(List.of())
+                        .version(4L)
+                        .build()));
+
+        //when
+        ResultActions result = update("\"3\"");
+
+        //then
+        result.andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    @DisplayName("Устаревшая версия в If-Match даёт 412")
+    void staleIfMatch_Test() throws Exception {
+        //given
+        when(userDataFacade.updateUserWithBooks(any(), eq(1L), eq(3L)))
+                .thenReturn(Mono.error(new PreconditionFailedException("User with ID=1 was modified")));
+
+        //when
+        ResultActions result = update("W/\"2\", \"3\"");
+
+        //then
+        result.andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @DisplayName("Исчерпанные повторы без If-Match дают 409")
+    void exhaustedRetry_Test() throws Exception {
+        //given
+        when(userDataFacade.updateUserWithBooks(any(), eq(1L), isNull()))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("conflict")));
+
+        //when
+        ResultActions result = update(null);
+
+        //then
+        result.andExpect(status().isConflict());
+    }
+
+    @Test
+    @DisplayName("Слишком длинный rqid даёт 400 без обращения к фасаду")
+    void oversizedRequestId_Test() throws Exception {
+        //when
+        ResultActions result = mockMvc.perform(post("/api/v2/user/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(RQID, "r".repeat(65))
+                .content(UPDATE_REQUEST));
+
+        //then
+        result.andExpect(status().isBadRequest());
+        verifyNoInteractions(userDataFacade);
+    }
+
+    private ResultActions update(String ifMatch) throws Exception {
+        MockHttpServletRequestBuilder request = put("/api/v2/user/update/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(UPDATE_REQUEST);
+        if (ifMatch != null) {
+            request.header(HttpHeaders.IF_MATCH, ifMatch);
+        }
+        MvcResult started = mockMvc.perform(request).andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+}
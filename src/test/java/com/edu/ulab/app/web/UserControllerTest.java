@@ -0,0 +1,161 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.exception.PreconditionFailedException;
+import com.edu.ulab.app.facade.AsyncUserDataFacade;
+import com.edu.ulab.app.facade.UserDataFacade;
+import com.edu.ulab.app.web.response.UserBookResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.edu.ulab.app.web.constant.WebConstant.RQID;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Тесты условного обновления {@link UserController} по {@code If-Match}.
+ */
+@WebMvcTest(UserController.class)
+@DisplayName("Testing user controller preconditions.")
+public class UserControllerTest {
+    private static final String UPDATE_REQUEST = "{\"userRequest\":{\"fullName\":\"Test User\",\"title\":\"reader\",\"age\":20}}";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    UserDataFacade userDataFacade;
+
+    @MockBean
+    AsyncUserDataFacade asyncUserDataFacade;
+
+    @Test
+    @DisplayName("Устаревшая версия в If-Match даёт 412")
+    void staleIfMatch_Test() throws Exception {
+        //given
+        when(asyncUserDataFacade.updateUserWithBooks(any(), eq(1L), eq(3L)))
+                .thenReturn(CompletableFuture.failedFuture(new PreconditionFailedException("User with ID=1 was modified")));
+
+        //when
+        ResultActions result = update("\"3\"");
+
+        //then
+        result.andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @DisplayName("Исчерпанные повторы без If-Match дают 409")
+    void exhaustedRetry_Test() throws Exception {
+        //given
+        when(asyncUserDataFacade.updateUserWithBooks(any(), eq(1L), isNull()))
+                .thenReturn(CompletableFuture.failedFuture(new OptimisticLockingFailureException("conflict")));
+
+        //when
+        ResultActions result = update(null);
+
+        //then
+        result.andExpect(status().isConflict());
+    }
+
+    @Test
+    @DisplayName("Список тегов в If-Match сводится к одной сильной версии")
+    void ifMatchList_Test() throws Exception {
+        //given
+        when(asyncUserDataFacade.updateUserWithBooks(any(), eq(1L), eq(3L)))
+                .thenReturn(CompletableFuture.completedFuture(UserBookResponse.builder()
+                        .userId(1L)
+                        .booksIdList(List.of())
+                        .version(4L)
+                        .build()));
+
+        //when
+        ResultActions result = update("W/\"2\", \"3\", \"3\"");
+
+        //then
+        result.andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    @DisplayName("Только слабый тег в If-Match даёт 412 без обращения к фасаду")
+    void weakIfMatch_Test() throws Exception {
+        //when
+        ResultActions result = mockMvc.perform(put("/api/v1/user/update/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                .content(UPDATE_REQUEST));
+
+        //then
+        result.andExpect(status().isPreconditionFailed());
+        verifyNoInteractions(asyncUserDataFacade);
+    }
+
+    @Test
+    @DisplayName("Ответ на создание, в том числе повторный, несёт версию в ETag")
+    void createETag_Test() throws Exception {
+        //given
+        when(asyncUserDataFacade.createUserWithBooks(any(), eq("rq-1")))
+                .thenReturn(CompletableFuture.completedFuture(UserBookResponse.builder()
+                        .userId(1L)
+                        .booksIdList(List.of())
+                        .version(0L)
+                        .build()));
+
+        //when
+        MvcResult started = mockMvc.perform(post("/api/v1/user/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(RQID, "rq-1")
+                        .content(UPDATE_REQUEST))
+                .andReturn();
+        ResultActions result = mockMvc.perform(asyncDispatch(started));
+
+        //then
+        result.andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+    }
+
+    @Test
+    @DisplayName("Слишком длинный rqid даёт 400 без обращения к фасаду")
+    void oversizedRequestId_Test() throws Exception {
+        //when
+        ResultActions result = mockMvc.perform(post("/api/v1/user/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(RQID, "r".repeat(65))
+                .content(UPDATE_REQUEST));
+
+        //then
+        result.andExpect(status().isBadRequest());
+        verifyNoInteractions(asyncUserDataFacade);
+    }
+
+    private ResultActions update(String ifMatch) throws Exception {
+        MockHttpServletRequestBuilder request = put("/api/v1/user/update/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(UPDATE_REQUEST);
+        if (ifMatch != null) {
+            request.header(HttpHeaders.IF_MATCH, ifMatch);
+        }
+        MvcResult started = mockMvc.perform(request).andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+}
@@ -0,0 +1,186 @@
+package com.edu.ulab.app.writebehind;
+
+import com.edu.ulab.app.bulk.UserBookBatchWriter;
+import com.edu.ulab.app.config.WriteBehindProperties;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.PooledIdAllocator;
+import com.edu.ulab.app.web.request.BookRequest;
+import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.writebehind.WriteBehindLog.LogRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mapstruct.factory.Mappers;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты переноса журнала {@link UserBookWriteBehind} в базу и журнала ошибок.
+ */
+@DisplayName("Testing write-behind flush.")
+public class UserBookWriteBehindTest {
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    WriteBehindProperties properties;
+    PooledIdAllocator idAllocator;
+    UserBookBatchWriter batchWriter;
+    SimpleMeterRegistry meterRegistry;
+    UserBookWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WriteBehindProperties();
+        properties.setDirectory(directory);
+        properties.setSegmentSize(DataSize.ofBytes(SEGMENT_SIZE));
+        AtomicLong nextId = new AtomicLong(100);
+        idAllocator = mock(PooledIdAllocator.class);
+        when(idAllocator.nextIds(anyInt())).thenAnswer(invocation ->
+                LongStream.range(0, invocation.<Integer>getArgument(0)).map(i -> nextId.getAndIncrement()).toArray());
+        batchWriter = mock(UserBookBatchWriter.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (writeBehind != null) {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Непрочитанная запись уходит в журнал ошибок и не задерживает очередь")
+    void unreadableRecord_Test() throws IOException {
+        //given
+        try (WriteBehindLog writeBehindLog = WriteBehindLog.open(directory, SEGMENT_SIZE, 16)) {
+            writeBehindLog.awaitDurable(writeBehindLog.append("not json".getBytes(StandardCharsets.UTF_8), 1L));
+        }
+        writeBehind = createWriteBehind();
+        writeBehind.createUserWithBooks(request("reader"));
+
+        //when
+        writeBehind.flush();
+
+        //then
+        assertThat(writeBehind.readDeadLetters(10))
+                .extracting(record -> new String(record.payload(), StandardCharsets.UTF_8))
+                .containsExactly("not json");
+        verify(batchWriter).write(argThat(users -> users.size() == 1 && users.get(0).getId() == 100L), anyList());
+        assertThat(meterRegistry.get(UserBookWriteBehind.METRIC_PREFIX + ".log.depth").gauge().value()).isZero();
+        assertThat(meterRegistry.get(UserBookWriteBehind.METRIC_PREFIX + ".rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Отклонённая базой запись переживает перезапуск и возвращается в очередь")
+    void rejectedRecord_Test() throws Exception {
+        //given
+        doThrow(new DataIntegrityViolationException("duplicate title"))
+                .when(batchWriter).write(argThat(users -> users.stream().anyMatch(UserBookWriteBehindTest::isDuplicate)), anyList());
+        writeBehind = createWriteBehind();
+        writeBehind.createUserWithBooks(request("reader"));
+        writeBehind.createUserWithBooks(request("duplicate"));
+
+        //when
+        writeBehind.flush();
+        writeBehind.stop();
+        writeBehind = createWriteBehind();
+
+        //then
+        List<LogRecord> deadLetters = writeBehind.readDeadLetters(10);
+        assertThat(deadLetters).singleElement()
+                .satisfies(record -> assertThat(new String(record.payload(), StandardCharsets.UTF_8))
+                        .contains("duplicate"));
+
+        //when
+        doNothing().when(batchWriter).write(anyList(), anyList());
+        int replayed = writeBehind.replayDeadLetters();
+        writeBehind.flush();
+
+        //then
+        assertThat(replayed).isEqualTo(1);
+        assertThat(writeBehind.readDeadLetters(10)).isEmpty();
+        verify(batchWriter, times(2)).write(argThat(users -> users.size() == 1 && isDuplicate(users.get(0))), anyList());
+    }
+
+    @Test
+    @DisplayName("При недоступной базе запись остаётся в очереди")
+    void databaseUnavailable_Test() throws IOException {
+        //given
+        doThrow(new CannotGetJdbcConnectionException("connection refused"))
+                .when(batchWriter).write(anyList(), anyList());
+        writeBehind = createWriteBehind();
+        writeBehind.createUserWithBooks(request("reader"));
+
+        //when
+        writeBehind.flush();
+
+        //then
+        assertThat(writeBehind.readDeadLetters(10)).isEmpty();
+        assertThat(meterRegistry.get(UserBookWriteBehind.METRIC_PREFIX + ".log.depth").gauge().value()).isEqualTo(1);
+        verify(batchWriter, times(1)).write(anyList(), anyList());
+
+        //when
+        doNothing().when(batchWriter).write(anyList(), anyList());
+        writeBehind.flush();
+
+        //then
+        assertThat(meterRegistry.get(UserBookWriteBehind.METRIC_PREFIX + ".log.depth").gauge().value()).isZero();
+        verify(batchWriter, never()).findExistingUserIds(anyList());
+    }
+
+    private UserBookWriteBehind createWriteBehind() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        return new UserBookWriteBehind(properties, new ObjectMapper(), Mappers.getMapper(UserMapper.class),
+                Mappers.getMapper(BookMapper.class), idAllocator, batchWriter, meterRegistry);
+    }
+
+    private static boolean isDuplicate(UserDto user) {
+        return "duplicate".equals(user.getTitle());
+    }
+
+    private static UserBookRequest request(String title) {
+        UserRequest userRequest = new UserRequest();
+        userRequest.setFullName("Test User");
+        userRequest.setTitle(title);
+        userRequest.setAge(20);
+
+        BookRequest bookRequest = new BookRequest();
+        bookRequest.setTitle("Book");
+        bookRequest.setAuthor("Author");
+        bookRequest.setPageCount(100);
+
+        UserBookRequest request = new UserBookRequest();
+        request.setUserRequest(userRequest);
+        request.setBookRequests(List.of(bookRequest));
+        return request;
+    }
+}
@@ -0,0 +1,228 @@
+package com.edu.ulab.app.writebehind;
+
+import com.edu.ulab.app.writebehind.WriteBehindLog.LogRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты журнала {@link WriteBehindLog}.
+ */
+@DisplayName("Testing write-behind log.")
+public class WriteBehindLogTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Записи читаются после сброса на диск и удаляются checkpoint")
+    void appendReadCheckpoint_Test() throws IOException {
+        try (WriteBehindLog writeBehindLog = WriteBehindLog.open(directory, SEGMENT_SIZE, 4)) {
+            //given
+            long first = writeBehindLog.append(bytes("first"), 1L);
+            long second = writeBehindLog.append(bytes("second"), 2L);
+
+            //when
+            List<LogRecord> beforeSync = writeBehindLog.read(writeBehindLog.checkpointLsn(), 10);
+            writeBehindLog.awaitDurable(second);
+            List<LogRecord> records = writeBehindLog.read(writeBehindLog.checkpointLsn(), 10);
+
+            //then
+            assertThat(beforeSync).isEmpty();
+            assertThat(records).extracting(record -> text(record.payload())).containsExactly("first", "second");
+            assertThat(records).extracting(LogRecord::appendedAtMillis).containsExactly(1L, 2L);
+            assertThat(records.get(0).nextLsn()).isEqualTo(first);
+            assertThat(writeBehindLog.pendingRecords()).isEqualTo(2);
+            assertThat(writeBehindLog.oldestPendingAppendedAt()).isEqualTo(1L);
+
+            //when
+            writeBehindLog.checkpoint(records.subList(0, 1));
+
+            //then
+            assertThat(writeBehindLog.checkpointLsn()).isEqualTo(first);
+            assertThat(writeBehindLog.read(writeBehindLog.checkpointLsn(), 10))
+                    .extracting(record -> text(record.payload()))
+                    .containsExactly("second");
+            assertThat(writeBehindLog.pendingRecords()).isEqualTo(1);
+            assertThat(writeBehindLog.oldestPendingAppendedAt()).isEqualTo(2L);
+        }
+    }
+
+    @Test
+    @DisplayName("Параллельные записи сбрасываются на диск общими fsync")
+    void groupCommit_Test() throws Exception {
+        int threads = 8;
+        int appendsPerThread = 200;
+        try (WriteBehindLog writeBehindLog = WriteBehindLog.open(directory, 1024 * 1024, 4)) {
+            //given
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int threadNumber = thread;
+                tasks.add(() -> {
+                    for (int i = 0; i < appendsPerThread; i++) {
+                        writeBehindLog.awaitDurable(writeBehindLog.append(bytes(threadNumber + "-" + i), i));
+                    }
+                    return null;
+                });
+            }
+
+            //when
+            try {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            //then
+            assertThat(writeBehindLog.read(writeBehindLog.checkpointLsn(), Integer.MAX_VALUE))
+                    .hasSize(threads * appendsPerThread);
+            assertThat(writeBehindLog.syncCount()).isBetween(1L, (long) threads * appendsPerThread);
+        }
+    }
+
+    @Test
+    @DisplayName("После перезапуска читаются записи после checkpoint")
+    void reopen_Test() throws IOException {
+        //given
+        long recordsEnd;
+        try (WriteBehindLog writeBehindLog = WriteBehindLog.open(directory, SEGMENT_SIZE, 4)) {
+            writeBehindLog.append(bytes("flushed"), 1L);
+            writeBehindLog.append(bytes("pending"), 2L);
+            recordsEnd = writeBehindLog.append(bytes("pending too"), 3L);
+            writeBehindLog.awaitDurable(recordsEnd);
+            writeBehindLog.checkpoint(writeBehindLog.read(writeBehindLog.checkpointLsn(), 1));
+        }
+
+        //when
+        try (WriteBehindLog writeBehindLog = WriteBehindLog.open(directory, SEGMENT_SIZE, 4)) {
+            //then
+            assertThat(writeBehindLog.recoveredLsn()).isEqualTo(recordsEnd);
+            assertThat(writeBehindLog.pendingRecords()).isEqualTo(2);
+            assertThat(writeBehindLog.read(writeBehindLog.checkpointLsn(), 10))
+                    .extracting(record -> text(record.payload()))
+                    .containsExactly("pending", "pending too");
+
+            long appended = writeBehindLog.append(bytes("after restart"), 4L);
+            writeBehindLog.awaitDurable(appended);
+            assertThat(writeBehindLog.read(recordsEnd, 10))
+                    .extracting(record -> text(record.payload()))
+                    .containsExactly("after restart");
+        }
+    }
+
+    @Test
+    @DisplayName("Повреждённый хвост журнала отбрасывается при открытии")
+    void tornTail_Test() throws IOException {
+        //given
+        long firstEnd;
+        try (WriteBehindLog writeBehindLog = WriteBehindLog.open(directory, SEGMENT_SIZE, 4)) {
+            firstEnd = writeBehindLog.append(bytes("complete"), 1L);
+            writeBehindLog.awaitDurable(writeBehindLog.append(bytes("torn"), 2L));
+        }
+        try (FileChannel channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+            int payloadOffset = WriteBehindLog.offset(firstEnd) + WriteBehindLog.RECORD_HEADER_SIZE;
+            channel.write(ByteBuffer.wrap(bytes("xx")), payloadOffset);
+        }
+
+        //when
+        try (WriteBehindLog writeBehindLog = WriteBehindLog.open(directory, SEGMENT_SIZE, 4)) {
+            //then
+            assertThat(writeBehindLog.recoveredLsn()).isEqualTo(firstEnd);
+            assertThat(writeBehindLog.read(writeBehindLog.checkpointLsn(), 10))
+                    .extracting(record -> text(record.payload()))
+                    .containsExactly("complete");
+
+            long appended = writeBehindLog.append(bytes("next"), 3L);
+            writeBehindLog.awaitDurable(appended);
+            assertThat(writeBehindLog.read(firstEnd, 10))
+                    .extracting(record -> text(record.payload()))
+                    .containsExactly("next");
+        }
+    }
+
+    @Test
+    @DisplayName("Журнал переходит к новому сегменту и удаляет перенесённые")
+    void segmentRoll_Test() throws IOException {
+        byte[] payload = new byte[1000];
+        try (WriteBehindLog writeBehindLog = WriteBehindLog.open(directory, SEGMENT_SIZE, 4)) {
+            //given
+            long lsn = 0;
+            for (int i = 0; i < 6; i++) {
+                lsn = writeBehindLog.append(payload, i);
+            }
+            writeBehindLog.awaitDurable(lsn);
+
+            //when
+            List<LogRecord> records = writeBehindLog.read(writeBehindLog.checkpointLsn(), 10);
+
+            //then
+            assertThat(records).hasSize(6);
+            assertThat(segmentFiles()).hasSize(2);
+
+            //when
+            writeBehindLog.checkpoint(records);
+
+            //then
+            assertThat(segmentFiles()).hasSize(1);
+            assertThat(writeBehindLog.pendingRecords()).isZero();
+            assertThat(writeBehindLog.pendingBytes()).isZero();
+            assertThat(writeBehindLog.oldestPendingAppendedAt()).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("Заполненный журнал отклоняет новые записи")
+    void full_Test() throws IOException {
+        byte[] payload = new byte[2000];
+        try (WriteBehindLog writeBehindLog = WriteBehindLog.open(directory, SEGMENT_SIZE, 2)) {
+            //given
+            for (int i = 0; i < 4; i++) {
+                writeBehindLog.append(payload, i);
+            }
+
+            //then
+            assertThatThrownBy(() -> writeBehindLog.append(payload, 5L))
+                    .isInstanceOf(TaskRejectedException.class)
+                    .hasMessage("Write-behind log is full");
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".wal"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,24 @@
+CREATE SCHEMA IF NOT EXISTS ulab_edu;
+
+CREATE TABLE IF NOT EXISTS ulab_edu.person
+(
+    id        bigint      not null primary key,
+    full_name varchar(50) not null,
+    title     varchar(50) not null,
+    age       integer     not null,
+    version   bigint      not null default 0
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_ulab_edu_person_title on ulab_edu.person (title);
+
+CREATE TABLE IF NOT EXISTS ulab_edu.book
+(
+    id         bigint      not null primary key,
+    person_id  bigint      not null,
+    title      varchar(50) not null,
+    author     varchar(50) not null,
+    page_count integer     not null,
+    version    bigint      not null default 0
+);
+
+CREATE SEQUENCE IF NOT EXISTS sequence;